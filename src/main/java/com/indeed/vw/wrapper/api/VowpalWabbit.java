@@ -1,6 +1,8 @@
 package com.indeed.vw.wrapper.api;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 import com.indeed.vw.wrapper.api.parameters.Link;
@@ -12,10 +14,14 @@ import com.indeed.vw.wrapper.learner.VWLearner;
 import com.indeed.vw.wrapper.learner.VWLearners;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class contains factory methods for VWLearner builder object. <p>
@@ -67,6 +73,13 @@ public class VowpalWabbit {
 
         private final List<String> argumentsStrings = new ArrayList<>(Arrays.asList("vw"));
         private boolean verbose = false;
+        private int featureHashCacheCapacity = 0;
+        private int sharedContextCacheSize = 0;
+        private long sharedContextTimeToLiveMillis = 0;
+        private long actionCacheBytes = 0;
+        private long replayMemoryBytes = -1;
+        private Path replaySpillDirectory;
+        private Path replayCacheFile;
 
         /**
          * Make vowpal wabbit writing debug and performance information to stderr <p>
@@ -78,6 +91,72 @@ public class VowpalWabbit {
             return this;
         }
 
+        /**
+         * Memoize hashes of the most frequent feature strings in the JNI layer. <p>
+         * Useful when categorical features (user ids, job ids, frequent words) repeat a lot. <p>
+         * Hit rate is available through {@link VWLearner#getFeatureHashCacheStats()}. <p>
+         *
+         * @param capacity number of cached hashes, rounded up to a power of two
+         * @return builder
+         */
+        public Builder featureHashCache(final int capacity) {
+            Preconditions.checkArgument(capacity > 0, "Feature hash cache capacity must be positive: " + capacity);
+            featureHashCacheCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Replay the examples of the first pass from a native buffer for the remaining passes (see {@link #passes(int)},
+         * {@link #bfgs()} and {@link #conjugateGradient()}), instead of writing and reading a cache file. <p>
+         * The examples are kept in vowpal wabbit's binary cache format, those which do not fit in
+         * <code>maxMemoryBytes</code> spill to a temporary file in <code>spillDirectory</code>. <p>
+         * Sizes are available through {@link VWLearner#getReplayStats()}.  Building fails unless vowpal wabbit makes
+         * several passes, since the buffer would never be replayed. <p>
+         *
+         * @param maxMemoryBytes memory used by the retained examples
+         * @param spillDirectory directory of the spill file, preferably on a local disk
+         * @return builder
+         */
+        public Builder replayPasses(final long maxMemoryBytes, final Path spillDirectory) {
+            Preconditions.checkArgument(maxMemoryBytes >= 0, "Replay memory must not be negative: " + maxMemoryBytes);
+            replayMemoryBytes = maxMemoryBytes;
+            replaySpillDirectory = spillDirectory;
+            // vowpal wabbit only accepts several passes with a cache file, it is deleted as soon as the learner is built.
+            replayCacheFile = spillDirectory.resolve("vw-replay-" + UUID.randomUUID() + ".cache");
+            return this;
+        }
+
+        /**
+         * Bound the native cache of shared examples registered with {@link VWLearner#registerSharedContext(String)}. <p>
+         * By default the 1024 most recently used shared examples are kept for 10 minutes. <p>
+         *
+         * @param maxSize maximum number of parsed shared examples kept
+         * @param timeToLive time after which a registered shared example is parsed again, 0 to never expire
+         * @param unit unit of timeToLive
+         * @return builder
+         */
+        public Builder sharedContextCache(final int maxSize, final long timeToLive, final TimeUnit unit) {
+            Preconditions.checkArgument(maxSize > 0, "Shared context cache size must be positive: " + maxSize);
+            Preconditions.checkArgument(timeToLive >= 0, "Shared context time to live must not be negative: " + timeToLive);
+            sharedContextCacheSize = maxSize;
+            sharedContextTimeToLiveMillis = unit.toMillis(timeToLive);
+            return this;
+        }
+
+        /**
+         * Bound the memory of the native cache of action examples used by
+         * {@link com.indeed.vw.wrapper.learner.VWTypedLearner#predict(com.indeed.vw.wrapper.learner.SharedContext, long[], com.indeed.vw.wrapper.learner.ActionSource)}. <p>
+         * The default is 64 MiB. <p>
+         *
+         * @param maxBytes approximate memory used by cached actions
+         * @return builder
+         */
+        public Builder actionCache(final long maxBytes) {
+            Preconditions.checkArgument(maxBytes > 0, "Action cache size must be positive: " + maxBytes);
+            actionCacheBytes = maxBytes;
+            return this;
+        }
+
         /**
          * seed random number generator <p>
          *
@@ -1334,6 +1413,10 @@ public class VowpalWabbit {
          */
         public List<String> getCommandArguments() {
             final List<String> args = Lists.newArrayList(argumentsStrings);
+            if (replayCacheFile != null) {
+                args.removeAll(Collections.singleton("--cache"));
+                args.addAll(Arrays.asList("--cache_file", replayCacheFile.toString(), "--kill_cache"));
+            }
             if (!verbose) {
                 args.add("--quiet");
             }
@@ -1354,8 +1437,7 @@ public class VowpalWabbit {
          * @return VWIntArrayLearner object
          */
         public VWIntLearner buildIntLearner() {
-            logger.info("Vowpal wabbit command: " + getCommand());
-            return (VWIntLearner) VWLearners.create(getCommandArguments());
+            return (VWIntLearner) this.<VWLearner>createLearner();
         }
 
         /**
@@ -1363,14 +1445,67 @@ public class VowpalWabbit {
          */
         @Override
         public VWFloatLearner buildFloatLearner() {
-            logger.info("Vowpal wabbit command: " + getCommand());
-            return (VWFloatLearner) VWLearners.create(getCommandArguments());
+            return (VWFloatLearner) this.<VWLearner>createLearner();
         }
 
         @Override
         public <T extends VWLearner> T build() {
+            return createLearner();
+        }
+
+        private <T extends VWLearner> T createLearner() {
+            Preconditions.checkState(replayCacheFile == null || hasSeveralPasses(),
+                    "Replay needs several passes, see passes, bfgs and conjugateGradient");
             logger.info("Vowpal wabbit command: " + getCommand());
-            return VWLearners.create(getCommandArguments());
+            final T learner = VWLearners.create(getCommandArguments());
+            try {
+                if (featureHashCacheCapacity > 0) {
+                    learner.enableFeatureHashCache(featureHashCacheCapacity);
+                }
+                if (sharedContextCacheSize > 0) {
+                    learner.configureSharedContextCache(sharedContextCacheSize, sharedContextTimeToLiveMillis,
+                            TimeUnit.MILLISECONDS);
+                }
+                if (actionCacheBytes > 0) {
+                    learner.configureActionCache(actionCacheBytes);
+                }
+                if (replayMemoryBytes >= 0) {
+                    learner.enableReplay(replayMemoryBytes, replaySpillDirectory);
+                }
+                return learner;
+            } catch (final RuntimeException e) {
+                closeQuietly(learner);
+                throw e;
+            }
+        }
+
+        /**
+         * @return whether vowpal wabbit makes more than one pass over the examples
+         */
+        private boolean hasSeveralPasses() {
+            final List<String> args = Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings()
+                    .splitToList(Joiner.on(' ').join(argumentsStrings));
+            for (int i = 1; i < args.size(); i++) {
+                final String arg = args.get(i);
+                if (arg.equals("--bfgs") || arg.equals("--conjugate_gradient")) {
+                    return true;
+                }
+                if (arg.equals("--passes") && i + 1 < args.size() && Integer.parseInt(args.get(i + 1)) > 1) {
+                    return true;
+                }
+                if (arg.startsWith("--passes=") && Integer.parseInt(arg.substring("--passes=".length())) > 1) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void closeQuietly(final VWLearner learner) {
+            try {
+                learner.close();
+            } catch (final IOException | RuntimeException e) {
+                logger.error("Failed to close learner", e);
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package com.indeed.vw.wrapper.api.csv;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts CSV and TSV files to vowpal wabbit examples in parallel. <p>
+ *
+ * The input is read in chunks of bytes which end on a line boundary.  Chunks are converted by the tasks of an
+ * executor, and the converted chunks are passed to the sink by the calling thread in input order, so that the output
+ * is the same as a sequential conversion.  At most <code>maxChunksInFlight</code> chunks are read and not yet passed
+ * to the sink, which bounds the memory used when the sink is slower than the conversion. <p>
+ *
+ * <pre>
+ * try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get("train.vw")))) {
+ *     new CsvConverter(schema, executor).convert(Paths.get("extract.csv.gz"), ExampleSinks.toStream(out));
+ * }
+ * </pre>
+ */
+public class CsvConverter {
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private final CsvSchema schema;
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    /**
+     * Converter with chunks of {@link #DEFAULT_CHUNK_SIZE} bytes and two chunks in flight per available processor.
+     * @param schema mapping of the columns
+     * @param executor executor converting the chunks
+     */
+    public CsvConverter(@Nonnull final CsvSchema schema, @Nonnull final ExecutorService executor) {
+        this(schema, executor, DEFAULT_CHUNK_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param schema mapping of the columns
+     * @param executor executor converting the chunks
+     * @param chunkSize bytes converted per task, chunks grow when a single line is longer
+     * @param maxChunksInFlight maximum number of chunks read and not yet passed to the sink
+     */
+    public CsvConverter(@Nonnull final CsvSchema schema, @Nonnull final ExecutorService executor,
+                        final int chunkSize, final int maxChunksInFlight) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive: " + chunkSize);
+        Preconditions.checkArgument(maxChunksInFlight > 0, "Chunks in flight must be positive: " + maxChunksInFlight);
+        this.schema = schema;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Convert a plain or gzipped (<code>.gz</code>) file.
+     * @param file CSV file
+     * @param sink receives the examples
+     * @return number of examples
+     * @throws IOException if the file can not be read or the sink fails
+     * @throws InterruptedException if the calling thread is interrupted, the pending chunks are cancelled
+     */
+    public long convert(@Nonnull final Path file, @Nonnull final ExampleSink sink) throws IOException, InterruptedException {
+        try (final InputStream in = file.getFileName().toString().endsWith(".gz")
+                ? new GZIPInputStream(Files.newInputStream(file), 1 << 16)
+                : Files.newInputStream(file)) {
+            return convert(in, sink);
+        }
+    }
+
+    /**
+     * Convert a stream, which is not closed.
+     * @param in uncompressed CSV
+     * @param sink receives the examples
+     * @return number of examples
+     * @throws IOException if the stream can not be read or the sink fails
+     * @throws InterruptedException if the calling thread is interrupted, the pending chunks are cancelled
+     */
+    public long convert(@Nonnull final InputStream in, @Nonnull final ExampleSink sink) throws IOException, InterruptedException {
+        final ArrayDeque<Future<ConvertedChunk>> inFlight = new ArrayDeque<>(maxChunksInFlight);
+        long examples = 0;
+        try {
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            boolean header = schema.skipsHeader();
+            boolean endOfStream = false;
+            while (!endOfStream) {
+                while (length < buffer.length) {
+                    final int read = in.read(buffer, length, buffer.length - length);
+                    if (read < 0) {
+                        endOfStream = true;
+                        break;
+                    }
+                    length += read;
+                }
+                int start = 0;
+                if (header) {
+                    final int headerEnd = indexOf(buffer, 0, length, (byte) '\n');
+                    if (headerEnd < 0 && !endOfStream) {
+                        // A header longer than the buffer.
+                        buffer = Arrays.copyOf(buffer, grow(buffer.length));
+                        continue;
+                    }
+                    header = false;
+                    start = headerEnd < 0 ? length : headerEnd + 1;
+                }
+                final int end = endOfStream ? length : lastIndexOf(buffer, start, length, (byte) '\n') + 1;
+                if (end == 0 && !endOfStream) {
+                    // A single line longer than the buffer.
+                    buffer = Arrays.copyOf(buffer, grow(buffer.length));
+                    continue;
+                }
+                if (inFlight.size() == maxChunksInFlight) {
+                    examples += accept(inFlight.poll(), sink);
+                }
+                inFlight.add(executor.submit(new Chunk(buffer, start, end, sink)));
+
+                // The next chunk starts with the partial last line of this one.
+                final byte[] next = new byte[Math.max(chunkSize, length - end)];
+                System.arraycopy(buffer, end, next, 0, length - end);
+                length -= end;
+                buffer = next;
+            }
+            while (!inFlight.isEmpty()) {
+                examples += accept(inFlight.poll(), sink);
+            }
+            return examples;
+        } finally {
+            for (final Future<ConvertedChunk> pending : inFlight) {
+                pending.cancel(true);
+            }
+        }
+    }
+
+    private static long accept(final Future<ConvertedChunk> future, final ExampleSink sink) throws IOException, InterruptedException {
+        final ConvertedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (final ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+        if (chunk.examples > 0) {
+            sink.accept(ByteBuffer.wrap(chunk.bytes, 0, chunk.size));
+        }
+        return chunk.examples;
+    }
+
+    private static int indexOf(final byte[] bytes, final int from, final int to, final byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(final byte[] bytes, final int from, final int to, final byte b) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return from - 1;
+    }
+
+    private static int grow(final int size) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Line longer than " + Integer.MAX_VALUE + " bytes");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, 2L * size);
+    }
+
+    private static final class ConvertedChunk {
+        private final byte[] bytes;
+        private final int size;
+        private final long examples;
+
+        private ConvertedChunk(final byte[] bytes, final int size, final long examples) {
+            this.bytes = bytes;
+            this.size = size;
+            this.examples = examples;
+        }
+    }
+
+    private final class Chunk implements Callable<ConvertedChunk> {
+        private final byte[] bytes;
+        private final int start;
+        private final int end;
+        private final ExampleSink sink;
+
+        private Chunk(final byte[] bytes, final int start, final int end, final ExampleSink sink) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+            this.sink = sink;
+        }
+
+        @Override
+        public ConvertedChunk call() throws IOException {
+            // Examples are usually about as long as their rows.
+            final CsvSchema.Output out = new CsvSchema.Output(end - start + (end - start) / 4);
+            final int[] fields = schema.newFieldBounds();
+            long examples = 0;
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = indexOf(bytes, lineStart, end, (byte) '\n');
+                if (lineEnd < 0) {
+                    lineEnd = end;
+                }
+                if (schema.convert(bytes, lineStart, lineEnd, fields, out)) {
+                    examples++;
+                }
+                lineStart = lineEnd + 1;
+            }
+            if (sink instanceof EncodingSink && examples > 0) {
+                final byte[] encoded = ((EncodingSink) sink).encode(ByteBuffer.wrap(out.bytes, 0, out.size));
+                return new ConvertedChunk(encoded, encoded.length, examples);
+            }
+            return new ConvertedChunk(out.bytes, out.size, examples);
+        }
+    }
+}
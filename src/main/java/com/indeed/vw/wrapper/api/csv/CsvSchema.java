@@ -0,0 +1,474 @@
+package com.indeed.vw.wrapper.api.csv;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Doubles;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative mapping of the columns of a CSV or TSV file to the label, importance, tag and namespaces of vowpal
+ * wabbit examples. <p>
+ *
+ * <pre>
+ * CsvSchema schema = CsvSchema.builder()
+ *         .separator('\t')
+ *         .skipHeader()
+ *         .label(0)
+ *         .categorical(1, "user")                // |user 42
+ *         .categorical(2, "user", "gender")      // |user gender=F
+ *         .numerical(3, "user", "age")           // |user age:31
+ *         .text(4, "title")                      // |title senior java developer
+ *         .namespaceWeight("title", 0.1)
+ *         .build();
+ * </pre>
+ *
+ * Rows are converted byte by byte: fields are sliced out of the line without creating Strings, and values are copied
+ * as they are written in the file, so numbers keep their text representation.  Vowpal wabbit control characters
+ * (whitespace, ':' and '|') are replaced by '_' in categorical values and tags and by ' ' in texts. <p>
+ *
+ * Fields may be quoted with '"', with '""' standing for a quote, but can not contain line breaks.  Missing and empty
+ * fields are skipped, and so are namespaces without features. <p>
+ *
+ * Instances are immutable and can be shared by converting threads. <p>
+ */
+public class CsvSchema {
+    private final byte separator;
+    private final boolean skipHeader;
+    private final int labelColumn;
+    private final int importanceColumn;
+    private final int tagColumn;
+    private final Namespace[] namespaces;
+    private final int columnCount;
+
+    private CsvSchema(final Builder builder) {
+        separator = (byte) builder.separator;
+        skipHeader = builder.skipHeader;
+        labelColumn = builder.labelColumn;
+        importanceColumn = builder.importanceColumn;
+        tagColumn = builder.tagColumn;
+        namespaces = new Namespace[builder.namespaces.size()];
+        int maxColumn = Math.max(labelColumn, Math.max(importanceColumn, tagColumn));
+        int i = 0;
+        for (final NamespaceMapping mapping : builder.namespaces.values()) {
+            namespaces[i++] = new Namespace(mapping);
+            for (final Column column : mapping.columns) {
+                maxColumn = Math.max(maxColumn, column.index);
+            }
+        }
+        columnCount = maxColumn + 1;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return true if the first line of the input is a header
+     */
+    public boolean skipsHeader() {
+        return skipHeader;
+    }
+
+    /**
+     * Convert a single row. <p>
+     *
+     * @param row CSV row without line break
+     * @return vowpal wabbit example
+     */
+    public String convert(@Nonnull final String row) {
+        final byte[] bytes = row.getBytes(Charsets.UTF_8);
+        final Output out = new Output(bytes.length + 16);
+        convert(bytes, 0, bytes.length, new int[3 * columnCount], out);
+        return new String(out.bytes, 0, Math.max(0, out.size - 1), Charsets.UTF_8);
+    }
+
+    /**
+     * Bounds of a field: start, end and 1 when the field is quoted.
+     */
+    int[] newFieldBounds() {
+        return new int[3 * columnCount];
+    }
+
+    /**
+     * Append the example of the row in <code>line[start, end)</code> followed by '\n' to <code>out</code>.
+     * @return false if the line is blank and nothing was appended
+     */
+    boolean convert(final byte[] line, final int start, int end, final int[] fields, final Output out) {
+        if (end > start && line[end - 1] == '\r') {
+            end--;
+        }
+        if (isBlank(line, start, end)) {
+            return false;
+        }
+        split(line, start, end, fields);
+
+        final boolean hasLabel = !isEmpty(fields, labelColumn);
+        if (hasLabel) {
+            copy(line, fields, labelColumn, out, (byte) '_');
+        }
+        out.write((byte) ' ');
+        if (hasLabel && !isEmpty(fields, importanceColumn)) {
+            copy(line, fields, importanceColumn, out, (byte) '_');
+            out.write((byte) ' ');
+        }
+        if (!isEmpty(fields, tagColumn)) {
+            out.write((byte) '\'');
+            copy(line, fields, tagColumn, out, (byte) '_');
+        }
+        boolean first = true;
+        for (final Namespace namespace : namespaces) {
+            final int mark = out.size;
+            if (!first) {
+                out.write((byte) ' ');
+            }
+            out.write(namespace.header);
+            final int featuresStart = out.size;
+            for (final Column column : namespace.columns) {
+                if (isEmpty(fields, column.index)) {
+                    continue;
+                }
+                if (out.size > featuresStart) {
+                    out.write((byte) ' ');
+                }
+                out.write(column.prefix);
+                copy(line, fields, column.index, out, column.type == ColumnType.TEXT ? (byte) ' ' : (byte) '_');
+            }
+            if (out.size == featuresStart) {
+                out.size = mark;
+            } else {
+                first = false;
+            }
+        }
+        out.write((byte) '\n');
+        return true;
+    }
+
+    private void split(final byte[] line, final int start, final int end, final int[] fields) {
+        int position = start;
+        for (int column = 0; column < columnCount; column++) {
+            final int field = 3 * column;
+            if (position > end) {
+                // Missing field.
+                fields[field] = 0;
+                fields[field + 1] = 0;
+                fields[field + 2] = 0;
+                continue;
+            }
+            int fieldStart = position;
+            while (fieldStart < end && line[fieldStart] == ' ') {
+                fieldStart++;
+            }
+            if (fieldStart < end && line[fieldStart] == '"') {
+                int i = fieldStart + 1;
+                while (i < end) {
+                    if (line[i] == '"') {
+                        if (i + 1 < end && line[i + 1] == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fields[field] = fieldStart + 1;
+                fields[field + 1] = i;
+                fields[field + 2] = 1;
+                position = i;
+                while (position < end && line[position] != separator) {
+                    position++;
+                }
+            } else {
+                position = fieldStart;
+                while (position < end && line[position] != separator) {
+                    position++;
+                }
+                int fieldEnd = position;
+                while (fieldEnd > fieldStart && line[fieldEnd - 1] == ' ') {
+                    fieldEnd--;
+                }
+                fields[field] = fieldStart;
+                fields[field + 1] = fieldEnd;
+                fields[field + 2] = 0;
+            }
+            // Past the separator, or past the end of the line after the last field.
+            position++;
+        }
+    }
+
+    private static boolean isEmpty(final int[] fields, final int column) {
+        return column < 0 || fields[3 * column] == fields[3 * column + 1];
+    }
+
+    private static boolean isBlank(final byte[] line, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (line[i] != ' ' && line[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copy(final byte[] line, final int[] fields, final int column, final Output out,
+                             final byte replacement) {
+        final int field = 3 * column;
+        final int end = fields[field + 1];
+        final boolean quoted = fields[field + 2] != 0;
+        out.ensureCapacity(end - fields[field]);
+        final byte[] bytes = out.bytes;
+        int size = out.size;
+        for (int i = fields[field]; i < end; i++) {
+            final byte b = line[i];
+            switch (b) {
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                case ':':
+                case '|':
+                    bytes[size++] = replacement;
+                    break;
+                case '"':
+                    bytes[size++] = b;
+                    if (quoted) {
+                        // Second quote of "".
+                        i++;
+                    }
+                    break;
+                default:
+                    bytes[size++] = b;
+            }
+        }
+        out.size = size;
+    }
+
+    private enum ColumnType {
+        CATEGORICAL,
+        NUMERICAL,
+        TEXT
+    }
+
+    private static final class Column {
+        private final int index;
+        private final ColumnType type;
+        private final byte[] prefix;
+
+        private Column(final int index, final ColumnType type, final String prefix) {
+            this.index = index;
+            this.type = type;
+            this.prefix = prefix.getBytes(Charsets.UTF_8);
+        }
+    }
+
+    private static final class NamespaceMapping {
+        private final String name;
+        private Double weight;
+        private final List<Column> columns = new ArrayList<>();
+
+        private NamespaceMapping(final String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Namespace {
+        private final byte[] header;
+        private final Column[] columns;
+
+        private Namespace(final NamespaceMapping mapping) {
+            final StringBuilder sb = new StringBuilder("|").append(mapping.name);
+            if (mapping.weight != null) {
+                sb.append(':').append(mapping.weight);
+            }
+            header = sb.append(' ').toString().getBytes(Charsets.UTF_8);
+            columns = mapping.columns.toArray(new Column[mapping.columns.size()]);
+        }
+    }
+
+    /**
+     * Growable byte array the examples are written to.
+     */
+    static final class Output {
+        byte[] bytes;
+        int size;
+
+        Output(final int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void write(final byte b) {
+            ensureCapacity(1);
+            bytes[size++] = b;
+        }
+
+        void write(final byte[] b) {
+            ensureCapacity(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+        }
+
+        void ensureCapacity(final int length) {
+            if (bytes.length - size < length) {
+                final long capacity = Math.max(2L * bytes.length, (long) size + length);
+                Preconditions.checkArgument(capacity <= Integer.MAX_VALUE - 8, "Converted chunk is too large");
+                final byte[] grown = new byte[(int) capacity];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+    }
+
+    /**
+     * Builder of schemas, columns are numbered from 0. <p>
+     */
+    public static class Builder {
+        private char separator = ',';
+        private boolean skipHeader;
+        private int labelColumn = -1;
+        private int importanceColumn = -1;
+        private int tagColumn = -1;
+        private final Map<String, NamespaceMapping> namespaces = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param separator ASCII field separator, ',' by default
+         * @return builder
+         */
+        public Builder separator(final char separator) {
+            Preconditions.checkArgument(separator > 0 && separator < 128 && separator != '"' && separator != '\n'
+                    && separator != '\r', "Incorrect separator: " + separator);
+            this.separator = separator;
+            return this;
+        }
+
+        /**
+         * Skip the first line of the input. <p>
+         *
+         * @return builder
+         */
+        public Builder skipHeader() {
+            this.skipHeader = true;
+            return this;
+        }
+
+        /**
+         * @param column column of the label, examples with an empty label have no label
+         * @return builder
+         */
+        public Builder label(final int column) {
+            labelColumn = checkColumn(column);
+            return this;
+        }
+
+        /**
+         * @param column column of the example importance, only written for examples with a label
+         * @return builder
+         */
+        public Builder importance(final int column) {
+            importanceColumn = checkColumn(column);
+            return this;
+        }
+
+        /**
+         * @param column column of the example tag
+         * @return builder
+         */
+        public Builder tag(final int column) {
+            tagColumn = checkColumn(column);
+            return this;
+        }
+
+        /**
+         * Add the value of <code>column</code> as a feature of <code>namespace</code>, e.g. <code>|user 42</code>. <p>
+         *
+         * @param column column of the categorical value
+         * @param namespace namespace of the feature
+         * @return builder
+         */
+        public Builder categorical(final int column, @Nonnull final String namespace) {
+            return add(namespace, new Column(checkColumn(column), ColumnType.CATEGORICAL, ""));
+        }
+
+        /**
+         * Add the value of <code>column</code> as a feature of <code>namespace</code> prefixed with the sub namespace,
+         * e.g. <code>|user gender=F</code>. <p>
+         *
+         * @param column column of the categorical value
+         * @param namespace namespace of the feature
+         * @param subNamespace sub namespace of the feature
+         * @return builder
+         */
+        public Builder categorical(final int column, @Nonnull final String namespace, @Nonnull final String subNamespace) {
+            checkName(subNamespace);
+            return add(namespace, new Column(checkColumn(column), ColumnType.CATEGORICAL, subNamespace + "="));
+        }
+
+        /**
+         * Add the value of <code>column</code> as the value of the feature <code>featureName</code>,
+         * e.g. <code>|user age:31</code>. <p>
+         *
+         * @param column column of the numerical value
+         * @param namespace namespace of the feature
+         * @param featureName name of the feature
+         * @return builder
+         */
+        public Builder numerical(final int column, @Nonnull final String namespace, @Nonnull final String featureName) {
+            checkName(featureName);
+            return add(namespace, new Column(checkColumn(column), ColumnType.NUMERICAL, featureName + ":"));
+        }
+
+        /**
+         * Add every word of the text in <code>column</code> as a feature of <code>namespace</code>. <p>
+         *
+         * @param column column of the text
+         * @param namespace namespace of the words
+         * @return builder
+         */
+        public Builder text(final int column, @Nonnull final String namespace) {
+            return add(namespace, new Column(checkColumn(column), ColumnType.TEXT, ""));
+        }
+
+        /**
+         * @param namespace namespace with at least one column
+         * @param weight namespace weight, see {@link com.indeed.vw.wrapper.api.example.ExampleBuilder.NamespaceBuilder#namespaceWeight(double)}
+         * @return builder
+         */
+        public Builder namespaceWeight(@Nonnull final String namespace, final double weight) {
+            Preconditions.checkArgument(Doubles.isFinite(weight), "Incorrect namespace weight: " + weight);
+            final NamespaceMapping mapping = namespaces.get(namespace);
+            Preconditions.checkArgument(mapping != null, "Unknown namespace: " + namespace);
+            mapping.weight = weight;
+            return this;
+        }
+
+        public CsvSchema build() {
+            Preconditions.checkState(!namespaces.isEmpty(), "No feature column");
+            return new CsvSchema(this);
+        }
+
+        private Builder add(final String namespace, final Column column) {
+            NamespaceMapping mapping = namespaces.get(namespace);
+            if (mapping == null) {
+                checkName(namespace);
+                mapping = new NamespaceMapping(namespace);
+                namespaces.put(namespace, mapping);
+            }
+            mapping.columns.add(column);
+            return this;
+        }
+
+        private static int checkColumn(final int column) {
+            Preconditions.checkArgument(column >= 0, "Incorrect column: " + column);
+            return column;
+        }
+
+        private static void checkName(final String name) {
+            Preconditions.checkArgument(!name.matches(".*[\\s:|].*"), "Bad name! " + name);
+        }
+    }
+}
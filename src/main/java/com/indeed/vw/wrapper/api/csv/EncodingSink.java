@@ -0,0 +1,18 @@
+package com.indeed.vw.wrapper.api.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sink whose examples are encoded by the conversion tasks of {@link CsvConverter}, in parallel, and then passed to
+ * {@link #accept(ByteBuffer)} in input order as encoded bytes instead of text. <p>
+ */
+interface EncodingSink extends ExampleSink {
+    /**
+     * Called by any thread of the converter's executor, concurrently.
+     * @param lines UTF-8 examples, each followed by <code>'\n'</code>
+     * @return encoded examples
+     * @throws IOException if the examples can not be encoded
+     */
+    byte[] encode(ByteBuffer lines) throws IOException;
+}
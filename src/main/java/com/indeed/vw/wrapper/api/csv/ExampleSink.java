@@ -0,0 +1,16 @@
+package com.indeed.vw.wrapper.api.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the converted examples, chunk by chunk and in input order, see {@link ExampleSinks}. <p>
+ */
+public interface ExampleSink {
+    /**
+     * @param lines UTF-8 examples, each followed by <code>'\n'</code>, in a buffer backed by an array which is not
+     *              used after this call returns
+     * @throws IOException if the examples can not be written
+     */
+    void accept(ByteBuffer lines) throws IOException;
+}
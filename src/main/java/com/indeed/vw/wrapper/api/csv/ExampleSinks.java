@@ -0,0 +1,121 @@
+package com.indeed.vw.wrapper.api.csv;
+
+import com.google.common.base.Charsets;
+import com.indeed.vw.wrapper.api.example.VWCacheWriter;
+import com.indeed.vw.wrapper.api.example.VWHasher;
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Factory methods of {@link ExampleSink}. <p>
+ */
+public final class ExampleSinks {
+    private ExampleSinks() {
+    }
+
+    /**
+     * Write the examples in vw text format, e.g. to a <code>.vw</code> file. <p>
+     *
+     * @param out output stream, it is not closed
+     * @return sink
+     */
+    public static ExampleSink toStream(@Nonnull final OutputStream out) {
+        return new ExampleSink() {
+            @Override
+            public void accept(final ByteBuffer lines) throws IOException {
+                out.write(lines.array(), lines.arrayOffset() + lines.position(), lines.remaining());
+            }
+        };
+    }
+
+    /**
+     * Learn the examples, every chunk is parsed by a single native call, see {@link VWLearner#learnNoResult(ByteBuffer)}. <p>
+     *
+     * @param learner learner
+     * @return sink
+     */
+    public static ExampleSink toLearner(@Nonnull final VWLearner learner) {
+        return new ExampleSink() {
+            @Override
+            public void accept(final ByteBuffer lines) {
+                learner.learnNoResult(lines);
+            }
+        };
+    }
+
+    /**
+     * Write the examples to a vowpal wabbit cache file. <p>
+     *
+     * The examples are parsed and hashed by the single thread passing them to the sink in order, which is the
+     * bottleneck of a parallel conversion.  Prefer {@link #toCache(OutputStream, int, VWHasher, String)}, or shards
+     * written by {@link VWCacheWriter#shard(OutputStream, int, VWHasher)} and concatenated. <p>
+     *
+     * @param writer cache writer, it is not closed
+     * @return sink
+     */
+    public static ExampleSink toCacheWriter(@Nonnull final VWCacheWriter writer) {
+        return new ExampleSink() {
+            @Override
+            public void accept(final ByteBuffer lines) throws IOException {
+                write(lines, writer);
+            }
+        };
+    }
+
+    /**
+     * Write the examples to a vowpal wabbit cache file, see {@link VWCacheWriter}. <p>
+     *
+     * The header is written right away.  Used with {@link CsvConverter}, the examples are parsed and hashed by the conversion tasks in parallel, and the
+     * calling thread only copies the encoded examples to <code>out</code> in input order. <p>
+     *
+     * @param out cache file, it is not closed
+     * @param bitPrecision number of bits of the model (-b)
+     * @param hasher hasher configured like the model (--hash, --hash_seed)
+     * @param vwVersion version of vowpal wabbit reading the cache
+     * @return sink
+     * @throws IOException if the header can not be written
+     */
+    public static ExampleSink toCache(@Nonnull final OutputStream out, final int bitPrecision,
+                                      @Nonnull final VWHasher hasher, @Nonnull final String vwVersion)
+            throws IOException {
+        // A cache without shards is its header.
+        VWCacheWriter.concatenate(out, bitPrecision, vwVersion, Collections.<Path>emptyList());
+        return new EncodingSink() {
+            @Override
+            public byte[] encode(final ByteBuffer lines) throws IOException {
+                final ByteArrayOutputStream encoded = new ByteArrayOutputStream(lines.remaining());
+                try (final VWCacheWriter shard = VWCacheWriter.shard(encoded, bitPrecision, hasher)) {
+                    write(lines, shard);
+                }
+                return encoded.toByteArray();
+            }
+
+            @Override
+            public void accept(final ByteBuffer examples) throws IOException {
+                out.write(examples.array(), examples.arrayOffset() + examples.position(), examples.remaining());
+            }
+        };
+    }
+
+    private static void write(final ByteBuffer lines, final VWCacheWriter writer) throws IOException {
+        final byte[] bytes = lines.array();
+        final int end = lines.arrayOffset() + lines.limit();
+        int start = lines.arrayOffset() + lines.position();
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == '\n') {
+                writer.write(new String(bytes, start, i - start, Charsets.UTF_8));
+                start = i + 1;
+            }
+        }
+        if (start < end) {
+            writer.write(new String(bytes, start, end - start, Charsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Conversion of CSV and TSV files to vowpal wabbit examples. <p>
+ */
+package com.indeed.vw.wrapper.api.csv;
@@ -0,0 +1,274 @@
+package com.indeed.vw.wrapper.api.example;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.indeed.vw.wrapper.learner.ActionSource;
+import com.indeed.vw.wrapper.learner.SharedContext;
+import com.google.common.primitives.Doubles;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builder for multiline examples with action dependent features (cb_adf, cb_explore_adf, csoaa_ldf, wap_ldf). <p>
+ *
+ * The shared line is rendered once and kept between requests, action lines are taken from
+ * pre-rendered {@link ActionFragments} and only the label is prepended when one is needed. <p>
+ *
+ * Typical usage:
+ * <pre>
+ * {@code
+ *     final AdfExampleBuilder.ActionFragments jobs = new AdfExampleBuilder.ActionFragments();
+ *     jobs.put(17, "|job title=engineer location=austin");
+ *     final AdfExampleBuilder builder = AdfExampleBuilder.create(jobs).shared("|user id=42");
+ *     learner.predict(builder.addAction(17).build());
+ * }
+ * </pre>
+ *
+ * Check <a href="https://github.com/JohnLangford/vowpal_wabbit/wiki/Contextual-Bandit-algorithms">https://github.com/JohnLangford/vowpal_wabbit/wiki/Contextual-Bandit-algorithms</a> for format documentation. <p>
+ *
+ * This class is not thread safe, {@link ActionFragments} is. <p>
+ */
+public class AdfExampleBuilder {
+    private static final String SHARED_LABEL = "shared";
+
+    private final ActionFragments actionFragments;
+
+    @Nullable
+    private String sharedLine;
+
+    private final List<String> actionLines = new ArrayList<>();
+
+    private final StringBuilder lineBuilder = new StringBuilder();
+
+    private AdfExampleBuilder(@Nonnull final ActionFragments actionFragments) {
+        this.actionFragments = actionFragments;
+    }
+
+    /**
+     * Create method with its own action fragments cache <p>
+     *
+     * @return adf example builder
+     */
+    public static AdfExampleBuilder create() {
+        return new AdfExampleBuilder(new ActionFragments());
+    }
+
+    /**
+     * Create method that reuses action fragments cache. <p>
+     * The same cache can be shared by builders of different threads. <p>
+     *
+     * @param actionFragments pre-rendered action fragments
+     * @return adf example builder
+     */
+    public static AdfExampleBuilder create(@Nonnull final ActionFragments actionFragments) {
+        return new AdfExampleBuilder(actionFragments);
+    }
+
+    /**
+     * Cache of pre-rendered action lines without labels, keyed by action id. <p>
+     * It can also feed the native action cache of a learner, see
+     * {@link com.indeed.vw.wrapper.learner.VWTypedLearner#predict(SharedContext, long[], ActionSource)}. <p>
+     */
+    public static class ActionFragments implements ActionSource {
+        private final ConcurrentMap<Long, String> fragments = new ConcurrentHashMap<>();
+
+        /**
+         * Render and remember features of the action. Label of the example must be omitted. <p>
+         *
+         * @param actionId action id
+         * @param features action features
+         * @return action fragments
+         */
+        public ActionFragments put(final long actionId, @Nonnull final ExampleBuilder features) {
+            Preconditions.checkArgument(!features.hasLabel(),
+                    "Action features should not have a label. Action id: " + actionId);
+            fragments.put(actionId, toFragment(features.toString()));
+            return this;
+        }
+
+        /**
+         * Remember features of the action in vowpal wabbit format (e.g. "|job title=engineer"). <p>
+         *
+         * @param actionId action id
+         * @param features action features
+         * @return action fragments
+         */
+        public ActionFragments put(final long actionId, @Nonnull final String features) {
+            fragments.put(actionId, toFragment(features));
+            return this;
+        }
+
+        public boolean contains(final long actionId) {
+            return fragments.containsKey(actionId);
+        }
+
+        /**
+         * Forget features of the action, e.g. when the action was changed. <p>
+         *
+         * @param actionId action id
+         */
+        public void invalidate(final long actionId) {
+            fragments.remove(actionId);
+        }
+
+        public void invalidateAll() {
+            fragments.clear();
+        }
+
+        public int size() {
+            return fragments.size();
+        }
+
+        @Override
+        public String getActionExample(final long actionId) {
+            return get(actionId);
+        }
+
+        private String get(final long actionId) {
+            final String fragment = fragments.get(actionId);
+            Preconditions.checkArgument(fragment != null, "Unknown action id: " + actionId);
+            return fragment;
+        }
+    }
+
+    /**
+     * Set features shared by all actions (e.g. user context). Label of the example must be omitted. <p>
+     *
+     * @param sharedFeatures shared features
+     * @return builder
+     */
+    public AdfExampleBuilder shared(@Nonnull final ExampleBuilder sharedFeatures) {
+        Preconditions.checkArgument(!sharedFeatures.hasLabel(), "Shared features should not have a label.");
+        sharedLine = SHARED_LABEL + sharedFeatures.toString();
+        return this;
+    }
+
+    /**
+     * Set features shared by all actions in vowpal wabbit format (e.g. "|user id=42"). <p>
+     *
+     * @param sharedFeatures shared features
+     * @return builder
+     */
+    public AdfExampleBuilder shared(@Nonnull final String sharedFeatures) {
+        sharedLine = SHARED_LABEL + toFragment(sharedFeatures);
+        return this;
+    }
+
+    /**
+     * Build examples without shared line <p>
+     *
+     * @return builder
+     */
+    public AdfExampleBuilder clearShared() {
+        sharedLine = null;
+        return this;
+    }
+
+    /**
+     * Add an action without label, e.g. for prediction. <p>
+     *
+     * @param actionId id of action in {@link ActionFragments}
+     * @return builder
+     */
+    public AdfExampleBuilder addAction(final long actionId) {
+        actionLines.add(actionFragments.get(actionId));
+        return this;
+    }
+
+    /**
+     * Add an action with contextual bandit label "action:cost:probability". <p>
+     *
+     * @param actionId id of action in {@link ActionFragments}
+     * @param action action number reported in the label
+     * @param cost observed cost of the action
+     * @param probability probability with which the action was chosen
+     * @return builder
+     */
+    public AdfExampleBuilder addCbAction(final long actionId, final int action, final double cost, final double probability) {
+        Preconditions.checkArgument(Doubles.isFinite(cost), "Incorrect cost: " + cost);
+        Preconditions.checkArgument(probability > 0 && probability <= 1, "Incorrect probability: " + probability);
+        lineBuilder.setLength(0);
+        lineBuilder.append(action).append(':').append(cost).append(':').append(probability);
+        return addLine(actionId);
+    }
+
+    /**
+     * Add an action with cost sensitive label "label:cost", used by csoaa_ldf and wap_ldf. <p>
+     *
+     * @param actionId id of action in {@link ActionFragments}
+     * @param label label of the action
+     * @param cost cost of the action
+     * @return builder
+     */
+    public AdfExampleBuilder addCostSensitiveAction(final long actionId, final int label, final double cost) {
+        Preconditions.checkArgument(Doubles.isFinite(cost), "Incorrect cost: " + cost);
+        lineBuilder.setLength(0);
+        lineBuilder.append(label).append(':').append(cost);
+        return addLine(actionId);
+    }
+
+    /**
+     * Add an action with arbitrary label. <p>
+     *
+     * @param actionId id of action in {@link ActionFragments}
+     * @param label label in vowpal wabbit format
+     * @return builder
+     */
+    public AdfExampleBuilder addLabeledAction(final long actionId, @Nonnull final String label) {
+        lineBuilder.setLength(0);
+        lineBuilder.append(label);
+        return addLine(actionId);
+    }
+
+    /**
+     * Remove all actions but keep shared features, so builder can be reused for the next request. <p>
+     *
+     * @return builder
+     */
+    public AdfExampleBuilder clearActions() {
+        actionLines.clear();
+        return this;
+    }
+
+    public int getActionsCount() {
+        return actionLines.size();
+    }
+
+    /**
+     * Build multiline vowpal wabbit example: shared line (if any) followed by action lines. <p>
+     *
+     * @return multiline vowpal wabbit example
+     */
+    public String[] build() {
+        final int offset = sharedLine == null ? 0 : 1;
+        final String[] lines = new String[offset + actionLines.size()];
+        if (sharedLine != null) {
+            lines[0] = sharedLine;
+        }
+        for (int i = 0; i < actionLines.size(); i++) {
+            lines[offset + i] = actionLines.get(i);
+        }
+        return lines;
+    }
+
+    private AdfExampleBuilder addLine(final long actionId) {
+        final String fragment = actionFragments.get(actionId);
+        actionLines.add(lineBuilder.append(fragment).toString());
+        return this;
+    }
+
+    /**
+     * Fragment is a line without label, it always starts with a whitespace so a label can be prepended.
+     */
+    private static String toFragment(final String features) {
+        final String trimmed = CharMatcher.WHITESPACE.trimLeadingFrom(features);
+        Preconditions.checkArgument(!trimmed.isEmpty() && trimmed.charAt(0) == '|',
+                "Features should start with a namespace: " + features);
+        return " " + trimmed;
+    }
+}
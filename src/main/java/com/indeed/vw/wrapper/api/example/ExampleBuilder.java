@@ -207,6 +207,10 @@ public class ExampleBuilder {
         return tag;
     }
 
+    boolean hasLabel() {
+        return label != null;
+    }
+
     /**
      * If the label is omitted, then no training will be performed with the corresponding example, <p>
      * although VW will still compute a prediction. <p>
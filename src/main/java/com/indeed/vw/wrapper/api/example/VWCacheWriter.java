@@ -0,0 +1,372 @@
+package com.indeed.vw.wrapper.api.example;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.indeed.vw.wrapper.api.VowpalWabbit;
+import com.indeed.vw.wrapper.learner.VWLearners;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes examples in the binary cache format of vowpal wabbit, so that multi-pass training can start from a cache
+ * instead of writing it during a slow first pass over text (see --cache_file). <p>
+ *
+ * Only examples with simple labels (regression and binary classification) are supported. <p>
+ *
+ * Features are hashed by {@link VWHasher} and masked with the number of bits of the model, like the text parser of
+ * vowpal wabbit does.  The cache has to be read by a learner with the same number of bits, hash function and seed. <p>
+ *
+ * Large caches can be written in parallel: every thread writes a shard without header with
+ * {@link #shard(OutputStream, int, VWHasher)}, then {@link #concatenate(OutputStream, int, String, List)} writes the
+ * header followed by the shards. <p>
+ *
+ * This class is not thread safe. <p>
+ */
+public class VWCacheWriter implements Closeable {
+    // Flags of the run length encoded feature indexes.
+    private static final int NEG_1 = 1;
+    private static final int GENERAL = 2;
+    private static final float NO_LABEL = Float.MAX_VALUE;
+
+    private final OutputStream out;
+    private final long mask;
+    private final VWHasher hasher;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 12).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Cache file for a model with the default hash function and seed, read by the vowpal wabbit library of this
+     * wrapper (see {@link VWLearners#getVersion()}), which loads the native library. <p>
+     *
+     * @param out cache file, it is closed with this writer
+     * @param bitPrecision number of bits of the model (-b)
+     * @throws IOException if the header can not be written
+     */
+    public VWCacheWriter(@Nonnull final OutputStream out, final int bitPrecision) throws IOException {
+        this(out, bitPrecision, VWHasher.create(VowpalWabbit.Hash.strings), VWLearners.getVersion());
+    }
+
+    /**
+     * Cache file for a model hashing features with <code>hasher</code>. <p>
+     *
+     * @param out cache file, it is closed with this writer
+     * @param bitPrecision number of bits of the model (-b)
+     * @param hasher hasher configured like the model (--hash, --hash_seed)
+     * @param vwVersion version of vowpal wabbit reading the cache, it rejects caches of other versions
+     * @throws IOException if the header can not be written
+     */
+    public VWCacheWriter(@Nonnull final OutputStream out, final int bitPrecision, @Nonnull final VWHasher hasher,
+                         @Nonnull final String vwVersion) throws IOException {
+        this(out, bitPrecision, hasher);
+        writeHeader(this.out, bitPrecision, vwVersion);
+    }
+
+    private VWCacheWriter(final OutputStream out, final int bitPrecision, final VWHasher hasher) {
+        Preconditions.checkArgument(bitPrecision > 0 && bitPrecision <= 32, "Incorrect bit precision: " + bitPrecision);
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.mask = (1L << bitPrecision) - 1;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Writer of a part of a cache file, without header. <p>
+     *
+     * @param out shard file, it is closed with this writer
+     * @param bitPrecision number of bits of the model (-b)
+     * @param hasher hasher configured like the model (--hash, --hash_seed)
+     * @return writer
+     */
+    public static VWCacheWriter shard(@Nonnull final OutputStream out, final int bitPrecision, @Nonnull final VWHasher hasher) {
+        return new VWCacheWriter(out, bitPrecision, hasher);
+    }
+
+    /**
+     * Write a cache file made of the header followed by shards written by {@link #shard(OutputStream, int, VWHasher)}. <p>
+     *
+     * @param out cache file, it is not closed
+     * @param bitPrecision number of bits of the model (-b)
+     * @param vwVersion version of vowpal wabbit reading the cache
+     * @param shards shard files in the order of their examples
+     * @throws IOException if a shard can not be read or the cache can not be written
+     */
+    public static void concatenate(@Nonnull final OutputStream out, final int bitPrecision, @Nonnull final String vwVersion,
+                                   @Nonnull final List<Path> shards) throws IOException {
+        writeHeader(out, bitPrecision, vwVersion);
+        for (final Path shard : shards) {
+            Files.copy(shard, out);
+        }
+        out.flush();
+    }
+
+    private static void writeHeader(final OutputStream out, final int bitPrecision, final String vwVersion) throws IOException {
+        final byte[] version = vwVersion.getBytes(Charsets.UTF_8);
+        final ByteBuffer header = ByteBuffer.allocate(8 + version.length + 1 + 1 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        // Length of the version including its terminating '\0'.
+        header.putLong(version.length + 1);
+        header.put(version);
+        header.put((byte) 0);
+        header.put((byte) 'c');
+        header.putInt(bitPrecision);
+        out.write(header.array(), 0, header.position());
+    }
+
+    /**
+     * Write an example built by {@link ExampleBuilder}. <p>
+     *
+     * @param example example with a simple label
+     * @throws IOException if the example can not be written
+     */
+    public void write(@Nonnull final ExampleBuilder example) throws IOException {
+        write(example.toString());
+    }
+
+    /**
+     * Write an example in vowpal wabbit text format, e.g. <code>1 2.5 'tag|user id=42 age:31 |job title</code>. <p>
+     *
+     * @param example example with a simple label
+     * @throws IOException if the example can not be written
+     */
+    public void write(@Nonnull final String example) throws IOException {
+        write(parse(example));
+    }
+
+    /**
+     * Write an example whose features are already hashed. <p>
+     *
+     * @param example hashed example
+     * @throws IOException if the example can not be written
+     */
+    public void write(@Nonnull final HashedExample example) throws IOException {
+        buffer.clear();
+        reserve(12 + 8 + example.tag.length + 1);
+        buffer.putFloat(example.label);
+        buffer.putFloat(example.weight);
+        buffer.putFloat(example.initial);
+        buffer.putLong(example.tag.length);
+        buffer.put(example.tag);
+        // Like the parser of vowpal wabbit, namespaces without features are not part of the example.
+        int namespaces = 0;
+        for (final HashedNamespace namespace : example.namespaces) {
+            if (namespace.size > 0) {
+                namespaces++;
+            }
+        }
+        buffer.put((byte) namespaces);
+        for (final HashedNamespace namespace : example.namespaces) {
+            if (namespace.size > 0) {
+                writeNamespace(namespace);
+            }
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    private void writeNamespace(final HashedNamespace namespace) {
+        // Index, storage size, then at most 10 bytes of varint and 4 bytes of value per feature.
+        reserve(1 + 8 + 14 * namespace.size);
+        buffer.put(namespace.index);
+        final int storageSizePosition = buffer.position();
+        buffer.putLong(0);
+        long last = 0;
+        for (int i = 0; i < namespace.size; i++) {
+            final long index = namespace.indexes[i] & mask;
+            final float value = namespace.values[i];
+            final long delta = index - last;
+            final long zigZag = ((delta << 1) ^ (delta >> 63)) << 2;
+            last = index;
+            if (value == 1) {
+                putVarint(zigZag);
+            } else if (value == -1) {
+                putVarint(zigZag | NEG_1);
+            } else {
+                putVarint(zigZag | GENERAL);
+                buffer.putFloat(value);
+            }
+        }
+        buffer.putLong(storageSizePosition, buffer.position() - storageSizePosition - 8);
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~127L) != 0) {
+            buffer.put((byte) ((value & 127) | 128));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void reserve(final int bytes) {
+        if (buffer.remaining() < bytes) {
+            final ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    /**
+     * Hash an example in vowpal wabbit text format. <p>
+     */
+    HashedExample parse(final String example) {
+        final HashedExample hashed = new HashedExample();
+        final int bar = example.indexOf('|');
+        final String labelSection = bar < 0 ? example : example.substring(0, bar);
+        final List<String> tokens = new ArrayList<>(Arrays.asList(labelSection.trim().split("\\s+")));
+        tokens.remove("");
+        if (!tokens.isEmpty()) {
+            final String last = tokens.get(tokens.size() - 1);
+            // The tag starts with ' or touches the first namespace.
+            if (last.startsWith("'") || (bar > 0 && !Character.isWhitespace(example.charAt(bar - 1)))) {
+                hashed.tag(last.startsWith("'") ? last.substring(1) : last);
+                tokens.remove(tokens.size() - 1);
+            }
+        }
+        Preconditions.checkArgument(tokens.size() <= 3, "Only simple labels are supported: " + example);
+        if (tokens.size() > 0) {
+            hashed.label(Float.parseFloat(tokens.get(0)));
+        }
+        if (tokens.size() > 1) {
+            hashed.importance(Float.parseFloat(tokens.get(1)));
+        }
+        if (tokens.size() > 2) {
+            hashed.initial(Float.parseFloat(tokens.get(2)));
+        }
+        if (bar < 0) {
+            return hashed;
+        }
+        for (final String section : example.substring(bar + 1).split("\\|", -1)) {
+            parseNamespace(hashed, section);
+        }
+        return hashed;
+    }
+
+    private void parseNamespace(final HashedExample hashed, final String section) {
+        final String[] words = section.split("\\s+");
+        String name = "";
+        float weight = 1;
+        int first = 0;
+        if (!section.isEmpty() && !Character.isWhitespace(section.charAt(0))) {
+            final String[] nameAndWeight = words[0].split(":", 2);
+            name = nameAndWeight[0];
+            if (nameAndWeight.length > 1) {
+                weight = Float.parseFloat(nameAndWeight[1]);
+            }
+            first = 1;
+        }
+        final long namespaceHash = hasher.hashNamespace(name);
+        final HashedNamespace namespace = hashed.namespace(name.isEmpty() ? ' ' : name.charAt(0));
+        for (int i = first; i < words.length; i++) {
+            final String word = words[i];
+            if (word.isEmpty()) {
+                continue;
+            }
+            final int colon = word.indexOf(':');
+            final String feature = colon < 0 ? word : word.substring(0, colon);
+            final float value = colon < 0 ? weight : weight * Float.parseFloat(word.substring(colon + 1));
+            // vowpal wabbit drops features whose value is 0.
+            if (value != 0) {
+                namespace.feature(hasher.hashFeature(namespaceHash, feature), value);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Example with a simple label whose features are already hashed, see {@link VWHasher}. <p>
+     */
+    public static class HashedExample {
+        private float label = NO_LABEL;
+        private float weight = 1;
+        private float initial = 0;
+        private byte[] tag = new byte[0];
+        private final List<HashedNamespace> namespaces = new ArrayList<>();
+
+        public HashedExample label(final float label) {
+            this.label = label;
+            return this;
+        }
+
+        public HashedExample importance(final float weight) {
+            this.weight = weight;
+            return this;
+        }
+
+        /**
+         * @param initial initial prediction, the base of the label section
+         * @return example
+         */
+        public HashedExample initial(final float initial) {
+            this.initial = initial;
+            return this;
+        }
+
+        public HashedExample tag(@Nullable final String tag) {
+            this.tag = tag == null ? new byte[0] : tag.getBytes(Charsets.UTF_8);
+            return this;
+        }
+
+        /**
+         * Namespace identified by the first character of its name like in vowpal wabbit, ' ' for the default one. <p>
+         * Namespaces with the same first character are the same namespace. <p>
+         *
+         * @param index first character of the namespace name
+         * @return namespace to which features can be added
+         */
+        public HashedNamespace namespace(final char index) {
+            Preconditions.checkArgument(index < 256, "Namespace index must be a single byte: " + index);
+            for (final HashedNamespace namespace : namespaces) {
+                if (namespace.index == (byte) index) {
+                    return namespace;
+                }
+            }
+            Preconditions.checkState(namespaces.size() < 256, "Too many namespaces");
+            final HashedNamespace namespace = new HashedNamespace((byte) index);
+            namespaces.add(namespace);
+            return namespace;
+        }
+    }
+
+    /**
+     * Hashed features of a namespace. <p>
+     */
+    public static class HashedNamespace {
+        private final byte index;
+        private long[] indexes = new long[8];
+        private float[] values = new float[8];
+        private int size;
+
+        private HashedNamespace(final byte index) {
+            this.index = index;
+        }
+
+        /**
+         * @param hash feature hash, it is masked with the number of bits when written
+         * @param value feature value
+         * @return namespace
+         */
+        public HashedNamespace feature(final long hash, final float value) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            indexes[size] = hash;
+            values[size] = value;
+            size++;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.indeed.vw.wrapper.api.example;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.indeed.vw.wrapper.api.VowpalWabbit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Java implementation of vowpal wabbit feature hashing (hashstring/hashall and namespace seeding). <p>
+ *
+ * Hashes are computed the same way vowpal wabbit computes them for examples passed through this wrapper,
+ * so features can be hashed outside of the learner, e.g. on ingestion machines. <p>
+ *
+ * Notice that strings are hashed in the modified UTF-8 encoding used by JNI.
+ * It differs from standard UTF-8 only for '\0' and characters outside of the basic multilingual plane. <p>
+ *
+ * This class is thread safe. <p>
+ */
+public final class VWHasher {
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[64];
+        }
+    };
+
+    private final VowpalWabbit.Hash hash;
+    private final int hashSeed;
+    private final long defaultNamespaceHash;
+    private final ConcurrentMap<String, Long> namespaceHashes = new ConcurrentHashMap<>();
+
+    @Nullable
+    private final Cache<FeatureKey, Long> featureHashes;
+
+    private VWHasher(final VowpalWabbit.Hash hash, final int hashSeed, @Nullable final Cache<FeatureKey, Long> featureHashes) {
+        this.hash = hash;
+        this.hashSeed = hashSeed;
+        this.featureHashes = featureHashes;
+        defaultNamespaceHash = hashSeed == 0 ? 0 : murmurHash3(new byte[0], 0, 0, hashSeed);
+    }
+
+    /**
+     * Create hasher for vowpal wabbit started with --hash &lt;hash&gt; option <p>
+     *
+     * @param hash hash strategy, vowpal wabbit default is strings
+     * @return hasher
+     */
+    public static VWHasher create(@Nonnull final VowpalWabbit.Hash hash) {
+        return create(hash, 0);
+    }
+
+    /**
+     * Create hasher for vowpal wabbit started with --hash &lt;hash&gt; --hash_seed &lt;hashSeed&gt; options <p>
+     *
+     * @param hash hash strategy, vowpal wabbit default is strings
+     * @param hashSeed seed for hashing, vowpal wabbit default is 0
+     * @return hasher
+     */
+    public static VWHasher create(@Nonnull final VowpalWabbit.Hash hash, final int hashSeed) {
+        return new VWHasher(hash, hashSeed, null);
+    }
+
+    /**
+     * Create the same hasher which additionally keeps hashes of the most recently used features. <p>
+     * It is useful for categorical features with few very frequent values. <p>
+     *
+     * @param maxSize maximum number of feature hashes to keep
+     * @return hasher
+     */
+    public VWHasher withFeatureCache(final int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "Cache size must be positive: " + maxSize);
+        return new VWHasher(hash, hashSeed, CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .<FeatureKey, Long>build());
+    }
+
+    /**
+     * Hash of the namespace, it is used as a seed to hash features of this namespace. <p>
+     *
+     * @param namespace namespace name without namespace weight, empty string for default namespace
+     * @return namespace hash
+     */
+    public long hashNamespace(@Nonnull final String namespace) {
+        if (namespace.isEmpty()) {
+            return defaultNamespaceHash;
+        }
+        Long namespaceHash = namespaceHashes.get(namespace);
+        if (namespaceHash == null) {
+            namespaceHash = hash(namespace, hashSeed);
+            namespaceHashes.put(namespace, namespaceHash);
+        }
+        return namespaceHash;
+    }
+
+    /**
+     * Hash of the feature before it is masked with number of bits of vowpal wabbit model. <p>
+     *
+     * @param namespace namespace name without namespace weight, empty string for default namespace
+     * @param feature feature name, e.g. "gender=Female" or "word"
+     * @return feature hash
+     */
+    public long hashFeature(@Nonnull final String namespace, @Nonnull final String feature) {
+        return hashFeature(hashNamespace(namespace), feature);
+    }
+
+    /**
+     * Hash of the feature before it is masked with number of bits of vowpal wabbit model. <p>
+     *
+     * @param namespaceHash hash of the namespace returned by {@link #hashNamespace(String)}
+     * @param feature feature name, e.g. "gender=Female" or "word"
+     * @return feature hash
+     */
+    public long hashFeature(final long namespaceHash, @Nonnull final String feature) {
+        if (featureHashes == null) {
+            return hash(feature, (int) namespaceHash);
+        }
+        final FeatureKey key = new FeatureKey(namespaceHash, feature);
+        Long featureHash = featureHashes.getIfPresent(key);
+        if (featureHash == null) {
+            featureHash = hash(feature, (int) namespaceHash);
+            featureHashes.put(key, featureHash);
+        }
+        return featureHash;
+    }
+
+    /**
+     * Index of the feature in model with 2^bitPrecision weights. <p>
+     *
+     * @param featureHash feature hash
+     * @param bitPrecision number of bits in the feature table
+     * @return masked feature hash
+     */
+    public static long mask(final long featureHash, final int bitPrecision) {
+        return featureHash & ((1L << bitPrecision) - 1);
+    }
+
+    private long hash(final String value, final int seed) {
+        switch (hash) {
+            case all:
+                return hashAll(value, seed);
+            case strings:
+            default:
+                return hashString(value, seed);
+        }
+    }
+
+    /**
+     * vowpal wabbit hashstring function: whitespace is trimmed and integers are hashed to their value plus seed. <p>
+     *
+     * @param value string to hash
+     * @param seed seed
+     * @return hash
+     */
+    public static long hashString(@Nonnull final String value, final int seed) {
+        int begin = 0;
+        int end = value.length();
+        while (begin < end && value.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        long result = 0;
+        for (int i = begin; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return hashAll(value, begin, end, seed);
+            }
+            result = 10 * result + (c - '0');
+        }
+        return result + (seed & 0xffffffffL);
+    }
+
+    /**
+     * vowpal wabbit hashall function: murmur hash of the string bytes. <p>
+     *
+     * @param value string to hash
+     * @param seed seed
+     * @return hash
+     */
+    public static long hashAll(@Nonnull final String value, final int seed) {
+        return hashAll(value, 0, value.length(), seed);
+    }
+
+    private static long hashAll(final String value, final int begin, final int end, final int seed) {
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < 3 * (end - begin)) {
+            buffer = new byte[3 * (end - begin)];
+            BUFFER.set(buffer);
+        }
+        final int length = encodeModifiedUtf8(value, begin, end, buffer);
+        return murmurHash3(buffer, 0, length, seed) & 0xffffffffL;
+    }
+
+    private static int encodeModifiedUtf8(final String value, final int begin, final int end, final byte[] buffer) {
+        int length = 0;
+        for (int i = begin; i < end; i++) {
+            final char c = value.charAt(i);
+            if (c > 0 && c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xc0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                buffer[length++] = (byte) (0xe0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 32 bit x86 murmur hash 3, the uniform_hash function of vowpal wabbit. <p>
+     *
+     * @param data bytes to hash
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @param seed seed
+     * @return hash
+     */
+    @SuppressWarnings("fallthrough")
+    public static int murmurHash3(@Nonnull final byte[] data, final int offset, final int length, final int seed) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int h1 = seed;
+        final int blocksEnd = offset + (length & ~3);
+        for (int i = offset; i < blocksEnd; i += 4) {
+            int k1 = (data[i] & 0xff) | ((data[i + 1] & 0xff) << 8) | ((data[i + 2] & 0xff) << 16) | (data[i + 3] << 24);
+            k1 *= c1;
+            k1 = Integer.rotateLeft(k1, 15);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        int k1 = 0;
+        switch (length & 3) {
+            case 3:
+                k1 ^= (data[blocksEnd + 2] & 0xff) << 16;
+                // fall through
+            case 2:
+                k1 ^= (data[blocksEnd + 1] & 0xff) << 8;
+                // fall through
+            case 1:
+                k1 ^= data[blocksEnd] & 0xff;
+                k1 *= c1;
+                k1 = Integer.rotateLeft(k1, 15);
+                k1 *= c2;
+                h1 ^= k1;
+                break;
+            default:
+                break;
+        }
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static final class FeatureKey {
+        private final long namespaceHash;
+        private final String feature;
+
+        private FeatureKey(final long namespaceHash, final String feature) {
+            this.namespaceHash = namespaceHash;
+            this.feature = feature;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final FeatureKey that = (FeatureKey) o;
+
+            return namespaceHash == that.namespaceHash && feature.equals(that.feature);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (namespaceHash ^ (namespaceHash >>> 32)) + feature.hashCode();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.indeed.vw.wrapper.learner;
+
+/**
+ * Provides the feature lines of actions which are not in the native action cache of a learner,
+ * see {@link VWTypedLearner#predict(SharedContext, long[], ActionSource)}.
+ *
+ * It is called by the native code while the example is parsed, so it should be fast and must not block on the learner.
+ */
+public interface ActionSource {
+    /**
+     * @param actionId id of the action
+     * @return the action example without a label, e.g. <code>|job title=engineer</code>, never null.
+     */
+    String getActionExample(long actionId);
+}
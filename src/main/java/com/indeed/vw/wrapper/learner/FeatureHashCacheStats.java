@@ -0,0 +1,57 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.io.Serializable;
+
+/**
+ * Counters of the native feature hash cache, see {@link VWLearner#enableFeatureHashCache(int)}.
+ */
+public class FeatureHashCacheStats implements Serializable {
+
+    private final long hits;
+    private final long misses;
+
+    public FeatureHashCacheStats(final long hits, final long misses) {
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "FeatureHashCacheStats{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        FeatureHashCacheStats that = (FeatureHashCacheStats) o;
+
+        if (hits != that.hits) return false;
+        return misses == that.misses;
+
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (hits ^ (hits >>> 32));
+        result = 31 * result + (int) (misses ^ (misses >>> 32));
+        return result;
+    }
+}
@@ -0,0 +1,44 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options of {@link VWLearner#trainOnFile(java.nio.file.Path, FileTrainingOptions)}.
+ */
+public final class FileTrainingOptions {
+    /**
+     * Called on the thread which called <code>trainOnFile</code>.
+     */
+    public interface ProgressListener {
+        /**
+         * @param examples examples learned from the file so far.
+         * @param averageLoss progressive validation loss of the learner since it was created.
+         * @param elapsedMillis time since the training started.
+         */
+        void onProgress(long examples, double averageLoss, long elapsedMillis);
+    }
+
+    private ProgressListener progressListener;
+    private long progressIntervalMillis = TimeUnit.SECONDS.toMillis(10);
+
+    public FileTrainingOptions progressListener(final ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public FileTrainingOptions progressInterval(final long progressInterval, final TimeUnit unit) {
+        if (progressInterval <= 0) {
+            throw new IllegalArgumentException("Progress interval must be positive: " + progressInterval);
+        }
+        progressIntervalMillis = unit.toMillis(progressInterval);
+        return this;
+    }
+
+    ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    long getProgressIntervalMillis() {
+        return progressIntervalMillis;
+    }
+}
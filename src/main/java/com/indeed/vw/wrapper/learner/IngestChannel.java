@@ -0,0 +1,167 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bytes in vw text format which are parsed and learned asynchronously by vw's own parser thread and driver,
+ * see {@link VWLearner#openIngestChannel(int)}.
+ *
+ * Writers copy their bytes into a native ring buffer, which is the only work done by java.  Writes block while
+ * the ring is full, so a fast producer is slowed down to the speed of the learner.  Lines may be split across
+ * writes, only the bytes matter.  Closing the channel ends the stream: the remaining bytes are learned before
+ * {@link #close()} returns.
+ *
+ * The channel is thread safe, concurrent writes are serialized.
+ */
+public final class IngestChannel implements Closeable {
+    private static final long WRITE_WAIT_MILLIS = 100;
+    private static final int STAGING_SIZE = 1 << 16;
+
+    private final long ring;
+    private final Thread driver;
+    private final Lock writeLock = new ReentrantLock();
+    /**
+     * Heap bytes are copied here first, the ring is written from direct memory only.
+     */
+    private final ByteBuffer staging = ByteBuffer.allocateDirect(STAGING_SIZE);
+    private boolean closed;
+    private volatile long examples;
+    private volatile Throwable failure;
+
+    IngestChannel(final VWBase learner, final int capacity) {
+        ring = VWLearners.newIngestRing(capacity);
+        driver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    examples = learner.trainOnIngestRing(ring);
+                } catch (final Throwable t) {
+                    failure = t;
+                }
+            }
+        }, "vw-ingest");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    /**
+     * Write the remaining bytes of the buffer, waiting for space in the ring when needed.
+     * @param bytes UTF-8 examples separated by <code>'\n'</code>, its position is moved to its limit.
+     * @throws InterruptedException if interrupted while waiting for space, a part of the bytes may be written.
+     */
+    public void write(final ByteBuffer bytes) throws InterruptedException {
+        writeLock.lock();
+        try {
+            checkWritable();
+            if (bytes.isDirect()) {
+                writeDirect(bytes);
+            } else {
+                while (bytes.hasRemaining()) {
+                    final ByteBuffer chunk = bytes.duplicate();
+                    chunk.limit(chunk.position() + Math.min(chunk.remaining(), STAGING_SIZE));
+                    staging.clear();
+                    staging.put(chunk);
+                    staging.flip();
+                    writeDirect(staging);
+                    bytes.position(chunk.position());
+                }
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write <code>bytes[offset, offset + length)</code>, see {@link #write(ByteBuffer)}.
+     */
+    public void write(final byte[] bytes, final int offset, final int length) throws InterruptedException {
+        write(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Wait until vw's parser read every byte written so far.  The last examples may still be learning when it
+     * returns, and a line which is not terminated yet is not parsed.
+     * @param timeout maximum time to wait
+     * @param unit unit of timeout
+     * @return false if the timeout expired first
+     */
+    public boolean flush(final long timeout, final TimeUnit unit) {
+        writeLock.lock();
+        try {
+            checkWritable();
+            return VWLearners.drainIngestRing(ring, unit.toMillis(timeout));
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return examples learned from the channel, only known once it is closed
+     */
+    public long getExamples() {
+        return examples;
+    }
+
+    /**
+     * End the stream and wait until the remaining bytes are learned.
+     * @throws IOException if the learner failed
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            VWLearners.closeIngestRing(ring);
+            boolean interrupted = false;
+            while (driver.isAlive()) {
+                try {
+                    driver.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            VWLearners.deleteIngestRing(ring);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+        if (failure != null) {
+            throw new IOException("Learning from the ingest channel failed", failure);
+        }
+    }
+
+    private void writeDirect(final ByteBuffer bytes) throws InterruptedException {
+        while (bytes.hasRemaining()) {
+            final int written = VWLearners.writeIngestRing(ring, bytes, bytes.position(), bytes.remaining(), WRITE_WAIT_MILLIS);
+            bytes.position(bytes.position() + written);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (written == 0) {
+                checkWritable();
+            }
+        }
+    }
+
+    private void checkWritable() {
+        if (closed) {
+            throw new IllegalStateException("Already closed.");
+        }
+        if (!driver.isAlive()) {
+            throw new IllegalStateException("The learner stopped reading the channel", failure);
+        }
+    }
+}
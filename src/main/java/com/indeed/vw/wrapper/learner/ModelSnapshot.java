@@ -0,0 +1,58 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.io.Closeable;
+
+/**
+ * Weights and online state of a learner kept in native memory, see {@link VWLearner#saveModelSnapshot()}.
+ *
+ * It holds native memory of about the size of a model file saved with <code>--save_resume</code> until it is closed.
+ * It can only be restored into the learner which saved it, and it outlives that learner, so it must be closed even
+ * after the learner is closed.
+ */
+public final class ModelSnapshot implements Closeable {
+    private final VWBase learner;
+    private final long size;
+    private long pointer;
+
+    ModelSnapshot(final VWBase learner, final long pointer) {
+        this.learner = learner;
+        this.pointer = pointer;
+        size = VWLearners.getModelSnapshotSize(pointer);
+    }
+
+    VWBase getLearner() {
+        return learner;
+    }
+
+    /**
+     * @return the native pointer, the caller must hold the monitor of the snapshot while it uses it.
+     */
+    long getPointer() {
+        if (pointer == 0) {
+            throw new IllegalStateException("Already closed.");
+        }
+        return pointer;
+    }
+
+    /**
+     * @return bytes of native memory held by the snapshot.
+     */
+    public long getSizeInBytes() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (pointer != 0) {
+            VWLearners.deleteModelSnapshot(pointer);
+            pointer = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ModelSnapshot{" +
+                "size=" + size +
+                '}';
+    }
+}
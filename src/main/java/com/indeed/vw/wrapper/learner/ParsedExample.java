@@ -0,0 +1,40 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Example parsed by {@link VWLearner#parseExample(String)} and friends, ready to be learned by
+ * {@link VWLearner#learnParsed(ParsedExample)} on another thread.
+ *
+ * It holds native memory until it is learned or closed.  Learning it frees it, closing it afterwards is a no-op.
+ * Examples which are still held when the learner is closed are leaked, so close pipelines before their learner.
+ */
+public final class ParsedExample implements Closeable {
+    private final VWBase learner;
+    private final AtomicLong pointer;
+
+    ParsedExample(final VWBase learner, final long pointer) {
+        this.learner = learner;
+        this.pointer = new AtomicLong(pointer);
+    }
+
+    VWBase getLearner() {
+        return learner;
+    }
+
+    /**
+     * @return the native pointer, which is owned by the caller from now on, or 0 if it was already taken.
+     */
+    long take() {
+        return pointer.getAndSet(0);
+    }
+
+    @Override
+    public void close() {
+        final long parsedExample = take();
+        if (parsedExample != 0) {
+            learner.releaseParsed(parsedExample);
+        }
+    }
+}
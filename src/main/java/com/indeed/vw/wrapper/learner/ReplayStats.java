@@ -0,0 +1,58 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.io.Serializable;
+
+/**
+ * Size of the native buffer of examples replayed by the remaining passes, see {@link VWLearner#enableReplay(long, java.nio.file.Path)}.
+ */
+public class ReplayStats implements Serializable {
+
+    private final long memoryBytes;
+    private final long spilledBytes;
+
+    public ReplayStats(final long memoryBytes, final long spilledBytes) {
+        this.memoryBytes = memoryBytes;
+        this.spilledBytes = spilledBytes;
+    }
+
+    /**
+     * @return bytes of examples kept in memory
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return bytes of examples written to the spill file once the memory was full
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayStats{" +
+                "memoryBytes=" + memoryBytes +
+                ", spilledBytes=" + spilledBytes +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ReplayStats that = (ReplayStats) o;
+
+        if (memoryBytes != that.memoryBytes) return false;
+        return spilledBytes == that.spilledBytes;
+
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (memoryBytes ^ (memoryBytes >>> 32));
+        result = 31 * result + (int) (spilledBytes ^ (spilledBytes >>> 32));
+        return result;
+    }
+}
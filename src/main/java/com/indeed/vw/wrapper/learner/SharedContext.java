@@ -0,0 +1,55 @@
+package com.indeed.vw.wrapper.learner;
+
+import java.io.Closeable;
+
+/**
+ * Shared example of multiline (action dependent features) examples, parsed once by the learner which registered it.
+ * See {@link VWLearner#registerSharedContext(String)}.
+ *
+ * The parsed example lives in a native cache with LRU and time to live eviction.  When it has been evicted, the next
+ * multiline example which references this context parses {@link #getExample()} again, so an evicted context is
+ * slower but never wrong.  Closing the context removes it from the cache right away.
+ */
+public final class SharedContext implements Closeable {
+    private final VWBase learner;
+    private final String example;
+    private volatile long handle;
+
+    SharedContext(final VWBase learner, final String example, final long handle) {
+        this.learner = learner;
+        this.example = example;
+        this.handle = handle;
+    }
+
+    /**
+     * @return the shared example, e.g. <code>shared |user id=42</code>.
+     */
+    public String getExample() {
+        return example;
+    }
+
+    VWBase getLearner() {
+        return learner;
+    }
+
+    long getHandle() {
+        return handle;
+    }
+
+    void setHandle(final long handle) {
+        this.handle = handle;
+    }
+
+    @Override
+    public void close() {
+        learner.removeSharedContext(this);
+    }
+
+    @Override
+    public String toString() {
+        return "SharedContext{" +
+                "example='" + example + '\'' +
+                ", handle=" + handle +
+                '}';
+    }
+}
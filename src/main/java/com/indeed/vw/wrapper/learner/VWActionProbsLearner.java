@@ -1,14 +1,17 @@
 package com.indeed.vw.wrapper.learner;
 
 
-public final class VWActionProbsLearner extends VWLearnerBase<ActionProbs> {
+public final class VWActionProbsLearner extends VWTopKLearnerBase<ActionProbs> {
     VWActionProbsLearner(final long nativePointer) {
         super(nativePointer);
     }
 
     @Override
-    protected native ActionProbs predict(String example, boolean learn, long nativePointer);
+    protected native ActionProbs predictParsed(long parsedExample, boolean learn, long nativePointer);
 
+    /**
+     * The best entries are the actions with the highest probabilities.
+     */
     @Override
-    protected native ActionProbs predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native int predictTopKParsed(long parsedExample, int k, int[] ids, float[] scores, long nativePointer);
 }
@@ -1,14 +1,18 @@
 package com.indeed.vw.wrapper.learner;
 
 
-public final class VWActionScoresLearner extends VWLearnerBase<ActionScores> {
+public final class VWActionScoresLearner extends VWTopKLearnerBase<ActionScores> {
     VWActionScoresLearner(final long nativePointer) {
         super(nativePointer);
     }
 
     @Override
-    protected native ActionScores predict(String example, boolean learn, long nativePointer);
+    protected native ActionScores predictParsed(long parsedExample, boolean learn, long nativePointer);
 
+    /**
+     * Scores of <code>--cb_adf</code> like reductions are costs, so the best entries are the actions with the
+     * lowest scores.
+     */
     @Override
-    protected native ActionScores predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native int predictTopKParsed(long parsedExample, int k, int[] ids, float[] scores, long nativePointer);
 }
@@ -1,10 +1,18 @@
 package com.indeed.vw.wrapper.learner;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * The base class for VW predictors.  This class is responsible for:
@@ -26,10 +34,29 @@ abstract class VWBase implements VWLearner {
      * alternative, but at this time this is not possible cause of <a href="https://mail.google.com/mail/u/0/?ui=2&ik=cdb4bef19b&view=lg&msg=14dfe18a4f82a199#14dfe18a4f82a199_5a">this</a>.
      */
     final Lock lock;
+
+    /**
+     * Examples are parsed before {@link #lock} is taken, so request threads only serialize on learning.
+     * Parsing and learning happen under the read lock, closing takes the write lock, so the native memory can not be
+     * freed while an example is parsed.
+     */
+    final Lock parseLock;
+    private final Lock closeLock;
     protected final long nativePointer;
 
+    /**
+     * Examples given as {@link CharSequence} are copied here instead of materializing a String.
+     */
+    private static final ThreadLocal<char[]> exampleChars = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[1024];
+        }
+    };
+
     // It would appear that performing multiple passes from the JNI layer is not thread safe even across multiple models.
-    // Because of this we need a GLOBAL lock to do mulitiple passes.
+    // Because of this we need a GLOBAL lock to do mulitiple passes.  vw's driver for a single pass, see trainOnFile and
+    // openIngestChannel, does not take it, so a long lived ingest channel does not block the other learners.
     private final static Lock globalLock = new ReentrantLock();
 
     /**
@@ -44,6 +71,9 @@ abstract class VWBase implements VWLearner {
     VWBase(final long nativePointer) {
         isOpen = true;
         lock = new ReentrantLock();
+        final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+        parseLock = lifecycleLock.readLock();
+        closeLock = lifecycleLock.writeLock();
         this.nativePointer = nativePointer;
     }
 
@@ -73,6 +103,336 @@ abstract class VWBase implements VWLearner {
         return isOpen;
     }
 
+    /**
+     * Copy the example to a buffer owned by the current thread.  The buffer is only valid until the next call on
+     * the same thread.
+     *
+     * vw_jni encodes the characters to UTF-8 straight from the buffer, so a CharSequence is copied once here and
+     * encoded once, like <code>toString()</code> followed by <code>GetStringUTFRegion</code>.  What it saves is the
+     * String allocated for every example, not a copy.  A <code>char[]</code> slice skips the copy here and is only
+     * encoded.
+     * @param example an example
+     * @return buffer with the example in its first <code>example.length()</code> characters.
+     */
+    static char[] toChars(final CharSequence example) {
+        final int length = example.length();
+        char[] chars = exampleChars.get();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+            exampleChars.set(chars);
+        }
+        if (example instanceof StringBuilder) {
+            ((StringBuilder) example).getChars(0, length, chars, 0);
+        } else if (example instanceof StringBuffer) {
+            ((StringBuffer) example).getChars(0, length, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = example.charAt(i);
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Parse the example without holding {@link #lock}.  The caller must hold {@link #parseLock} until the parsed example
+     * is passed to a <code>predictParsed</code> method, which frees it.
+     * @param example a single vw example string
+     * @return native pointer to the parsed example
+     */
+    final long parse(final String example) {
+        checkOpen();
+        return VWLearners.parseExample(nativePointer, example);
+    }
+
+    /**
+     * Same as {@link #parse(String)} for multiline examples.
+     * @param example a multiline vw example string
+     * @return native pointer to the parsed examples
+     */
+    final long parse(final String[] example) {
+        checkOpen();
+        return VWLearners.parseMultilineExample(nativePointer, example);
+    }
+
+    /**
+     * Same as {@link #parse(String)} for independent examples which are not a multiline example.
+     * @param first the first example
+     * @param examples the remaining examples
+     * @return native pointer to the parsed examples
+     */
+    final long parseExamples(final String first, final String[] examples) {
+        checkOpen();
+        return VWLearners.parseExamples(nativePointer, first, examples);
+    }
+
+    /**
+     * Same as {@link #parseExamples(String, String[])} for examples stored one per line in the remaining bytes of
+     * <code>lines</code>.
+     * @param first the first example, null when all the examples are in <code>lines</code>
+     * @param lines the remaining examples separated by <code>'\n'</code>
+     * @return native pointer to the parsed examples
+     */
+    final long parseExamples(final String first, final ByteBuffer lines) {
+        checkOpen();
+        if (lines.isDirect()) {
+            return VWLearners.parseExamplesFromBuffer(nativePointer, first, lines, lines.position(), lines.remaining());
+        }
+        if (lines.hasArray()) {
+            return VWLearners.parseExamplesFromBytes(nativePointer, first, lines.array(),
+                    lines.arrayOffset() + lines.position(), lines.remaining());
+        }
+        // Read only heap buffer.
+        final byte[] bytes = new byte[lines.remaining()];
+        lines.duplicate().get(bytes);
+        return VWLearners.parseExamplesFromBytes(nativePointer, first, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Same as {@link #parse(String)} for an example stored in <code>example[offset, offset + length)</code>.
+     * @param example buffer with a single vw example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @return native pointer to the parsed example
+     */
+    final long parse(final char[] example, final int offset, final int length) {
+        checkOpen();
+        return VWLearners.parseChars(nativePointer, example, offset, length);
+    }
+
+    /**
+     * Same as {@link #parse(String[])} for the multiline example made of the shared example of <code>context</code>
+     * followed by <code>actions</code>.  The shared example is copied from the native cache when it is still there.
+     * @param context shared example registered by this learner
+     * @param actions the remaining lines of the multiline example
+     * @return native pointer to the parsed examples
+     */
+    final long parse(final SharedContext context, final String[] actions) {
+        checkOpen();
+        checkOwner(context);
+        long parsedExample = VWLearners.parseWithSharedContext(nativePointer, context.getHandle(), actions);
+        if (parsedExample == 0) {
+            // Evicted, register it again for the next examples of the session.
+            context.setHandle(VWLearners.registerSharedContext(nativePointer, context.getExample()));
+            parsedExample = VWLearners.parseWithSharedContext(nativePointer, context.getHandle(), actions);
+        }
+        if (parsedExample == 0) {
+            // Evicted again by concurrent registrations, the cache is too small for the load.
+            final String[] example = new String[actions.length + 1];
+            example[0] = context.getExample();
+            System.arraycopy(actions, 0, example, 1, actions.length);
+            parsedExample = VWLearners.parseMultilineExample(nativePointer, example);
+        }
+        return parsedExample;
+    }
+
+    /**
+     * Same as {@link #parse(SharedContext, String[])} for actions taken from the native action cache.
+     * @param context shared example registered by this learner, may be null
+     * @param actionIds ids of the actions
+     * @param actions source of the actions which are not cached
+     * @return native pointer to the parsed examples
+     */
+    final long parse(final SharedContext context, final long[] actionIds, final ActionSource actions) {
+        checkOpen();
+        if (context == null) {
+            return VWLearners.parseWithCachedActions(nativePointer, 0, actionIds, actions);
+        }
+        checkOwner(context);
+        long parsedExample = VWLearners.parseWithCachedActions(nativePointer, context.getHandle(), actionIds, actions);
+        if (parsedExample == 0) {
+            context.setHandle(VWLearners.registerSharedContext(nativePointer, context.getExample()));
+            parsedExample = VWLearners.parseWithCachedActions(nativePointer, context.getHandle(), actionIds, actions);
+        }
+        if (parsedExample == 0) {
+            final String[] example = new String[actionIds.length + 1];
+            example[0] = context.getExample();
+            for (int i = 0; i < actionIds.length; i++) {
+                example[i + 1] = actions.getActionExample(actionIds[i]);
+            }
+            parsedExample = VWLearners.parseMultilineExample(nativePointer, example);
+        }
+        return parsedExample;
+    }
+
+    @Override
+    public void learnNoResult(final String example) {
+        parseLock.lock();
+        try {
+            learnParsed(parse(example));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void learnNoResult(final String[] example) {
+        parseLock.lock();
+        try {
+            learnParsed(parse(example));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void learnNoResult(final List<String> examples) {
+        if (examples.isEmpty()) {
+            return;
+        }
+        final String[] remaining = examples.subList(1, examples.size()).toArray(new String[examples.size() - 1]);
+        parseLock.lock();
+        try {
+            learnParsed(parseExamples(examples.get(0), remaining));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void learnNoResult(final String[][] examples) {
+        if (examples.length == 0) {
+            return;
+        }
+        parseLock.lock();
+        try {
+            checkOpen();
+            learnParsed(VWLearners.parseMultilineExamples(nativePointer, examples));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public int learnNoResult(final ByteBuffer lines) {
+        if (!lines.hasRemaining()) {
+            return 0;
+        }
+        parseLock.lock();
+        try {
+            return learnParsed(parseExamples(null, lines));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public ParsedExample parseExample(final String example) {
+        parseLock.lock();
+        try {
+            return new ParsedExample(this, parse(example));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public ParsedExample parseExample(final String[] example) {
+        parseLock.lock();
+        try {
+            return new ParsedExample(this, parse(example));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public ParsedExample parseExamples(final ByteBuffer lines) {
+        parseLock.lock();
+        try {
+            return new ParsedExample(this, parseExamples(null, lines));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public int learnParsed(final ParsedExample example) {
+        if (example.getLearner() != this) {
+            throw new IllegalArgumentException("Example was parsed by another learner.");
+        }
+        parseLock.lock();
+        try {
+            checkOpen();
+            final long parsedExample = example.take();
+            if (parsedExample == 0) {
+                throw new IllegalStateException("Example was already learned or closed.");
+            }
+            return learnParsed(parsedExample);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public long trainOnFile(final Path dataFile, final FileTrainingOptions options) throws IOException, InterruptedException {
+        if (!Files.isReadable(dataFile)) {
+            throw new FileNotFoundException("Can not read " + dataFile);
+        }
+        parseLock.lock();
+        lock.lock();
+        try {
+            checkOpen();
+            VWLearners.checkOnePassDriver(nativePointer);
+            return new FileTraining(dataFile, options).call();
+        }
+        finally {
+            lock.unlock();
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * Free parsed examples which are not learned, it is a no-op once the learner is closed.
+     */
+    void releaseParsed(final long parsedExample) {
+        parseLock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.releaseParsed(nativePointer, parsedExample);
+            }
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    private int learnParsed(final long parsedExample) {
+        lock.lock();
+        try {
+            return VWLearners.learnParsed(nativePointer, parsedExample);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOwner(final SharedContext context) {
+        if (context.getLearner() != this) {
+            throw new IllegalArgumentException("Shared context was registered by another learner: " + context);
+        }
+    }
+
+    private void checkOpen() {
+        if (!isOpen()) {
+            throw new IllegalStateException("Already closed.");
+        }
+    }
+
+    static void checkExampleRange(final char[] example, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > example.length - length) {
+            throw new IndexOutOfBoundsException("offset=" + offset + " length=" + length + " array length=" + example.length);
+        }
+    }
+
     /**
      * Save the model in the VW instance.
      */
@@ -90,6 +450,205 @@ abstract class VWBase implements VWLearner {
         }
     }
 
+    @Override
+    public void enableFeatureHashCache(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Feature hash cache capacity must be positive: " + capacity);
+        }
+        lock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.enableFeatureHashCache(nativePointer, capacity);
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public FeatureHashCacheStats getFeatureHashCacheStats() {
+        lock.lock();
+        try {
+            if (isOpen()) {
+                final long[] stats = VWLearners.getFeatureHashCacheStats(nativePointer);
+                return new FeatureHashCacheStats(stats[0], stats[1]);
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void enableReplay(final long maxMemoryBytes, final Path spillDirectory) {
+        if (maxMemoryBytes < 0) {
+            throw new IllegalArgumentException("Replay memory must not be negative: " + maxMemoryBytes);
+        }
+        if (!Files.isDirectory(spillDirectory)) {
+            throw new IllegalArgumentException("Not a directory: " + spillDirectory);
+        }
+        lock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.enableReplay(nativePointer, maxMemoryBytes, spillDirectory.toAbsolutePath().toString());
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ReplayStats getReplayStats() {
+        lock.lock();
+        try {
+            if (isOpen()) {
+                final long[] stats = VWLearners.getReplayStats(nativePointer);
+                return new ReplayStats(stats[0], stats[1]);
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ModelSnapshot saveModelSnapshot() {
+        lock.lock();
+        try {
+            if (isOpen()) {
+                return new ModelSnapshot(this, VWLearners.saveModelSnapshot(nativePointer));
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreModelSnapshot(final ModelSnapshot snapshot) {
+        if (snapshot.getLearner() != this) {
+            throw new IllegalArgumentException("Snapshot was saved by another learner: " + snapshot);
+        }
+        lock.lock();
+        try {
+            if (isOpen()) {
+                synchronized (snapshot) {
+                    VWLearners.restoreModelSnapshot(nativePointer, snapshot.getPointer());
+                }
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public SharedContext registerSharedContext(final String sharedExample) {
+        parseLock.lock();
+        try {
+            checkOpen();
+            return new SharedContext(this, sharedExample, VWLearners.registerSharedContext(nativePointer, sharedExample));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * Remove the shared example from the native cache, it is a no-op once the learner is closed.
+     */
+    void removeSharedContext(final SharedContext context) {
+        checkOwner(context);
+        parseLock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.removeSharedContext(nativePointer, context.getHandle());
+            }
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void configureSharedContextCache(final int maxSize, final long timeToLive, final TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Shared context cache size must be positive: " + maxSize);
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Shared context time to live must not be negative: " + timeToLive);
+        }
+        parseLock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.configureSharedContextCache(nativePointer, maxSize, unit.toMillis(timeToLive));
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void configureActionCache(final long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Action cache size must be positive: " + maxBytes);
+        }
+        parseLock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.configureActionCache(nativePointer, maxBytes);
+            } else {
+                throw new IllegalStateException("Already closed.");
+            }
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAction(final long actionId) {
+        parseLock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.invalidateAction(nativePointer, actionId);
+            }
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAllActions() {
+        parseLock.lock();
+        try {
+            if (isOpen()) {
+                VWLearners.invalidateAllActions(nativePointer);
+            }
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -106,6 +665,110 @@ abstract class VWBase implements VWLearner {
         return (int) (nativePointer ^ (nativePointer >>> 32));
     }
 
+    @Override
+    public IngestChannel openIngestChannel(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ingest channel capacity must be positive: " + capacity);
+        }
+        lock.lock();
+        try {
+            checkOpen();
+            VWLearners.checkOnePassDriver(nativePointer);
+        }
+        finally {
+            lock.unlock();
+        }
+        return new IngestChannel(this, capacity);
+    }
+
+    /**
+     * Learn the bytes written to the ring until it is closed, called by the driver thread of an {@link IngestChannel}.
+     * @param ring native pointer to the ring
+     * @return the number of examples learned
+     */
+    long trainOnIngestRing(final long ring) {
+        parseLock.lock();
+        lock.lock();
+        try {
+            checkOpen();
+            VWLearners.setTrainingStopped(nativePointer, false);
+            return VWLearners.trainOnIngestRing(nativePointer, ring);
+        }
+        finally {
+            lock.unlock();
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * Runs vw's driver on another thread, so that the calling thread can report progress and stop it when interrupted.
+     */
+    private class FileTraining implements Runnable {
+        private final Path dataFile;
+        private final FileTrainingOptions options;
+        private volatile long examples;
+        private volatile Throwable failure;
+
+        private FileTraining(final Path dataFile, final FileTrainingOptions options) {
+            this.dataFile = dataFile;
+            this.options = options;
+        }
+
+        @Override
+        public void run() {
+            try {
+                examples = VWLearners.trainOnFile(nativePointer, dataFile.toAbsolutePath().toString());
+            } catch (final Throwable t) {
+                failure = t;
+            }
+        }
+
+        long call() throws IOException, InterruptedException {
+            final long start = System.currentTimeMillis();
+            final long examplesBefore = (long) VWLearners.getTrainingProgress(nativePointer)[0];
+            final Thread driver = new Thread(this, "vw-train-" + dataFile.getFileName());
+            VWLearners.setTrainingStopped(nativePointer, false);
+            driver.start();
+            boolean interrupted = false;
+            while (driver.isAlive()) {
+                try {
+                    driver.join(options.getProgressIntervalMillis());
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                    VWLearners.setTrainingStopped(nativePointer, true);
+                    joinUninterruptibly(driver);
+                    break;
+                }
+                if (driver.isAlive() && options.getProgressListener() != null) {
+                    final double[] progress = VWLearners.getTrainingProgress(nativePointer);
+                    options.getProgressListener().onProgress((long) progress[0] - examplesBefore,
+                            progress[2] == 0 ? 0 : progress[1] / progress[2], System.currentTimeMillis() - start);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Training on " + dataFile + " failed", failure);
+            }
+            if (interrupted) {
+                throw new InterruptedException("Training on " + dataFile + " stopped after " + examples + " examples");
+            }
+            return examples;
+        }
+
+        private void joinUninterruptibly(final Thread driver) {
+            boolean interrupted = false;
+            while (driver.isAlive()) {
+                try {
+                    driver.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private class Closer implements Callable<Boolean> {
         private Closer() {}
 
@@ -124,17 +787,20 @@ abstract class VWBase implements VWLearner {
          */
         @Override
         public Boolean call() {
+            closeLock.lock();
             lock.lock();
             try {
                 final boolean attemptingToClose = isOpen;
                 if (isOpen) {
                     isOpen = false;
-                    VWBase.globalLock.lock();
-                    try {
-                        VWLearners.performRemainingPasses(nativePointer);
-                    }
-                    finally {
-                        globalLock.unlock();
+                    if (VWLearners.hasSeveralPasses(nativePointer)) {
+                        VWBase.globalLock.lock();
+                        try {
+                            VWLearners.performRemainingPasses(nativePointer);
+                        }
+                        finally {
+                            globalLock.unlock();
+                        }
                     }
                     VWLearners.closeInstance(nativePointer);
                 }
@@ -142,6 +808,7 @@ abstract class VWBase implements VWLearner {
             }
             finally {
                 lock.unlock();
+                closeLock.unlock();
             }
         }
     }
@@ -1,5 +1,7 @@
 package com.indeed.vw.wrapper.learner;
 
+import java.nio.ByteBuffer;
+
 /**
  * @author deak
  */
@@ -16,15 +18,12 @@ public abstract class VWFloatLearner extends VWBase implements VWLearner {
      * @return an <em>UNBOXED</em> prediction.
      */
     private float learnOrPredict(final String example, final boolean learn) {
-        lock.lock();
+        parseLock.lock();
         try {
-            if (isOpen()) {
-                return predict(example, learn, nativePointer);
-            }
-            throw new IllegalStateException("Already closed.");
+            return learnOrPredict(parse(example), learn);
         }
         finally {
-            lock.unlock();
+            parseLock.unlock();
         }
     }
 
@@ -36,12 +35,44 @@ public abstract class VWFloatLearner extends VWBase implements VWLearner {
      * @return an <em>UNBOXED</em> prediction.
      */
     private float learnOrPredict(final String[] example, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(example), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * <code>learnOrPredict</code> allows the ability to return an unboxed prediction.  This will reduce the overhead
+     * of this function call.
+     * @param example buffer with an example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @param learn whether to call the learn or predict VW functions.
+     * @return an <em>UNBOXED</em> prediction.
+     */
+    private float learnOrPredict(final char[] example, final int offset, final int length, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(example, offset, length), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * The only stage of <code>learnOrPredict</code> which holds {@link #lock}.
+     * @param parsedExample native pointer returned by <code>parse</code>, it is freed by this call.
+     * @param learn whether to call the learn or predict VW functions.
+     * @return an <em>UNBOXED</em> prediction.
+     */
+    private float learnOrPredict(final long parsedExample, final boolean learn) {
         lock.lock();
         try {
-            if (isOpen()) {
-                return predictMultiline(example, learn, nativePointer);
-            }
-            throw new IllegalStateException("Already closed.");
+            return predictParsed(parsedExample, learn, nativePointer);
         }
         finally {
             lock.unlock();
@@ -88,6 +119,121 @@ public abstract class VWFloatLearner extends VWBase implements VWLearner {
         return learnOrPredict(example, true);
     }
 
-    protected abstract float predict(String example, boolean learn, long nativePointer);
-    protected abstract float predictMultiline(String[] example, boolean learn, long nativePointer);
+    /**
+     * Runs prediction on <code>example</code> without converting it to a String and returns the prediction output.
+     *
+     * @param example a single vw example
+     * @return A prediction
+     */
+    public float predict(final CharSequence example) {
+        if (example instanceof String) {
+            return predict((String) example);
+        }
+        return learnOrPredict(toChars(example), 0, example.length(), false);
+    }
+
+    /**
+     * Runs learning on <code>example</code> without converting it to a String and returns the prediction output.
+     *
+     * @param example a single vw example
+     * @return A prediction
+     */
+    public float learn(final CharSequence example) {
+        if (example instanceof String) {
+            return learn((String) example);
+        }
+        return learnOrPredict(toChars(example), 0, example.length(), true);
+    }
+
+    /**
+     * Runs prediction on the example stored in <code>example[offset, offset + length)</code> and returns the prediction output.
+     *
+     * @param example buffer with a single vw example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @return A prediction
+     */
+    public float predict(final char[] example, final int offset, final int length) {
+        checkExampleRange(example, offset, length);
+        return learnOrPredict(example, offset, length, false);
+    }
+
+    /**
+     * Runs learning on the example stored in <code>example[offset, offset + length)</code> and returns the prediction output.
+     *
+     * @param example buffer with a single vw example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @return A prediction
+     */
+    public float learn(final char[] example, final int offset, final int length) {
+        checkExampleRange(example, offset, length);
+        return learnOrPredict(example, offset, length, true);
+    }
+
+    /**
+     * Runs prediction on the examples made of <code>sharedNamespaces</code> followed by each of
+     * <code>itemNamespaces</code>, e.g. the scores of candidate jobs for one user.  The examples are not concatenated
+     * in java, they are parsed natively and all of them are scored under a single lock acquisition.
+     *
+     * For a linear model the shared namespaces are evaluated once and their partial score is reused by every item.
+     * When <code>--quadratic</code>, <code>--cubic</code> or <code>--interactions</code> cross shared and item
+     * namespaces, or when a reduction such as <code>--lrq</code>, <code>--nn</code> or <code>--stage_poly</code> makes
+     * the model non-linear, every item is scored with the shared features copied into it, which gives the same
+     * predictions as {@link #predict(String)} of the concatenation.
+     *
+     * @param sharedNamespaces namespaces common to all items without a label, e.g. <code>|user id=42</code>
+     * @param itemNamespaces namespaces of each item without a label, e.g. <code>|job title=engineer</code>
+     * @return predictions in the order of <code>itemNamespaces</code>
+     */
+    public float[] predictCrossProduct(final String sharedNamespaces, final String[] itemNamespaces) {
+        if (itemNamespaces.length == 0) {
+            return new float[0];
+        }
+        parseLock.lock();
+        try {
+            return predictCrossProduct(parseExamples(sharedNamespaces, itemNamespaces));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #predictCrossProduct(String, String[])} for items stored one per line, separated by
+     * <code>'\n'</code>, in the remaining bytes of <code>itemNamespaces</code>.  Direct buffers are parsed in place.
+     * Empty lines are skipped and a <code>'\r'</code> ending a line is ignored, so the predictions are those of the
+     * non-empty lines.
+     * The bytes are hashed as they are, so they should be UTF-8 to get the same features as String examples.
+     * The position of the buffer is not changed.
+     *
+     * @param sharedNamespaces namespaces common to all items without a label, e.g. <code>|user id=42</code>
+     * @param itemNamespaces namespaces of each item without a label, one item per line
+     * @return predictions in the order of the non-empty lines
+     */
+    public float[] predictCrossProduct(final String sharedNamespaces, final ByteBuffer itemNamespaces) {
+        if (!itemNamespaces.hasRemaining()) {
+            return new float[0];
+        }
+        parseLock.lock();
+        try {
+            return predictCrossProduct(parseExamples(sharedNamespaces, itemNamespaces));
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    private float[] predictCrossProduct(final long parsedExamples) {
+        lock.lock();
+        try {
+            return predictCrossProductParsed(parsedExamples, nativePointer);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    protected abstract float predictParsed(long parsedExample, boolean learn, long nativePointer);
+    protected abstract float[] predictCrossProductParsed(long parsedExamples, long nativePointer);
 }
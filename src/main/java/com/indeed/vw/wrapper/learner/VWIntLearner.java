@@ -16,15 +16,12 @@ public abstract class VWIntLearner extends VWBase implements VWLearner {
      * @return an <em>UNBOXED</em> prediction.
      */
     private int learnOrPredict(final String example, final boolean learn) {
-        lock.lock();
+        parseLock.lock();
         try {
-            if (isOpen()) {
-                return predict(example, learn, nativePointer);
-            }
-            throw new IllegalStateException("Already closed.");
+            return learnOrPredict(parse(example), learn);
         }
         finally {
-            lock.unlock();
+            parseLock.unlock();
         }
     }
 
@@ -36,12 +33,44 @@ public abstract class VWIntLearner extends VWBase implements VWLearner {
      * @return an <em>UNBOXED</em> prediction.
      */
     private int learnOrPredict(final String[] example, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(example), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * <code>learnOrPredict</code> allows the ability to return an unboxed prediction.  This will reduce the overhead
+     * of this function call.
+     * @param example buffer with an example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @param learn whether to call the learn or predict VW functions.
+     * @return an <em>UNBOXED</em> prediction.
+     */
+    private int learnOrPredict(final char[] example, final int offset, final int length, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(example, offset, length), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * The only stage of <code>learnOrPredict</code> which holds {@link #lock}.
+     * @param parsedExample native pointer returned by <code>parse</code>, it is freed by this call.
+     * @param learn whether to call the learn or predict VW functions.
+     * @return an <em>UNBOXED</em> prediction.
+     */
+    private int learnOrPredict(final long parsedExample, final boolean learn) {
         lock.lock();
         try {
-            if (isOpen()) {
-                return predictMultiline(example, learn, nativePointer);
-            }
-            throw new IllegalStateException("Already closed.");
+            return predictParsed(parsedExample, learn, nativePointer);
         }
         finally {
             lock.unlock();
@@ -86,6 +115,57 @@ public abstract class VWIntLearner extends VWBase implements VWLearner {
      */
     public int learn(final String[] example) { return learnOrPredict(example, true); }
 
-    protected abstract int predict(String example, boolean learn, long nativePointer);
-    protected abstract int predictMultiline(String[] example, boolean learn, long nativePointer);
+    /**
+     * Runs prediction on <code>example</code> without converting it to a String and returns the prediction output.
+     *
+     * @param example a single vw example
+     * @return A prediction
+     */
+    public int predict(final CharSequence example) {
+        if (example instanceof String) {
+            return predict((String) example);
+        }
+        return learnOrPredict(toChars(example), 0, example.length(), false);
+    }
+
+    /**
+     * Runs learning on <code>example</code> without converting it to a String and returns the prediction output.
+     *
+     * @param example a single vw example
+     * @return A prediction
+     */
+    public int learn(final CharSequence example) {
+        if (example instanceof String) {
+            return learn((String) example);
+        }
+        return learnOrPredict(toChars(example), 0, example.length(), true);
+    }
+
+    /**
+     * Runs prediction on the example stored in <code>example[offset, offset + length)</code> and returns the prediction output.
+     *
+     * @param example buffer with a single vw example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @return A prediction
+     */
+    public int predict(final char[] example, final int offset, final int length) {
+        checkExampleRange(example, offset, length);
+        return learnOrPredict(example, offset, length, false);
+    }
+
+    /**
+     * Runs learning on the example stored in <code>example[offset, offset + length)</code> and returns the prediction output.
+     *
+     * @param example buffer with a single vw example
+     * @param offset index of the first character of the example
+     * @param length number of characters in the example
+     * @return A prediction
+     */
+    public int learn(final char[] example, final int offset, final int length) {
+        checkExampleRange(example, offset, length);
+        return learnOrPredict(example, offset, length, true);
+    }
+
+    protected abstract int predictParsed(long parsedExample, boolean learn, long nativePointer);
 }
@@ -3,7 +3,11 @@ package com.indeed.vw.wrapper.learner;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is the super type of all different typed VW learners.  This type exists to ensure that the
@@ -48,4 +52,177 @@ public interface VWLearner extends Closeable {
     Callable<Boolean> closer();
 
     void saveModel(File filename);
+
+    /**
+     * Learn from the example without building the prediction, which online learners usually discard anyway.
+     * @param example an example from which to learn.
+     */
+    void learnNoResult(String example);
+
+    /**
+     * Learn from a multiline example without building the prediction.
+     * @param example an example from which to learn.
+     */
+    void learnNoResult(String[] example);
+
+    /**
+     * Learn from independent examples, in order, without building predictions.  The batch is parsed and learned
+     * with a single native call, so other threads only see the model before or after the whole batch.
+     * @param examples examples from which to learn.
+     */
+    void learnNoResult(List<String> examples);
+
+    /**
+     * Same as {@link #learnNoResult(List)} for multiline examples.
+     * @param examples multiline examples from which to learn.
+     */
+    void learnNoResult(String[][] examples);
+
+    /**
+     * Learn from the examples stored one per line in the remaining bytes of <code>lines</code>, e.g. a chunk of a
+     * data file, without creating a String per line.  Empty lines end multiline examples like in vw data files.
+     * Direct and memory mapped buffers are parsed in place, heap buffers are copied once.
+     * @param lines UTF-8 examples separated by <code>'\n'</code>, the position of the buffer is not changed.
+     * @return the number of lines learned.
+     */
+    int learnNoResult(ByteBuffer lines);
+
+    /**
+     * Parse the example without learning it, so that examples can be parsed by many threads and learned in order by
+     * a single one.  Parsing does not wait for learning.
+     * @param example an example.
+     * @return the parsed example, which must be passed to {@link #learnParsed(ParsedExample)} or closed.
+     */
+    ParsedExample parseExample(String example);
+
+    /**
+     * Same as {@link #parseExample(String)} for a multiline example.
+     * @param example a multiline example.
+     * @return the parsed example, which must be passed to {@link #learnParsed(ParsedExample)} or closed.
+     */
+    ParsedExample parseExample(String[] example);
+
+    /**
+     * Same as {@link #parseExample(String)} for the examples stored one per line in the remaining bytes of
+     * <code>lines</code>, see {@link #learnNoResult(ByteBuffer)}.
+     * @param lines UTF-8 examples separated by <code>'\n'</code>.
+     * @return the parsed examples, which must be passed to {@link #learnParsed(ParsedExample)} or closed.
+     */
+    ParsedExample parseExamples(ByteBuffer lines);
+
+    /**
+     * Learn an example parsed by this learner without building the prediction.
+     * @param example the parsed example, it can not be used afterwards.
+     * @return the number of examples learned.
+     */
+    int learnParsed(ParsedExample example);
+
+    /**
+     * Learn every example of a vw data file (plain or gzipped) with vw's own parser thread and driver, like the
+     * vw command line does.  The file is never read by java, which makes it the fastest way to train from a file.
+     * Other calls on this learner wait until the training ends, other learners are not blocked.  The file is learned
+     * in a single pass: learners created with several passes or a cache are rejected, since vw's driver would run
+     * their remaining passes at the end of the file.
+     *
+     * Interrupting the calling thread (e.g. with <code>Future.cancel(true)</code>) stops the training, the
+     * examples learned so far are kept.
+     * @param dataFile file in vw text format, gzipped files are recognized by their content.
+     * @param options progress reporting.
+     * @return the number of examples learned.
+     * @throws IOException if the file can not be read.
+     * @throws InterruptedException if the training was stopped by an interruption.
+     * @throws IllegalStateException if the learner was created with several passes or a cache.
+     */
+    long trainOnFile(Path dataFile, FileTrainingOptions options) throws IOException, InterruptedException;
+
+    /**
+     * Open a channel whose bytes are parsed and learned asynchronously by vw's own parser thread and driver, like
+     * {@link #trainOnFile(Path, FileTrainingOptions)} does with a file.  Other calls on this learner wait until the
+     * channel is closed, other learners are not blocked.  Like trainOnFile, it is not available for learners with
+     * several passes or a cache.
+     * @param capacity size in bytes of the native buffer between the writers and the parser.
+     * @return the open channel.
+     * @throws IllegalStateException if the learner was created with several passes or a cache.
+     */
+    IngestChannel openIngestChannel(int capacity);
+
+    /**
+     * Memoize hashes of feature strings parsed by this learner.  Useful when the same categorical values
+     * (user ids, job ids, frequent words) are parsed over and over again.  The cache is direct mapped, so
+     * <code>capacity</code> is rounded up to a power of two and colliding strings evict each other.
+     * Calling it again replaces the cache with an empty one.
+     * @param capacity number of cached hashes.
+     */
+    void enableFeatureHashCache(int capacity);
+
+    /**
+     * @return hits and misses of the feature hash cache since it was enabled, zeros if it is not enabled.
+     */
+    FeatureHashCacheStats getFeatureHashCacheStats();
+
+    /**
+     * Retain the examples learned from now on in a native buffer, in the binary cache format of vw, and replay them
+     * for the remaining passes when the learner is closed, instead of writing and reading a cache file.  The learner
+     * must have been created with <code>--passes</code> and a new cache file, which is deleted by this call, e.g.
+     * through <code>VowpalWabbit.Builder.replayPasses</code>.
+     * @param maxMemoryBytes bytes kept in memory, the following examples spill to an unlinked temporary file.
+     * @param spillDirectory directory of the spill file, preferably on a local disk.
+     */
+    void enableReplay(long maxMemoryBytes, Path spillDirectory);
+
+    /**
+     * @return bytes retained in memory and spilled to disk for the remaining passes, zeros if replay is not enabled.
+     */
+    ReplayStats getReplayStats();
+
+    /**
+     * Copy the weights and the online state of the learner (like <code>--save_resume</code>) to native memory, e.g.
+     * to come back to the best model of a training after its later passes overfit.
+     * @return a snapshot which must be closed.
+     */
+    ModelSnapshot saveModelSnapshot();
+
+    /**
+     * Replace the weights and the online state of the learner by those of the snapshot, the learner then learns and
+     * predicts like it did when the snapshot was saved.  The snapshot stays open and can be restored again.
+     * @param snapshot snapshot saved by this learner.
+     */
+    void restoreModelSnapshot(ModelSnapshot snapshot);
+
+    /**
+     * Parse the shared line of multiline examples once, so that the requests of a session which all share the same
+     * context only parse their action lines, see {@link VWTypedLearner#predict(SharedContext, String[])}.
+     * @param sharedExample the shared example including its label, e.g. <code>shared |user id=42</code>.
+     * @return a handle to the parsed example which can only be used with this learner.
+     */
+    SharedContext registerSharedContext(String sharedExample);
+
+    /**
+     * Bound the native cache of shared contexts.  By default it keeps the 1024 most recently used contexts for
+     * 10 minutes after they were registered.
+     * @param maxSize maximum number of parsed shared examples kept.
+     * @param timeToLive time after which a registered context is parsed again, 0 to never expire.
+     * @param unit unit of <code>timeToLive</code>.
+     */
+    void configureSharedContextCache(int maxSize, long timeToLive, TimeUnit unit);
+
+    /**
+     * Bound the memory used by the native cache of parsed action examples, see
+     * {@link VWTypedLearner#predict(SharedContext, long[], ActionSource)}.  Least recently used actions are evicted
+     * once the features of cached actions take more than <code>maxBytes</code>.  The default is 64 MiB.
+     * @param maxBytes approximate memory used by cached actions.
+     */
+    void configureActionCache(long maxBytes);
+
+    /**
+     * Forget the parsed example of the action, e.g. when its features changed.  Update the {@link ActionSource}
+     * first, otherwise a concurrent prediction may cache the old features again.
+     * @param actionId id of the action.
+     */
+    void invalidateAction(long actionId);
+
+    /**
+     * Forget the parsed examples of all actions.
+     */
+    void invalidateAllActions();
 }
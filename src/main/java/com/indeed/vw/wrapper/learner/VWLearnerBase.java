@@ -8,7 +8,7 @@ package com.indeed.vw.wrapper.learner;
  * {@code
  * public final class SomeLearner extends VWLearnerBase<float[]> {
  *   VWScalarsLearner(String command) { super(command); }
- *   protected native float[] predict(String example, boolean learn, long nativePointer);
+ *   protected native float[] predictParsed(long parsedExample, boolean learn, long nativePointer);
  * }
  * }
  * </pre>
@@ -40,30 +40,101 @@ abstract class VWLearnerBase<T> extends VWBase implements VWTypedLearner<T> {
         return learnOrPredict(example, false);
     }
 
-    protected abstract T predict(String example, boolean learn, long nativePointer);
+    @Override
+    public final T learn(final CharSequence example) {
+        if (example instanceof String) {
+            return learn((String) example);
+        }
+        return learnOrPredict(toChars(example), 0, example.length(), true);
+    }
+
+    @Override
+    public final T predict(final CharSequence example) {
+        if (example instanceof String) {
+            return predict((String) example);
+        }
+        return learnOrPredict(toChars(example), 0, example.length(), false);
+    }
+
+    @Override
+    public final T learn(final char[] example, final int offset, final int length) {
+        checkExampleRange(example, offset, length);
+        return learnOrPredict(example, offset, length, true);
+    }
+
+    @Override
+    public final T predict(final char[] example, final int offset, final int length) {
+        checkExampleRange(example, offset, length);
+        return learnOrPredict(example, offset, length, false);
+    }
+
+    @Override
+    public final T learn(final SharedContext context, final String[] actions) {
+        return learnOrPredict(context, actions, true);
+    }
+
+    @Override
+    public final T predict(final SharedContext context, final String[] actions) {
+        return learnOrPredict(context, actions, false);
+    }
+
+    @Override
+    public final T predict(final SharedContext context, final long[] actionIds, final ActionSource actions) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(context, actionIds, actions), false);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
 
-    protected abstract T predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected abstract T predictParsed(long parsedExample, boolean learn, long nativePointer);
 
     private T learnOrPredict(final String example, final boolean learn) {
-        lock.lock();
+        parseLock.lock();
         try {
-            if (isOpen()) {
-                return predict(example, learn, nativePointer);
-            }
-            throw new IllegalStateException("Already closed.");
+            return learnOrPredict(parse(example), learn);
         }
         finally {
-            lock.unlock();
+            parseLock.unlock();
         }
     }
 
     private T learnOrPredict(final String[] example, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(example), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    private T learnOrPredict(final char[] example, final int offset, final int length, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(example, offset, length), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    private T learnOrPredict(final SharedContext context, final String[] actions, final boolean learn) {
+        parseLock.lock();
+        try {
+            return learnOrPredict(parse(context, actions), learn);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    private T learnOrPredict(final long parsedExample, final boolean learn) {
         lock.lock();
         try {
-            if (isOpen()) {
-                return predictMultiline(example, learn, nativePointer);
-            }
-            throw new IllegalStateException("Already closed.");
+            return predictParsed(parsedExample, learn, nativePointer);
         }
         finally {
             lock.unlock();
@@ -4,6 +4,7 @@ import com.google.common.base.Splitter;
 import com.indeed.vw.wrapper.jni.NativeUtils;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -73,6 +74,12 @@ final public class VWLearners {
         args.addAll(Splitter.on(' ').splitToList(command));
         return create(args);
     }
+    /**
+     * @return version of the vowpal wabbit library the wrapper runs, e.g. <code>8.4.0</code>, which vowpal wabbit
+     * writes in the header of its cache and model files.
+     */
+    public static native String getVersion();
+
     private static native long initialize(String[] command);
     private static native VWReturnType getReturnType(long nativePointer);
 
@@ -82,5 +89,91 @@ final public class VWLearners {
     // Closing needs to be done here when initialization fails and by VWBase
     static native void performRemainingPasses(long nativePointer);
 
+    // performRemainingPasses is a no-op for learners without several passes.
+    static native boolean hasSeveralPasses(long nativePointer);
+
+    // Runs vw's own parser thread and driver on a plain or gzipped data file, returns the number of examples learned.
+    static native long trainOnFile(long nativePointer, String path);
+
+    // Throws an IllegalStateException for learners with several passes or a cache, whose passes vw's driver would run.
+    static native void checkOnePassDriver(long nativePointer);
+
+    // Stopping also applies to a training which did not reach vw's driver yet, so it is cleared before the next one.
+    static native void setTrainingStopped(long nativePointer, boolean stopped);
+
+    // Example number, sum of losses and weighted labeled examples of the learner.
+    static native double[] getTrainingProgress(long nativePointer);
+
+    // Same as trainOnFile for the bytes written to an ingest ring, returns when the ring is closed and drained.
+    static native long trainOnIngestRing(long nativePointer, long ring);
+
+    static native long newIngestRing(long capacity);
+
+    // Copies up to length bytes of a direct buffer, waiting at most timeoutMillis for space.
+    static native int writeIngestRing(long ring, ByteBuffer bytes, int offset, int length, long timeoutMillis);
+
+    static native boolean drainIngestRing(long ring, long timeoutMillis);
+
+    static native void closeIngestRing(long ring);
+
+    static native void deleteIngestRing(long ring);
+
     static native void saveModel(long nativePointer, String filename);
+
+    static native void enableFeatureHashCache(long nativePointer, int capacity);
+
+    static native long[] getFeatureHashCacheStats(long nativePointer);
+
+    static native void enableReplay(long nativePointer, long maxMemory, String spillDirectory);
+
+    static native long[] getReplayStats(long nativePointer);
+
+    static native long saveModelSnapshot(long nativePointer);
+
+    static native void restoreModelSnapshot(long nativePointer, long snapshot);
+
+    static native long getModelSnapshotSize(long snapshot);
+
+    static native void deleteModelSnapshot(long snapshot);
+
+    // Parsing does not hold the learner lock, the returned pointers are freed by predictParsed of the learner.
+    static native long parseExample(long nativePointer, String example);
+
+    static native long parseMultilineExample(long nativePointer, String[] example);
+
+    // Consecutive multiline examples parsed into a single block.
+    static native long parseMultilineExamples(long nativePointer, String[][] examples);
+
+    // Learns and frees the parsed examples without building a prediction, returns the number of examples learned.
+    static native int learnParsed(long nativePointer, long parsedExample);
+
+    // Frees parsed examples which are not learned.
+    static native void releaseParsed(long nativePointer, long parsedExample);
+
+    static native long parseChars(long nativePointer, char[] example, int offset, int length);
+
+    // Independent examples, e.g. the shared namespaces and the items of a ranking request.
+    static native long parseExamples(long nativePointer, String first, String[] examples);
+
+    static native long parseExamplesFromBuffer(long nativePointer, String first, ByteBuffer lines, int offset, int length);
+
+    static native long parseExamplesFromBytes(long nativePointer, String first, byte[] lines, int offset, int length);
+
+    // Returns 0 when the shared example is not in the cache anymore.
+    static native long parseWithSharedContext(long nativePointer, long sharedContext, String[] example);
+
+    static native long registerSharedContext(long nativePointer, String example);
+
+    static native void removeSharedContext(long nativePointer, long sharedContext);
+
+    static native void configureSharedContextCache(long nativePointer, int maxSize, long timeToLiveMillis);
+
+    // Returns 0 when the shared example is not in the cache anymore, sharedContext is 0 when there is no shared line.
+    static native long parseWithCachedActions(long nativePointer, long sharedContext, long[] actionIds, ActionSource actions);
+
+    static native void invalidateAction(long nativePointer, long actionId);
+
+    static native void invalidateAllActions(long nativePointer);
+
+    static native void configureActionCache(long nativePointer, long maxBytes);
 }
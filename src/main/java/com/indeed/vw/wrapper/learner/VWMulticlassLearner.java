@@ -9,8 +9,5 @@ final public class VWMulticlassLearner extends VWIntLearner {
     }
 
     @Override
-    protected native int predict(String example, boolean learn, long nativePointer);
-
-    @Override
-    protected native int predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native int predictParsed(long parsedExample, boolean learn, long nativePointer);
 }
@@ -7,8 +7,5 @@ public final class VWMultilabelsLearner extends VWLearnerBase<Multilabels> {
     }
 
     @Override
-    protected native Multilabels predict(String example, boolean learn, long nativePointer);
-
-    @Override
-    protected native Multilabels predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native Multilabels predictParsed(long parsedExample, boolean learn, long nativePointer);
 }
@@ -9,10 +9,10 @@ final public class VWProbLearner extends VWFloatLearner {
     }
 
     @Override
-    protected native float predict(String example, boolean learn, long nativePointer);
+    protected native float predictParsed(long parsedExample, boolean learn, long nativePointer);
 
     @Override
-    protected native float predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native float[] predictCrossProductParsed(long parsedExamples, long nativePointer);
 
     public static native String version();
 }
@@ -9,8 +9,8 @@ final public class VWScalarLearner extends VWFloatLearner {
     }
 
     @Override
-    protected native float predict(String example, boolean learn, long nativePointer);
+    protected native float predictParsed(long parsedExample, boolean learn, long nativePointer);
 
     @Override
-    protected native float predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native float[] predictCrossProductParsed(long parsedExamples, long nativePointer);
 }
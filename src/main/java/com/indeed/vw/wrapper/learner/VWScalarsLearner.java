@@ -3,14 +3,18 @@ package com.indeed.vw.wrapper.learner;
 /**
  * @author deak
  */
-final public class VWScalarsLearner extends VWLearnerBase<float[]> {
+final public class VWScalarsLearner extends VWTopKLearnerBase<float[]> {
     VWScalarsLearner(final long nativePointer) {
         super(nativePointer);
     }
 
     @Override
-    protected native float[] predict(String example, boolean learn, long nativePointer);
+    protected native float[] predictParsed(long parsedExample, boolean learn, long nativePointer);
 
+    /**
+     * The best entries are the highest scalars, ids are their 0-based indexes (class <code>id + 1</code> for
+     * <code>--oaa --probabilities</code>).
+     */
     @Override
-    protected native float[] predictMultiline(String[] example, boolean learn, long nativePointer);
+    protected native int predictTopKParsed(long parsedExample, int k, int[] ids, float[] scores, long nativePointer);
 }
@@ -0,0 +1,94 @@
+package com.indeed.vw.wrapper.learner;
+
+/**
+ * Base class of learners whose prediction is a list of scored labels or actions, e.g. <code>--cb_explore_adf</code>
+ * or <code>--oaa 50000 --probabilities</code>.  Next to the full prediction it allows selecting only the best
+ * <code>k</code> entries natively, so that large label spaces are not marshaled to java.
+ *
+ * Subclasses only have to write the native <code>predictTopKParsed</code> method.
+ */
+abstract class VWTopKLearnerBase<T> extends VWLearnerBase<T> {
+    VWTopKLearnerBase(final long nativePointer) {
+        super(nativePointer);
+    }
+
+    /**
+     * Prediction without learning from the example, only the best <code>k</code> entries are returned.
+     * @param example an example upon which the prediction is based
+     * @param k maximum number of entries
+     * @param ids receives the ids of the best entries, best first.
+     * @param scores receives the scores of the best entries.
+     * @return the number of entries written to <code>ids</code> and <code>scores</code>, at most <code>k</code>.
+     */
+    public final int predictTopK(final String example, final int k, final int[] ids, final float[] scores) {
+        checkTopK(k, ids, scores);
+        parseLock.lock();
+        try {
+            return predictTopK(parse(example), k, ids, scores);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #predictTopK(String, int, int[], float[])} for a multiline example.
+     * @param example a multiline example upon which the prediction is based
+     * @param k maximum number of entries
+     * @param ids receives the ids of the best entries, best first.
+     * @param scores receives the scores of the best entries.
+     * @return the number of entries written to <code>ids</code> and <code>scores</code>, at most <code>k</code>.
+     */
+    public final int predictTopK(final String[] example, final int k, final int[] ids, final float[] scores) {
+        checkTopK(k, ids, scores);
+        parseLock.lock();
+        try {
+            return predictTopK(parse(example), k, ids, scores);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #predictTopK(String[], int, int[], float[])} for the multiline example made of the shared example
+     * of <code>context</code> followed by the actions <code>actionIds</code> taken from the native action cache, see
+     * {@link VWTypedLearner#predict(SharedContext, long[], ActionSource)}.
+     * @param context shared example registered by this learner, null when the example has no shared line.
+     * @param actionIds ids of the actions in the order of the multiline example.
+     * @param actions source of the examples of actions which are not cached.
+     * @param k maximum number of entries
+     * @param ids receives the ids of the best entries, best first.
+     * @param scores receives the scores of the best entries.
+     * @return the number of entries written to <code>ids</code> and <code>scores</code>, at most <code>k</code>.
+     */
+    public final int predictTopK(final SharedContext context, final long[] actionIds, final ActionSource actions,
+                                 final int k, final int[] ids, final float[] scores) {
+        checkTopK(k, ids, scores);
+        parseLock.lock();
+        try {
+            return predictTopK(parse(context, actionIds, actions), k, ids, scores);
+        }
+        finally {
+            parseLock.unlock();
+        }
+    }
+
+    protected abstract int predictTopKParsed(long parsedExample, int k, int[] ids, float[] scores, long nativePointer);
+
+    private int predictTopK(final long parsedExample, final int k, final int[] ids, final float[] scores) {
+        lock.lock();
+        try {
+            return predictTopKParsed(parsedExample, k, ids, scores, nativePointer);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private static void checkTopK(final int k, final int[] ids, final float[] scores) {
+        if (k < 0 || k > ids.length || k > scores.length) {
+            throw new IllegalArgumentException("k=" + k + " ids length=" + ids.length + " scores length=" + scores.length);
+        }
+    }
+}
@@ -39,4 +39,67 @@ public interface VWTypedLearner<T> extends VWLearner {
      * @return a prediction.
      */
     T predict(String[] example);
+
+    /**
+     * Same as {@link #learn(String)} but does not require the example to be converted to a String first.  It is
+     * still copied once before it is encoded, what it saves is the allocation of a String per example.
+     * @param example an example from which to learn.
+     * @return a prediction after the model has been updated.
+     */
+    T learn(CharSequence example);
+
+    /**
+     * Same as {@link #predict(String)} but does not require the example to be converted to a String first.  It is
+     * still copied once before it is encoded, what it saves is the allocation of a String per example.
+     * @param example an example upon which the prediction is based
+     * @return a prediction.
+     */
+    T predict(CharSequence example);
+
+    /**
+     * Learn from the example stored in <code>example[offset, offset + length)</code>.
+     * @param example buffer with an example from which to learn.
+     * @param offset index of the first character of the example.
+     * @param length number of characters in the example.
+     * @return a prediction after the model has been updated.
+     */
+    T learn(char[] example, int offset, int length);
+
+    /**
+     * Prediction for the example stored in <code>example[offset, offset + length)</code>.
+     * @param example buffer with an example upon which the prediction is based
+     * @param offset index of the first character of the example.
+     * @param length number of characters in the example.
+     * @return a prediction.
+     */
+    T predict(char[] example, int offset, int length);
+
+    /**
+     * Same as {@link #learn(String[])} for the multiline example made of the shared example of
+     * <code>context</code> followed by <code>actions</code>.
+     * @param context shared example registered by this learner.
+     * @param actions the remaining lines of the multiline example.
+     * @return a prediction after the model has been updated.
+     */
+    T learn(SharedContext context, String[] actions);
+
+    /**
+     * Same as {@link #predict(String[])} for the multiline example made of the shared example of
+     * <code>context</code> followed by <code>actions</code>.
+     * @param context shared example registered by this learner.
+     * @param actions the remaining lines of the multiline example.
+     * @return a prediction.
+     */
+    T predict(SharedContext context, String[] actions);
+
+    /**
+     * Prediction from a multiline example made of the shared example of <code>context</code> followed by the actions
+     * <code>actionIds</code>.  Actions are parsed once and kept in a native cache of this learner, only the actions
+     * which are not cached are asked from <code>actions</code>.
+     * @param context shared example registered by this learner, null when the example has no shared line.
+     * @param actionIds ids of the actions in the order of the multiline example.
+     * @param actions source of the examples of actions which are not cached.
+     * @return a prediction.
+     */
+    T predict(SharedContext context, long[] actionIds, ActionSource actions);
 }
@@ -0,0 +1,214 @@
+package com.indeed.vw.wrapper.ranking;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.indeed.vw.wrapper.learner.ActionSource;
+import com.indeed.vw.wrapper.learner.SharedContext;
+import com.indeed.vw.wrapper.learner.VWActionScoresLearner;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scatter-gather ranking of large candidate sets with <code>--cb_adf</code> like models. <p>
+ *
+ * Candidates are split into chunks which are scored in parallel, each chunk is one multiline example made of
+ * the shared example and the actions of the chunk. A learner only scores one example at a time, so chunks run on
+ * a pool of replicas of the same model, and the shared example is registered once per replica and request. <p>
+ *
+ * Every chunk returns its own top K, which are merged into the global top K. Chunks which did not finish before
+ * the deadline are dropped and the result is marked as incomplete. <p>
+ *
+ * Replicas and executor are owned by the caller. This class is thread safe. <p>
+ */
+public class RankingExecutor {
+    private final BlockingQueue<VWActionScoresLearner> replicas;
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    /**
+     * @param replicas learners loaded with the same model
+     * @param executor executor of chunks, it should have about as many threads as there are replicas
+     * @param chunkSize number of candidates scored by a single prediction call
+     */
+    public RankingExecutor(@Nonnull final List<VWActionScoresLearner> replicas,
+                           @Nonnull final ExecutorService executor,
+                           final int chunkSize) {
+        Preconditions.checkArgument(!replicas.isEmpty(), "At least one replica is required");
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive: " + chunkSize);
+        this.replicas = new ArrayBlockingQueue<>(replicas.size(), false, replicas);
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Score all candidates and return the k with the lowest costs. <p>
+     *
+     * @param sharedExample shared example including its label, e.g. "shared |user id=42", null if there is none
+     * @param candidateIds ids of the candidate actions
+     * @param candidates source of the action examples which are not in the action caches of the replicas
+     * @param k number of best candidates to return
+     * @param timeout time after which chunks still running are dropped
+     * @param unit unit of timeout
+     * @return best candidates scored before the deadline
+     * @throws InterruptedException if interrupted while waiting for the chunks
+     */
+    public RankingResult rank(@Nullable final String sharedExample,
+                              @Nonnull final long[] candidateIds,
+                              @Nonnull final ActionSource candidates,
+                              final int k,
+                              final long timeout,
+                              @Nonnull final TimeUnit unit) throws InterruptedException {
+        Preconditions.checkArgument(k > 0, "k must be positive: " + k);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final ConcurrentMap<VWActionScoresLearner, SharedContext> contexts = new ConcurrentHashMap<>();
+        final List<Chunk> chunks = new ArrayList<>();
+        for (int start = 0; start < candidateIds.length; start += chunkSize) {
+            final long[] chunkIds = Arrays.copyOfRange(candidateIds, start, Math.min(start + chunkSize, candidateIds.length));
+            chunks.add(new Chunk(sharedExample, chunkIds, candidates, k, deadline, contexts));
+        }
+        try {
+            final List<Future<Scored[]>> results = executor.invokeAll(chunks, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            return merge(chunks, results, k);
+        } finally {
+            // Chunks which missed the deadline may still register a context after this, it then expires in the
+            // native cache of the replica.
+            for (final SharedContext context : contexts.values()) {
+                context.close();
+            }
+        }
+    }
+
+    private static RankingResult merge(final List<Chunk> chunks, final List<Future<Scored[]>> results, final int k) {
+        final List<Scored> merged = new ArrayList<>();
+        int scoredCandidates = 0;
+        boolean complete = true;
+        for (int i = 0; i < results.size(); i++) {
+            final Scored[] scored = get(results.get(i));
+            if (scored == null) {
+                complete = false;
+            } else {
+                merged.addAll(Arrays.asList(scored));
+                scoredCandidates += chunks.get(i).actionIds.length;
+            }
+        }
+        Collections.sort(merged, BY_SCORE);
+        final int count = Math.min(k, merged.size());
+        final long[] actionIds = new long[count];
+        final float[] scores = new float[count];
+        for (int i = 0; i < count; i++) {
+            actionIds[i] = merged.get(i).actionId;
+            scores[i] = merged.get(i).score;
+        }
+        return new RankingResult(actionIds, scores, scoredCandidates, complete);
+    }
+
+    @Nullable
+    private static Scored[] get(final Future<Scored[]> result) {
+        if (result.isCancelled()) {
+            return null;
+        }
+        try {
+            return result.get();
+        } catch (final CancellationException e) {
+            return null;
+        } catch (final InterruptedException e) {
+            // invokeAll returns completed or cancelled futures only.
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (final ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static final Comparator<Scored> BY_SCORE = new Comparator<Scored>() {
+        @Override
+        public int compare(final Scored o1, final Scored o2) {
+            return Float.compare(o1.score, o2.score);
+        }
+    };
+
+    private static final class Scored {
+        private final long actionId;
+        private final float score;
+
+        private Scored(final long actionId, final float score) {
+            this.actionId = actionId;
+            this.score = score;
+        }
+    }
+
+    private final class Chunk implements Callable<Scored[]> {
+        @Nullable
+        private final String sharedExample;
+        private final long[] actionIds;
+        private final ActionSource candidates;
+        private final int k;
+        private final long deadline;
+        private final ConcurrentMap<VWActionScoresLearner, SharedContext> contexts;
+
+        private Chunk(@Nullable final String sharedExample, final long[] actionIds, final ActionSource candidates,
+                      final int k, final long deadline, final ConcurrentMap<VWActionScoresLearner, SharedContext> contexts) {
+            this.sharedExample = sharedExample;
+            this.actionIds = actionIds;
+            this.candidates = candidates;
+            this.k = Math.min(k, actionIds.length);
+            this.deadline = deadline;
+            this.contexts = contexts;
+        }
+
+        /**
+         * @return top k of the chunk, or null when no replica became available before the deadline
+         */
+        @Override
+        @Nullable
+        public Scored[] call() throws InterruptedException {
+            final VWActionScoresLearner replica = replicas.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (replica == null) {
+                return null;
+            }
+            try {
+                final int[] positions = new int[k];
+                final float[] scores = new float[k];
+                final int count = replica.predictTopK(sharedContext(replica), actionIds, candidates, k, positions, scores);
+                final Scored[] scored = new Scored[count];
+                for (int i = 0; i < count; i++) {
+                    // cb_adf identifies actions by their position in the multiline example.
+                    scored[i] = new Scored(actionIds[positions[i]], scores[i]);
+                }
+                return scored;
+            } finally {
+                replicas.add(replica);
+            }
+        }
+
+        @Nullable
+        private SharedContext sharedContext(final VWActionScoresLearner replica) {
+            if (sharedExample == null) {
+                return null;
+            }
+            // A replica is used by one chunk at a time, so there is no race between get and put.
+            SharedContext context = contexts.get(replica);
+            if (context == null) {
+                context = replica.registerSharedContext(sharedExample);
+                contexts.put(replica, context);
+            }
+            return context;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.indeed.vw.wrapper.ranking;
+
+import java.util.Arrays;
+
+/**
+ * Best candidates found by {@link RankingExecutor}, best first. <p>
+ */
+public class RankingResult {
+    private final long[] actionIds;
+    private final float[] scores;
+    private final int scoredCandidates;
+    private final boolean complete;
+
+    public RankingResult(final long[] actionIds, final float[] scores, final int scoredCandidates, final boolean complete) {
+        this.actionIds = actionIds;
+        this.scores = scores;
+        this.scoredCandidates = scoredCandidates;
+        this.complete = complete;
+    }
+
+    /**
+     * @return ids of the best candidates, best first
+     */
+    public long[] getActionIds() {
+        return actionIds;
+    }
+
+    /**
+     * @return scores (costs) of the best candidates
+     */
+    public float[] getScores() {
+        return scores;
+    }
+
+    /**
+     * @return number of candidates which were scored before the deadline
+     */
+    public int getScoredCandidates() {
+        return scoredCandidates;
+    }
+
+    /**
+     * @return false when the deadline expired and the result only covers part of the candidates
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        return "RankingResult{" +
+                "actionIds=" + Arrays.toString(actionIds) +
+                ", scores=" + Arrays.toString(scores) +
+                ", scoredCandidates=" + scoredCandidates +
+                ", complete=" + complete +
+                '}';
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Ranking of candidate sets which are too large for a single prediction call. <p>
+ */
+package com.indeed.vw.wrapper.ranking;
@@ -0,0 +1,156 @@
+package com.indeed.vw.wrapper.reactive;
+
+import com.google.common.base.Preconditions;
+import com.indeed.vw.wrapper.learner.VWTypedLearner;
+import org.reactivestreams.Processor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reactive Streams processor which learns examples and publishes the prediction of every example, in the order of the
+ * examples. <p>
+ *
+ * Examples are requested from upstream as predictions are delivered downstream, so at most <code>capacity</code>
+ * examples are requested, queued or learned and waiting for downstream demand: a slow subscriber slows the learner
+ * down, and a slow learner slows the publisher down. <p>
+ *
+ * A single subscriber is supported.  Errors of the publisher and of the learner are signalled after the predictions
+ * of the examples learned before. <p>
+ *
+ * @param <T> type of the predictions
+ */
+public class LearnerProcessor<T> extends LearnerSubscriberBase implements Processor<String, T> {
+    private final VWTypedLearner<T> learner;
+    private final AtomicReference<Subscriber<? super T>> downstream = new AtomicReference<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final ArrayDeque<T> predictions = new ArrayDeque<>();
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private boolean terminated;
+
+    /**
+     * Processor learning at most 1024 examples ahead.
+     * @param learner learner, it must not be used by other threads until the processor terminates
+     * @param executor executor running the learner and delivering the predictions
+     */
+    public LearnerProcessor(@Nonnull final VWTypedLearner<T> learner, @Nonnull final Executor executor) {
+        this(learner, executor, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param learner learner, it must not be used by other threads until the processor terminates
+     * @param executor executor running the learner and delivering the predictions
+     * @param capacity maximum number of examples requested and whose prediction is not yet delivered
+     */
+    public LearnerProcessor(@Nonnull final VWTypedLearner<T> learner, @Nonnull final Executor executor, final int capacity) {
+        super(executor, capacity);
+        this.learner = learner;
+    }
+
+    @Override
+    public void subscribe(final Subscriber<? super T> subscriber) {
+        Preconditions.checkNotNull(subscriber);
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(final long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(final long n) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Requested " + n + " predictions");
+                    cancelUpstream();
+                } else {
+                    long current;
+                    long next;
+                    do {
+                        current = requested.get();
+                        next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                    } while (!requested.compareAndSet(current, next));
+                }
+                schedule();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                schedule();
+            }
+        });
+    }
+
+    @Override
+    void drain() {
+        while (!terminated) {
+            if (cancelled) {
+                terminated = true;
+                break;
+            }
+            final Subscriber<? super T> subscriber = downstream.get();
+            if (subscriber != null) {
+                final long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand && !predictions.isEmpty() && !cancelled) {
+                    subscriber.onNext(predictions.poll());
+                    emitted++;
+                }
+                if (emitted > 0) {
+                    if (demand != Long.MAX_VALUE) {
+                        requested.addAndGet(-emitted);
+                    }
+                    requestUpstream(emitted);
+                }
+            }
+
+            final boolean completed = done;
+            if (failure == null && !examples.isEmpty()) {
+                learn();
+                continue;
+            }
+            if (subscriber == null || !predictions.isEmpty()) {
+                return;
+            }
+            if (failure != null || error != null) {
+                terminated = true;
+                subscriber.onError(failure != null ? failure : error);
+            } else if (completed && examples.isEmpty()) {
+                terminated = true;
+                subscriber.onComplete();
+            }
+            return;
+        }
+        examples.clear();
+        predictions.clear();
+    }
+
+    private void learn() {
+        String example;
+        int learned = 0;
+        try {
+            while (learned < maxBatchSize && (example = examples.poll()) != null) {
+                predictions.add(learner.learn(example));
+                learned++;
+            }
+        } catch (final RuntimeException e) {
+            failure = e;
+            cancelUpstream();
+            examples.clear();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.indeed.vw.wrapper.reactive;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Reactive Streams subscriber which trains a learner, see {@link VWLearner#learnNoResult(List)}. <p>
+ *
+ * At most <code>capacity</code> examples are requested and not yet learned, more examples are requested as batches
+ * are learned, so the publisher is slowed down to the throughput of the learner instead of filling a queue. <p>
+ *
+ * <pre>
+ * LearnerSubscriber subscriber = new LearnerSubscriber(learner, executor);
+ * examples.subscribe(subscriber);
+ * long learned = subscriber.getCompletion().get();
+ * </pre>
+ */
+public class LearnerSubscriber extends LearnerSubscriberBase {
+    private final VWLearner learner;
+    private final SettableFuture<Long> completion = SettableFuture.create();
+    private long learned;
+    private volatile boolean cancelled;
+
+    /**
+     * Subscriber learning at most 1024 examples ahead.
+     * @param learner learner, it must not be used by other threads until the completion is done
+     * @param executor executor running the learner
+     */
+    public LearnerSubscriber(@Nonnull final VWLearner learner, @Nonnull final Executor executor) {
+        this(learner, executor, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param learner learner, it must not be used by other threads until the completion is done
+     * @param executor executor running the learner
+     * @param capacity maximum number of examples requested and not yet learned
+     */
+    public LearnerSubscriber(@Nonnull final VWLearner learner, @Nonnull final Executor executor, final int capacity) {
+        super(executor, capacity);
+        this.learner = learner;
+    }
+
+    /**
+     * @return the number of examples learned when the publisher completes or the subscriber is cancelled, it fails
+     * with the error of the publisher or of the learner
+     */
+    public ListenableFuture<Long> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Stop learning, the queued examples are dropped.
+     */
+    public void cancel() {
+        cancelled = true;
+        cancelUpstream();
+        schedule();
+    }
+
+    @Override
+    void drain() {
+        if (completion.isDone()) {
+            examples.clear();
+            return;
+        }
+        while (!cancelled) {
+            final boolean terminated = done;
+            final List<String> batch = new ArrayList<>();
+            String example;
+            while (batch.size() < maxBatchSize && (example = examples.poll()) != null) {
+                batch.add(example);
+            }
+            if (batch.isEmpty()) {
+                if (terminated) {
+                    if (error != null) {
+                        completion.setException(error);
+                    } else {
+                        completion.set(learned);
+                    }
+                }
+                return;
+            }
+            try {
+                learner.learnNoResult(batch);
+            } catch (final RuntimeException e) {
+                cancelUpstream();
+                examples.clear();
+                completion.setException(e);
+                return;
+            }
+            learned += batch.size();
+            requestUpstream(batch.size());
+        }
+        examples.clear();
+        completion.set(learned);
+    }
+}
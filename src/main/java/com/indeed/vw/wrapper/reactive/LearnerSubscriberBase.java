@@ -0,0 +1,106 @@
+package com.indeed.vw.wrapper.reactive;
+
+import com.google.common.base.Preconditions;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Subscriber of examples which requests at most <code>capacity</code> examples ahead and learns them in batches on
+ * an executor. <p>
+ *
+ * Every signal schedules a drain of the received examples.  Drains never run concurrently, so the learner is only
+ * used by one thread at a time, and a drain learns the examples received while the previous one was learning, up to
+ * half of the capacity at once: batches are small when the learner keeps up and grow when it falls behind. <p>
+ */
+abstract class LearnerSubscriberBase implements Subscriber<String> {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    final int capacity;
+    final int maxBatchSize;
+    final Queue<String> examples = new ConcurrentLinkedQueue<>();
+    volatile boolean done;
+    volatile Throwable error;
+
+    private final Executor executor;
+    private final AtomicReference<Subscription> upstream = new AtomicReference<>();
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    };
+
+    LearnerSubscriberBase(final Executor executor, final int capacity) {
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive: " + capacity);
+        this.executor = executor;
+        this.capacity = capacity;
+        this.maxBatchSize = Math.max(1, capacity / 2);
+    }
+
+    @Override
+    public void onSubscribe(final Subscription subscription) {
+        Preconditions.checkNotNull(subscription);
+        if (!upstream.compareAndSet(null, subscription)) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(capacity);
+    }
+
+    @Override
+    public void onNext(final String example) {
+        Preconditions.checkNotNull(example);
+        examples.offer(example);
+        schedule();
+    }
+
+    @Override
+    public void onError(final Throwable t) {
+        Preconditions.checkNotNull(t);
+        error = t;
+        done = true;
+        schedule();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        schedule();
+    }
+
+    /**
+     * Learn the queued examples and deliver the results, called by one thread at a time.
+     */
+    abstract void drain();
+
+    final void schedule() {
+        if (pendingDrains.getAndIncrement() == 0) {
+            executor.execute(drain);
+        }
+    }
+
+    final void requestUpstream(final long n) {
+        final Subscription subscription = upstream.get();
+        if (subscription != null && n > 0) {
+            subscription.request(n);
+        }
+    }
+
+    final void cancelUpstream() {
+        final Subscription subscription = upstream.get();
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Reactive Streams adapters of learners, with backpressure. <p>
+ *
+ * This package needs the optional dependency <code>org.reactivestreams:reactive-streams</code>. <p>
+ */
+package com.indeed.vw.wrapper.reactive;
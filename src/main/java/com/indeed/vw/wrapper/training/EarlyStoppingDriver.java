@@ -0,0 +1,339 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.indeed.vw.wrapper.learner.VWFloatLearner;
+import com.indeed.vw.wrapper.learner.VWIntLearner;
+import com.indeed.vw.wrapper.learner.VWLearner;
+import com.indeed.vw.wrapper.progvalidation.ProgressiveValidation;
+import org.apache.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trains a learner pass after pass, scores a holdout set after every pass and stops once the score stops improving.
+ * <p>
+ *
+ * The passes are driven from java, e.g. over the epochs of an {@link ExampleStore}, so the learner is created without
+ * <code>--passes</code>.  After every pass the holdout examples are predicted, without learning them, and scored by a
+ * new {@link ProgressiveValidation}.  The training stops after <code>patience</code> passes without an improvement of
+ * the best score, and the learner is rolled back to the model of the best pass, which is kept in native memory
+ * (see {@link VWLearner#saveModelSnapshot()}).  The timing of every pass is logged and returned. <p>
+ *
+ * <pre>
+ * EarlyStoppingResult result = EarlyStoppingDriver.builder(learner)
+ *         .holdout(holdoutExamples)
+ *         .validation(rmse)
+ *         .maxPasses(20)
+ *         .build()
+ *         .train(EarlyStoppingDriver.epochs(store, new Random(42)));
+ * </pre>
+ *
+ * Unlike <code>--passes</code>, every pass goes through the examples like new ones, e.g. <code>--decay_learning_rate</code>
+ * does not apply between passes. <p>
+ */
+public class EarlyStoppingDriver {
+    private static final Logger logger = Logger.getLogger(EarlyStoppingDriver.class);
+
+    private final VWLearner learner;
+    private final HoldoutPredictor predictor;
+    private final Iterable<String> holdout;
+    private final Function<String, Double> labels;
+    private final Supplier<? extends ProgressiveValidation> validation;
+    private final int maxPasses;
+    private final int patience;
+    private final double minImprovement;
+    private final boolean restoreBest;
+    private final ModelSnapshots snapshots;
+
+    private EarlyStoppingDriver(final Builder builder) {
+        learner = builder.learner;
+        predictor = builder.predictor;
+        holdout = builder.holdout;
+        labels = builder.labels;
+        validation = builder.validation;
+        maxPasses = builder.maxPasses;
+        patience = builder.patience;
+        minImprovement = builder.minImprovement;
+        restoreBest = builder.restoreBest;
+        snapshots = builder.snapshots != null ? builder.snapshots : new ModelSnapshots.OfLearner(learner);
+    }
+
+    /**
+     * @param learner learner predicting the scores of the holdout examples
+     * @return builder
+     */
+    public static Builder builder(@Nonnull final VWFloatLearner learner) {
+        return new Builder(learner, new HoldoutPredictor() {
+            @Override
+            public double predict(final String example) {
+                return learner.predict(example);
+            }
+        });
+    }
+
+    /**
+     * @param learner learner predicting the classes of the holdout examples
+     * @return builder
+     */
+    public static Builder builder(@Nonnull final VWIntLearner learner) {
+        return new Builder(learner, new HoldoutPredictor() {
+            @Override
+            public double predict(final String example) {
+                return learner.predict(example);
+            }
+        });
+    }
+
+    /**
+     * @param learner learner to train
+     * @param predictor prediction of the learner for a holdout example
+     * @return builder
+     */
+    public static Builder builder(@Nonnull final VWLearner learner, @Nonnull final HoldoutPredictor predictor) {
+        return new Builder(learner, predictor);
+    }
+
+    /**
+     * @param store training examples
+     * @param random order of the examples of every pass, null to learn them in the order of the store
+     * @return passes over the epochs of the store, see {@link ExampleStore#learnEpoch(VWLearner, Random)}
+     */
+    public static TrainingPass epochs(@Nonnull final ExampleStore store, @Nullable final Random random) {
+        return new TrainingPass() {
+            @Override
+            public long train(final VWLearner learner, final int pass) throws IOException {
+                return store.learnEpoch(learner, random);
+            }
+        };
+    }
+
+    /**
+     * @param file plain or gzipped training file, see {@link VWTrainer#train(Path)}
+     * @return passes over the file
+     */
+    public static TrainingPass file(@Nonnull final Path file) {
+        return new TrainingPass() {
+            @Override
+            public long train(final VWLearner learner, final int pass) throws IOException {
+                return new VWTrainer(learner).train(file).getExamples();
+            }
+        };
+    }
+
+    /**
+     * Run passes until the holdout score stops improving or <code>maxPasses</code> passes ran.
+     * @param pass one pass over the training data
+     * @return score and timing of every pass
+     * @throws IOException if the training data can not be read
+     */
+    public EarlyStoppingResult train(@Nonnull final TrainingPass pass) throws IOException {
+        final List<PassResult> passes = new ArrayList<>();
+        PassResult best = null;
+        Closeable bestSnapshot = null;
+        int passesWithoutImprovement = 0;
+        try {
+            for (int i = 1; i <= maxPasses && passesWithoutImprovement < patience; i++) {
+                final long trainingStart = System.nanoTime();
+                final long examples = pass.train(learner, i);
+                final long evaluationStart = System.nanoTime();
+                final ProgressiveValidation score = evaluate();
+                final long evaluationEnd = System.nanoTime();
+
+                final boolean improved = best == null || isImprovement(score, best.getScore());
+                long snapshotNanos = 0;
+                if (improved && restoreBest && i < maxPasses) {
+                    if (bestSnapshot != null) {
+                        bestSnapshot.close();
+                    }
+                    bestSnapshot = snapshots.save();
+                    snapshotNanos = System.nanoTime() - evaluationEnd;
+                }
+                final PassResult result = new PassResult(i, examples, score.getMetric(), score.getScore(), improved,
+                        evaluationStart - trainingStart, evaluationEnd - evaluationStart, snapshotNanos);
+                logger.info(result);
+                passes.add(result);
+                if (improved) {
+                    best = result;
+                    passesWithoutImprovement = 0;
+                } else {
+                    passesWithoutImprovement++;
+                }
+            }
+
+            final PassResult last = passes.get(passes.size() - 1);
+            final boolean stoppedEarly = last.getPass() < maxPasses;
+            boolean restored = false;
+            long restoreNanos = 0;
+            if (restoreBest && best != last) {
+                final long restoreStart = System.nanoTime();
+                snapshots.restore(bestSnapshot);
+                restoreNanos = System.nanoTime() - restoreStart;
+                restored = true;
+                logger.info("Restored the model of pass " + best.getPass() + " in "
+                        + TimeUnit.NANOSECONDS.toMillis(restoreNanos) + "ms");
+            }
+            return new EarlyStoppingResult(passes, best, stoppedEarly, restored, restoreNanos);
+        }
+        finally {
+            if (bestSnapshot != null) {
+                bestSnapshot.close();
+            }
+        }
+    }
+
+    private ProgressiveValidation evaluate() {
+        final ProgressiveValidation score = validation.get();
+        long count = 0;
+        for (final String example : holdout) {
+            score.updateScore(predictor.predict(example), labels.apply(example));
+            count++;
+        }
+        if (count == 0) {
+            throw new IllegalStateException("The holdout set is empty.");
+        }
+        return score;
+    }
+
+    private boolean isImprovement(final ProgressiveValidation score, final double best) {
+        return score.biggerIsBetter()
+                ? score.getScore() > best + minImprovement
+                : score.getScore() < best - minImprovement;
+    }
+
+    /**
+     * @param example example in vw text format with a simple label, e.g. <code>-1 2.0 'tag |x a</code>
+     * @return the first token of the example, which is the label of simple, binary and multiclass examples
+     */
+    static double parseLabel(final String example) {
+        int end = 0;
+        while (end < example.length() && example.charAt(end) != ' ' && example.charAt(end) != '\t'
+                && example.charAt(end) != '|') {
+            end++;
+        }
+        if (end == 0) {
+            throw new IllegalArgumentException("Holdout example without label: " + example);
+        }
+        return Double.parseDouble(example.substring(0, end));
+    }
+
+    public static class Builder {
+        private final VWLearner learner;
+        private final HoldoutPredictor predictor;
+        private Iterable<String> holdout;
+        private Function<String, Double> labels;
+        private Supplier<? extends ProgressiveValidation> validation;
+        private int maxPasses = 10;
+        private int patience = 3;
+        private double minImprovement = 0;
+        private boolean restoreBest = true;
+        private ModelSnapshots snapshots;
+
+        private Builder(final VWLearner learner, final HoldoutPredictor predictor) {
+            this.learner = Preconditions.checkNotNull(learner);
+            this.predictor = Preconditions.checkNotNull(predictor);
+        }
+
+        /**
+         * Holdout examples whose label is their first token, which is the case of simple, binary and multiclass
+         * examples. <p>
+         *
+         * @param examples examples which are not learned, they are iterated after every pass
+         * @return builder
+         */
+        public Builder holdout(@Nonnull final Iterable<String> examples) {
+            return holdout(examples, new Function<String, Double>() {
+                @Override
+                public Double apply(final String example) {
+                    return parseLabel(example);
+                }
+            });
+        }
+
+        /**
+         * @param examples examples which are not learned, they are iterated after every pass
+         * @param labels actual value of an example, as scored by the validation
+         * @return builder
+         */
+        public Builder holdout(@Nonnull final Iterable<String> examples, @Nonnull final Function<String, Double> labels) {
+            this.holdout = Preconditions.checkNotNull(examples);
+            this.labels = Preconditions.checkNotNull(labels);
+            return this;
+        }
+
+        /**
+         * @param validation creates the metric of the holdout set, it is called after every pass
+         * @return builder
+         */
+        public Builder validation(@Nonnull final Supplier<? extends ProgressiveValidation> validation) {
+            this.validation = Preconditions.checkNotNull(validation);
+            return this;
+        }
+
+        /**
+         * @param maxPasses maximum number of passes, default is 10
+         * @return builder
+         */
+        public Builder maxPasses(final int maxPasses) {
+            Preconditions.checkArgument(maxPasses > 0, "Max passes must be positive: " + maxPasses);
+            this.maxPasses = maxPasses;
+            return this;
+        }
+
+        /**
+         * @param patience number of passes tolerated without improvement of the holdout score, default is 3 like
+         *                 <code>--early_terminate</code>
+         * @return builder
+         */
+        public Builder patience(final int patience) {
+            Preconditions.checkArgument(patience > 0, "Patience must be positive: " + patience);
+            this.patience = patience;
+            return this;
+        }
+
+        /**
+         * @param minImprovement smallest change of the holdout score which counts as an improvement, default is 0
+         * @return builder
+         */
+        public Builder minImprovement(final double minImprovement) {
+            Preconditions.checkArgument(minImprovement >= 0, "Min improvement must not be negative: " + minImprovement);
+            this.minImprovement = minImprovement;
+            return this;
+        }
+
+        /**
+         * Keep the learner as it is after the last pass instead of rolling it back to the best pass, so that no
+         * snapshot is saved. <p>
+         *
+         * @return builder
+         */
+        public Builder keepLastPass() {
+            restoreBest = false;
+            return this;
+        }
+
+        /**
+         * @param snapshots saves and restores the model instead of the learner, e.g. in tests without native code
+         * @return builder
+         */
+        Builder snapshots(@Nonnull final ModelSnapshots snapshots) {
+            this.snapshots = Preconditions.checkNotNull(snapshots);
+            return this;
+        }
+
+        public EarlyStoppingDriver build() {
+            Preconditions.checkState(holdout != null, "Holdout examples are required");
+            Preconditions.checkState(validation != null, "Validation is required");
+            return new EarlyStoppingDriver(this);
+        }
+    }
+}
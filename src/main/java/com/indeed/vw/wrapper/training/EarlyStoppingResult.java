@@ -0,0 +1,70 @@
+package com.indeed.vw.wrapper.training;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes run by an {@link EarlyStoppingDriver}. <p>
+ */
+public class EarlyStoppingResult {
+    private final List<PassResult> passes;
+    private final PassResult bestPass;
+    private final boolean stoppedEarly;
+    private final boolean restored;
+    private final long restoreNanos;
+
+    public EarlyStoppingResult(final List<PassResult> passes,
+                               final PassResult bestPass,
+                               final boolean stoppedEarly,
+                               final boolean restored,
+                               final long restoreNanos) {
+        this.passes = Collections.unmodifiableList(passes);
+        this.bestPass = bestPass;
+        this.stoppedEarly = stoppedEarly;
+        this.restored = restored;
+        this.restoreNanos = restoreNanos;
+    }
+
+    /**
+     * @return every pass which ran, in order
+     */
+    public List<PassResult> getPasses() {
+        return passes;
+    }
+
+    /**
+     * @return the first pass with the best holdout score
+     */
+    public PassResult getBestPass() {
+        return bestPass;
+    }
+
+    /**
+     * @return whether the training stopped before the maximum number of passes
+     */
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+    /**
+     * @return whether the learner was rolled back to the model of the best pass
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public long getRestoreTime(final TimeUnit unit) {
+        return unit.convert(restoreNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "EarlyStoppingResult{" +
+                "passes=" + passes.size() +
+                ", bestPass=" + bestPass +
+                ", stoppedEarly=" + stoppedEarly +
+                ", restored=" + restored +
+                '}';
+    }
+}
@@ -0,0 +1,497 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Append-only store of examples kept in memory mapped files, so that the examples of multi-epoch training neither
+ * live on the Java heap nor have to fit in RAM. <p>
+ *
+ * The examples are stored as UTF-8 lines in a data file, multiline examples end with an empty line, and the end
+ * offset of every example is stored in an index file next to it (<code>file.idx</code>).  An epoch iterates over
+ * batches of whole examples which are passed as they are to {@link VWLearner#learnNoResult(ByteBuffer)}: <p>
+ *
+ * <pre>
+ * try (ExampleStore store = ExampleStore.create(Paths.get("/tmp/examples"))) {
+ *     for (String example : examples) {
+ *         store.append(example);
+ *     }
+ *     for (int epoch = 0; epoch &lt; 10; epoch++) {
+ *         store.learnEpoch(learner, new Random(epoch));
+ *     }
+ * }
+ * </pre>
+ *
+ * Sequential batches are slices of the mapped data file and are parsed in place.  Shuffled batches gather the
+ * examples of a random permutation into a direct buffer, the permutation itself is stored off heap too. <p>
+ *
+ * This class is not thread safe.  Mapped files are unmapped by the garbage collector once the store is closed. <p>
+ */
+public class ExampleStore implements Closeable {
+    public static final int DEFAULT_BATCH_SIZE = 16 << 20;
+    private static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    private static final int INDEX_SEGMENT_SHIFT = 27;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final Path file;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final int segmentSize;
+    private final int batchSize;
+    private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private long size;
+    private long sizeInBytes;
+    private boolean closed;
+
+    // Read only mappings of the flushed examples, built again when examples have been appended.
+    private long mappedSize;
+    private final List<LongBuffer> indexSegments = new ArrayList<>();
+    private final List<MappedByteBuffer> dataSegments = new ArrayList<>();
+    private long[] segmentFirstExamples = new long[0];
+
+    private ExampleStore(final Path file, final boolean truncate, final int segmentSize, final int batchSize) throws IOException {
+        Preconditions.checkArgument(batchSize > 0 && batchSize <= segmentSize, "Incorrect batch size: " + batchSize);
+        this.file = file;
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        final StandardOpenOption[] options = truncate
+                ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        data = FileChannel.open(file, options);
+        try {
+            index = FileChannel.open(indexFile(file), options);
+            size = index.size() / 8;
+            // Drops the index entries of examples whose bytes did not reach the data file.
+            final long dataSize = data.size();
+            while (size > 0 && readEnd(index, size - 1) > dataSize) {
+                size--;
+            }
+            sizeInBytes = size > 0 ? readEnd(index, size - 1) : 0;
+            index.truncate(size * 8);
+            index.position(size * 8);
+            // Drops the bytes of an example which was written without its index entry.
+            data.truncate(sizeInBytes);
+            data.position(sizeInBytes);
+        } catch (final IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    private static long readEnd(final FileChannel index, final long example) throws IOException {
+        final ByteBuffer end = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        while (end.hasRemaining()) {
+            if (index.read(end, example * 8 + end.position()) < 0) {
+                throw new EOFException("Truncated index entry " + example);
+            }
+        }
+        return end.getLong(0);
+    }
+
+    /**
+     * Create an empty store, existing files are truncated.
+     * @param file data file, the index is stored in <code>file.idx</code>
+     * @return empty store
+     * @throws IOException if the files can not be created
+     */
+    public static ExampleStore create(@Nonnull final Path file) throws IOException {
+        return new ExampleStore(file, true, DEFAULT_SEGMENT_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Open an existing store, new examples are appended after the stored ones.
+     * @param file data file, the index is stored in <code>file.idx</code>
+     * @return store
+     * @throws IOException if the files can not be opened
+     */
+    public static ExampleStore open(@Nonnull final Path file) throws IOException {
+        return new ExampleStore(file, false, DEFAULT_SEGMENT_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    static ExampleStore create(final Path file, final int segmentSize, final int batchSize) throws IOException {
+        return new ExampleStore(file, true, segmentSize, batchSize);
+    }
+
+    private static Path indexFile(final Path file) {
+        return Paths.get(file.toString() + ".idx");
+    }
+
+    /**
+     * @return number of examples
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes of the examples
+     */
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @param example example in vw text format
+     * @throws IOException if the example can not be written
+     */
+    public void append(@Nonnull final String example) throws IOException {
+        final byte[] bytes = example.getBytes(Charsets.UTF_8);
+        append(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param example multiline example in vw text format, it is stored followed by an empty line
+     * @throws IOException if the example can not be written
+     */
+    public void append(@Nonnull final String[] example) throws IOException {
+        checkOpen();
+        final byte[][] lines = new byte[example.length][];
+        for (int i = 0; i < example.length; i++) {
+            Preconditions.checkArgument(!example[i].isEmpty() && example[i].indexOf('\n') < 0,
+                    "Lines of multiline examples can not be empty nor contain line breaks");
+            lines[i] = example[i].getBytes(Charsets.UTF_8);
+        }
+        for (final byte[] line : lines) {
+            write(line, 0, line.length);
+        }
+        writeByte((byte) '\n');
+        endExample();
+    }
+
+    /**
+     * @param example UTF-8 example without line break
+     * @param offset index of the first byte of the example
+     * @param length number of bytes of the example
+     * @throws IOException if the example can not be written
+     */
+    public void append(@Nonnull final byte[] example, final int offset, final int length) throws IOException {
+        checkOpen();
+        for (int i = offset; i < offset + length; i++) {
+            Preconditions.checkArgument(example[i] != '\n', "Example with a line break, use append(String[])");
+        }
+        write(example, offset, length);
+        endExample();
+    }
+
+    /**
+     * Batches of the examples in the order they were appended.  Every batch is a slice of the mapped data file. <p>
+     *
+     * The epoch covers the examples appended before this call.
+     * @return batches of at most 16MB, or of a single larger example
+     * @throws IOException if the appended examples can not be flushed
+     */
+    public Iterator<ByteBuffer> sequentialEpoch() throws IOException {
+        map();
+        final long count = size;
+        return new BatchIterator() {
+            private long next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            ByteBuffer nextBatch() {
+                final int segment = segmentOf(next);
+                final long segmentEnd = segment + 1 < segmentFirstExamples.length ? segmentFirstExamples[segment + 1] : count;
+                final long batchStart = start(next);
+                // The last example of the segment which ends at most batchSize bytes after batchStart.
+                long low = next;
+                long high = segmentEnd - 1;
+                while (low < high) {
+                    final long middle = (low + high + 1) >>> 1;
+                    if (end(middle) - batchStart <= batchSize) {
+                        low = middle;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                final ByteBuffer batch = slice(segment, next, low);
+                next = low + 1;
+                return batch;
+            }
+        };
+    }
+
+    /**
+     * Batches of the examples in a random order.  The examples are copied into a direct buffer which is reused by
+     * the next batch. <p>
+     *
+     * The epoch covers the examples appended before this call.
+     * @param random source of the permutation, e.g. <code>new Random(seed + epoch)</code>
+     * @return batches of at most 16MB, or of a single larger example
+     * @throws IOException if the appended examples can not be flushed
+     */
+    public Iterator<ByteBuffer> shuffledEpoch(@Nonnull final Random random) throws IOException {
+        map();
+        final long count = size;
+        Preconditions.checkState(count <= Integer.MAX_VALUE / 4, "Too many examples to shuffle: " + count);
+        final IntBuffer permutation = ByteBuffer.allocateDirect((int) count * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        for (int i = 0; i < count; i++) {
+            permutation.put(i, i);
+        }
+        for (int i = (int) count - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int swapped = permutation.get(i);
+            permutation.put(i, permutation.get(j));
+            permutation.put(j, swapped);
+        }
+        return new BatchIterator() {
+            private int next;
+            private ByteBuffer batch = ByteBuffer.allocateDirect(batchSize);
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            ByteBuffer nextBatch() {
+                batch.clear();
+                while (next < count) {
+                    final long example = permutation.get(next);
+                    final ByteBuffer bytes = slice(segmentOf(example), example, example);
+                    if (bytes.remaining() > batch.remaining()) {
+                        if (batch.position() > 0) {
+                            break;
+                        }
+                        batch = ByteBuffer.allocateDirect(bytes.remaining());
+                    }
+                    batch.put(bytes);
+                    next++;
+                }
+                batch.flip();
+                return batch;
+            }
+        };
+    }
+
+    /**
+     * Learn every example once.
+     * @param learner learner
+     * @param random source of the permutation of the examples, null to learn them in the order they were appended
+     * @return the number of lines learned, see {@link VWLearner#learnNoResult(ByteBuffer)}
+     * @throws IOException if the appended examples can not be flushed
+     */
+    public long learnEpoch(@Nonnull final VWLearner learner, @Nullable final Random random) throws IOException {
+        final Iterator<ByteBuffer> epoch = random == null ? sequentialEpoch() : shuffledEpoch(random);
+        long lines = 0;
+        while (epoch.hasNext()) {
+            lines += learner.learnNoResult(epoch.next());
+        }
+        return lines;
+    }
+
+    /**
+     * Write the buffered examples to the files.
+     * @throws IOException if the examples can not be written
+     */
+    public void flush() throws IOException {
+        checkOpen();
+        flushData();
+        flushIndex();
+    }
+
+    private void flushIndex() throws IOException {
+        indexBuffer.flip();
+        while (indexBuffer.hasRemaining()) {
+            index.write(indexBuffer);
+        }
+        indexBuffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            indexSegments.clear();
+            dataSegments.clear();
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Already closed.");
+        }
+    }
+
+    private void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        int written = 0;
+        while (written < length) {
+            if (!dataBuffer.hasRemaining()) {
+                flushData();
+            }
+            final int chunk = Math.min(dataBuffer.remaining(), length - written);
+            dataBuffer.put(bytes, offset + written, chunk);
+            written += chunk;
+        }
+        writeByte((byte) '\n');
+    }
+
+    private void writeByte(final byte b) throws IOException {
+        if (!dataBuffer.hasRemaining()) {
+            flushData();
+        }
+        dataBuffer.put(b);
+    }
+
+    private void flushData() throws IOException {
+        dataBuffer.flip();
+        while (dataBuffer.hasRemaining()) {
+            data.write(dataBuffer);
+        }
+        dataBuffer.clear();
+    }
+
+    private void endExample() throws IOException {
+        sizeInBytes = data.position() + dataBuffer.position();
+        if (!indexBuffer.hasRemaining()) {
+            // Like flush(), the data goes first so that no index entry points past the data file.
+            flushData();
+            flushIndex();
+        }
+        indexBuffer.putLong(sizeInBytes);
+        size++;
+    }
+
+    /**
+     * Map the index and the data files again if examples have been appended since they were mapped.
+     */
+    private void map() throws IOException {
+        checkOpen();
+        flush();
+        if (mappedSize == size) {
+            return;
+        }
+        indexSegments.clear();
+        dataSegments.clear();
+        for (long first = 0; first < size; first += 1L << INDEX_SEGMENT_SHIFT) {
+            final long count = Math.min(1L << INDEX_SEGMENT_SHIFT, size - first);
+            indexSegments.add(index.map(FileChannel.MapMode.READ_ONLY, first * 8, count * 8)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer());
+        }
+
+        // Segments are at most segmentSize bytes long and always end with an example.
+        final List<Long> firstExamples = new ArrayList<>();
+        long first = 0;
+        while (first < size) {
+            final long segmentStart = start(first);
+            long low = first;
+            long high = size - 1;
+            while (low < high) {
+                final long middle = (low + high + 1) >>> 1;
+                if (end(middle) - segmentStart <= segmentSize) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (end(low) - segmentStart > segmentSize) {
+                throw new IOException("Example " + first + " is longer than " + segmentSize + " bytes");
+            }
+            firstExamples.add(first);
+            dataSegments.add(data.map(FileChannel.MapMode.READ_ONLY, segmentStart, end(low) - segmentStart));
+            first = low + 1;
+        }
+        segmentFirstExamples = new long[firstExamples.size()];
+        for (int i = 0; i < segmentFirstExamples.length; i++) {
+            segmentFirstExamples[i] = firstExamples.get(i);
+        }
+        mappedSize = size;
+    }
+
+    private long end(final long example) {
+        return indexSegments.get((int) (example >>> INDEX_SEGMENT_SHIFT))
+                .get((int) (example & ((1L << INDEX_SEGMENT_SHIFT) - 1)));
+    }
+
+    private long start(final long example) {
+        return example == 0 ? 0 : end(example - 1);
+    }
+
+    private int segmentOf(final long example) {
+        int low = 0;
+        int high = segmentFirstExamples.length - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (segmentFirstExamples[middle] <= example) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the bytes of the examples <code>[first, last]</code> of a segment
+     */
+    private ByteBuffer slice(final int segment, final long first, final long last) {
+        final long segmentStart = start(segmentFirstExamples[segment]);
+        final ByteBuffer slice = dataSegments.get(segment).duplicate();
+        slice.limit((int) (end(last) - segmentStart));
+        slice.position((int) (start(first) - segmentStart));
+        return slice;
+    }
+
+    @Override
+    public String toString() {
+        return "ExampleStore{" +
+                "file=" + file +
+                ", size=" + size +
+                ", sizeInBytes=" + sizeInBytes +
+                '}';
+    }
+
+    private abstract class BatchIterator implements Iterator<ByteBuffer> {
+        @Override
+        public ByteBuffer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            checkOpen();
+            return nextBatch();
+        }
+
+        abstract ByteBuffer nextBatch();
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.indeed.vw.wrapper.training;
+
+/**
+ * Prediction of a holdout example as scored by a {@link com.indeed.vw.wrapper.progvalidation.ProgressiveValidation},
+ * see {@link EarlyStoppingDriver}. <p>
+ */
+public interface HoldoutPredictor {
+    /**
+     * @param example holdout example, it must not be learned
+     * @return prediction of the learner
+     */
+    double predict(String example);
+}
@@ -0,0 +1,43 @@
+package com.indeed.vw.wrapper.training;
+
+import com.indeed.vw.wrapper.learner.ModelSnapshot;
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import java.io.Closeable;
+
+/**
+ * Saves and restores the model of the best pass of {@link EarlyStoppingDriver}, which only closes the snapshots
+ * otherwise. <p>
+ */
+interface ModelSnapshots {
+    /**
+     * @return snapshot of the current model
+     */
+    Closeable save();
+
+    /**
+     * @param snapshot snapshot returned by {@link #save()}, it is closed afterwards
+     */
+    void restore(Closeable snapshot);
+
+    /**
+     * Snapshots kept in native memory by the learner, see {@link VWLearner#saveModelSnapshot()}.
+     */
+    final class OfLearner implements ModelSnapshots {
+        private final VWLearner learner;
+
+        OfLearner(final VWLearner learner) {
+            this.learner = learner;
+        }
+
+        @Override
+        public Closeable save() {
+            return learner.saveModelSnapshot();
+        }
+
+        @Override
+        public void restore(final Closeable snapshot) {
+            learner.restoreModelSnapshot((ModelSnapshot) snapshot);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.indeed.vw.wrapper.learner.ParsedExample;
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Training pipeline where parser threads convert records into parsed examples and a single thread learns them. <p>
+ *
+ * Records are submitted by any number of producers.  At most <code>capacity</code> records are parsed or waiting
+ * to be learned at any time, {@link #submit(Object)} blocks when the pipeline is full.  When <code>ordered</code>
+ * is true, examples are learned in the order they were submitted, otherwise in the order their parsing completes,
+ * which avoids waiting for a slow record. <p>
+ *
+ * {@link #finish()} waits until every submitted record is learned, records can not be submitted once it is
+ * called.  The first failure of a parser or of the learner stops the pipeline, it is thrown by the following calls
+ * to {@link #submit(Object)} and by {@link #finish()}. <p>
+ *
+ * @param <R> type of the records
+ */
+public class ParsePipeline<R> implements Closeable {
+    private static final Future<ParsedExample> END = new FutureTask<>(new Callable<ParsedExample>() {
+        @Override
+        public ParsedExample call() {
+            return null;
+        }
+    });
+
+    private final VWLearner learner;
+    private final RecordParser<? super R> parser;
+    private final boolean ordered;
+    private final ExecutorService parsers;
+    private final Thread learnerThread;
+    private final BlockingQueue<Future<ParsedExample>> parsed;
+    /**
+     * Bounds the records in flight when they are queued as they complete.
+     */
+    private final Semaphore unorderedPermits;
+    /**
+     * Submits hold the read lock, so that none of them is in progress once finishing starts.
+     */
+    private final ReadWriteLock submitLock = new ReentrantReadWriteLock();
+    private final long start;
+    private volatile boolean finishing;
+    private volatile Throwable failure;
+    private volatile long examples;
+    /**
+     * Record whose parsing the learner thread was waiting for when it was interrupted, freed by {@link #close()}.
+     */
+    private Future<ParsedExample> interrupted;
+
+    /**
+     * @param learner learner to train
+     * @param parser converts records into parsed examples
+     * @param parserThreads number of parser threads
+     * @param capacity maximum number of records parsed or waiting to be learned
+     * @param ordered true to learn the records in the order they were submitted
+     */
+    public ParsePipeline(@Nonnull final VWLearner learner,
+                         @Nonnull final RecordParser<? super R> parser,
+                         final int parserThreads,
+                         final int capacity,
+                         final boolean ordered) {
+        if (parserThreads <= 0) {
+            throw new IllegalArgumentException("Number of parser threads must be positive: " + parserThreads);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.learner = learner;
+        this.parser = parser;
+        this.ordered = ordered;
+        parsers = Executors.newFixedThreadPool(parserThreads,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("vw-parser-%d").build());
+        // One more slot for END.
+        parsed = new ArrayBlockingQueue<>(capacity + 1);
+        unorderedPermits = new Semaphore(capacity);
+        learnerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                learnParsed();
+            }
+        }, "vw-learner");
+        learnerThread.setDaemon(true);
+        start = System.nanoTime();
+        learnerThread.start();
+    }
+
+    /**
+     * Records whose {@link Object#toString()} is a vw example, like Strings and
+     * {@link com.indeed.vw.wrapper.api.example.ExampleBuilder}s.
+     */
+    public static <R> RecordParser<R> toStringParser() {
+        return new RecordParser<R>() {
+            @Override
+            public ParsedExample parse(final VWLearner learner, final R record) {
+                return learner.parseExample(record.toString());
+            }
+        };
+    }
+
+    /**
+     * Parse the record on a parser thread and learn it on the learner thread.  Blocks while the pipeline is full.
+     * @param record a record
+     * @throws InterruptedException if interrupted while waiting for space in the pipeline
+     * @throws IllegalStateException if the pipeline failed, is finishing or is closed
+     */
+    public void submit(final R record) throws InterruptedException {
+        submitLock.readLock().lock();
+        try {
+            checkNotClosed();
+            checkFailure();
+            final Callable<ParsedExample> parse = new Callable<ParsedExample>() {
+                @Override
+                public ParsedExample call() {
+                    return parser.parse(learner, record);
+                }
+            };
+            if (ordered) {
+                final FutureTask<ParsedExample> task = new FutureTask<>(parse);
+                parsed.put(task);
+                if (finishing) {
+                    // Woken by the drain of close, make room for the next blocked producer.
+                    parsed.remove(task);
+                    checkNotClosed();
+                }
+                parsers.execute(task);
+            } else {
+                unorderedPermits.acquire();
+                if (finishing) {
+                    // Woken by close, pass the permit on to the next blocked producer.
+                    unorderedPermits.release();
+                    checkNotClosed();
+                }
+                parsers.execute(new FutureTask<ParsedExample>(parse) {
+                    @Override
+                    protected void done() {
+                        // Never blocks, the permits leave room for every record in flight.
+                        parsed.add(this);
+                    }
+                });
+            }
+        } finally {
+            submitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Wait until every submitted record is learned and stop the threads of the pipeline.
+     * @return number of examples learned
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pipeline failed, is already finishing or is closed
+     */
+    public TrainingProgress finish() throws InterruptedException {
+        // Waits for the submits in progress, the learner thread keeps making room for them.
+        submitLock.writeLock().lock();
+        try {
+            if (finishing) {
+                throw new IllegalStateException("Pipeline is already finishing or closed.");
+            }
+            finishing = true;
+        } finally {
+            submitLock.writeLock().unlock();
+        }
+        parsers.shutdown();
+        if (!ordered) {
+            // END must come after the last record, which is only queued once it is parsed.
+            parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        parsed.put(END);
+        learnerThread.join();
+        checkFailure();
+        return getProgress();
+    }
+
+    /**
+     * @return examples learned so far
+     */
+    public TrainingProgress getProgress() {
+        return new TrainingProgress(examples, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Stop the pipeline without waiting for the records which are not learned yet, they are dropped.  Producers
+     * blocked in {@link #submit(Object)} wake up and throw {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        // Without the submit lock, which producers blocked in a full pipeline hold.
+        finishing = true;
+        // Wakes the producers waiting for a permit, the ones waiting for space in the queue wake once it is drained.
+        unorderedPermits.release();
+        parsers.shutdownNow();
+        learnerThread.interrupt();
+        try {
+            // Records which are being parsed are not interruptible, wait for them so that they can be freed.
+            parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            learnerThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final List<Future<ParsedExample>> dropped = new ArrayList<>();
+        if (interrupted != null) {
+            dropped.add(interrupted);
+            interrupted = null;
+        }
+        parsed.drainTo(dropped);
+        for (final Future<ParsedExample> example : dropped) {
+            closeParsed(example);
+        }
+    }
+
+    private void checkNotClosed() {
+        if (finishing) {
+            throw new IllegalStateException("Pipeline is finishing or closed.");
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Training pipeline failed", failure);
+        }
+    }
+
+    private void fail(final Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private void learnParsed() {
+        Future<ParsedExample> next = null;
+        try {
+            while (true) {
+                next = parsed.take();
+                if (next == END) {
+                    return;
+                }
+                if (!ordered) {
+                    unorderedPermits.release();
+                }
+                final ParsedExample example;
+                try {
+                    example = getParsed(next);
+                } catch (final RuntimeException | Error e) {
+                    // Any failure keeps the thread draining, so producers do not wait for space forever.
+                    fail(e);
+                    continue;
+                }
+                next = null;
+                try {
+                    if (failure == null) {
+                        examples += learner.learnParsed(example);
+                    }
+                } catch (final Throwable e) {
+                    fail(e);
+                } finally {
+                    // A no-op once the example is learned.
+                    example.close();
+                }
+            }
+        } catch (final InterruptedException e) {
+            // Closed while waiting for a record being parsed, close frees it once the parsers are done.
+            interrupted = next;
+        }
+    }
+
+    private static ParsedExample getParsed(final Future<ParsedExample> example) throws InterruptedException {
+        try {
+            return example.get();
+        } catch (final ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static void closeParsed(final Future<ParsedExample> example) {
+        if (!example.isDone() || example.isCancelled()) {
+            return;
+        }
+        try {
+            example.get().close();
+        } catch (final InterruptedException | ExecutionException e) {
+            // Nothing to free.
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.indeed.vw.wrapper.training;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holdout score and timing of one pass of an {@link EarlyStoppingDriver}. <p>
+ */
+public class PassResult {
+    private final int pass;
+    private final long examples;
+    private final String metric;
+    private final double score;
+    private final boolean improved;
+    private final long trainingNanos;
+    private final long evaluationNanos;
+    private final long snapshotNanos;
+
+    public PassResult(final int pass,
+                      final long examples,
+                      final String metric,
+                      final double score,
+                      final boolean improved,
+                      final long trainingNanos,
+                      final long evaluationNanos,
+                      final long snapshotNanos) {
+        this.pass = pass;
+        this.examples = examples;
+        this.metric = metric;
+        this.score = score;
+        this.improved = improved;
+        this.trainingNanos = trainingNanos;
+        this.evaluationNanos = evaluationNanos;
+        this.snapshotNanos = snapshotNanos;
+    }
+
+    /**
+     * @return number of the pass, starting at 1
+     */
+    public int getPass() {
+        return pass;
+    }
+
+    /**
+     * @return number of examples learned by the pass
+     */
+    public long getExamples() {
+        return examples;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    /**
+     * @return holdout score after the pass
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return whether the pass improved the best holdout score of the previous passes
+     */
+    public boolean isImproved() {
+        return improved;
+    }
+
+    public long getTrainingTime(final TimeUnit unit) {
+        return unit.convert(trainingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getEvaluationTime(final TimeUnit unit) {
+        return unit.convert(evaluationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return time spent saving the model snapshot of the pass, zero if the pass saved none
+     */
+    public long getSnapshotTime(final TimeUnit unit) {
+        return unit.convert(snapshotNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getExamplesPerSecond() {
+        return trainingNanos == 0 ? 0 : examples * 1e9 / trainingNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "PassResult{" +
+                "pass=" + pass +
+                ", examples=" + examples +
+                ", " + metric + "=" + score +
+                ", improved=" + improved +
+                ", trainingMillis=" + getTrainingTime(TimeUnit.MILLISECONDS) +
+                ", evaluationMillis=" + getEvaluationTime(TimeUnit.MILLISECONDS) +
+                ", snapshotMillis=" + getSnapshotTime(TimeUnit.MILLISECONDS) +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package com.indeed.vw.wrapper.training;
+
+/**
+ * Callback of long training runs, called on the training thread. <p>
+ */
+public interface ProgressListener {
+    /**
+     * @param progress examples learned since the training started
+     */
+    void onProgress(TrainingProgress progress);
+}
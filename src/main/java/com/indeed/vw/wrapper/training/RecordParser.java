@@ -0,0 +1,15 @@
+package com.indeed.vw.wrapper.training;
+
+import com.indeed.vw.wrapper.learner.ParsedExample;
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+/**
+ * Converts a raw record (a CSV row, an {@link com.indeed.vw.wrapper.api.example.ExampleBuilder}, bytes) into an
+ * example parsed by the learner, see {@link VWLearner#parseExample(String)}.  Called by the parser threads of
+ * {@link ParsePipeline}, so it must be thread safe. <p>
+ *
+ * @param <R> type of the records
+ */
+public interface RecordParser<R> {
+    ParsedExample parse(VWLearner learner, R record);
+}
@@ -0,0 +1,18 @@
+package com.indeed.vw.wrapper.training;
+
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import java.io.IOException;
+
+/**
+ * One pass over the training data, see {@link EarlyStoppingDriver}. <p>
+ */
+public interface TrainingPass {
+    /**
+     * @param learner learner to train
+     * @param pass number of the pass, starting at 1
+     * @return number of examples learned
+     * @throws IOException if the training data can not be read
+     */
+    long train(VWLearner learner, int pass) throws IOException;
+}
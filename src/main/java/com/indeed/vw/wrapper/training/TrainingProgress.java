@@ -0,0 +1,54 @@
+package com.indeed.vw.wrapper.training;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a training run. <p>
+ */
+public class TrainingProgress {
+    private final long examples;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    public TrainingProgress(final long examples, final long bytes, final long elapsedNanos) {
+        this.examples = examples;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return number of examples (lines) learned so far, including the empty lines ending multiline examples
+     */
+    public long getExamples() {
+        return examples;
+    }
+
+    /**
+     * @return number of bytes of examples learned so far, uncompressed
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsed(final TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getExamplesPerSecond() {
+        return elapsedNanos == 0 ? 0 : examples * 1e9 / elapsedNanos;
+    }
+
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "TrainingProgress{" +
+                "examples=" + examples +
+                ", bytes=" + bytes +
+                ", elapsedMillis=" + getElapsed(TimeUnit.MILLISECONDS) +
+                ", examplesPerSecond=" + String.format("%.0f", getExamplesPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,206 @@
+package com.indeed.vw.wrapper.training;
+
+import com.indeed.vw.wrapper.learner.VWLearner;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams vw data files into a learner. <p>
+ *
+ * The file is read in chunks of bytes which end on a line boundary, and every chunk is parsed by a single native
+ * call, see {@link VWLearner#learnNoResult(ByteBuffer)}.  No String is created for the lines.  Plain files are
+ * memory mapped and parsed in place, files ending with <code>.gz</code> are decompressed into a direct buffer. <p>
+ *
+ * Plain files are mapped in windows of up to 1 GB which chunks are sliced from, so a file needs a handful of
+ * mappings rather than one per chunk.  A window is only unmapped once it is garbage collected. <p>
+ *
+ * Chunks are parsed and learned in file order, so multiline examples may span chunks. <p>
+ */
+public class VWTrainer {
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    private static final long DEFAULT_PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final VWLearner learner;
+    private final int chunkSize;
+    private final int windowSize;
+    @Nullable
+    private final ProgressListener listener;
+    private final long progressIntervalNanos;
+
+    public VWTrainer(@Nonnull final VWLearner learner) {
+        this(learner, DEFAULT_CHUNK_SIZE, null, DEFAULT_PROGRESS_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param learner learner to train
+     * @param chunkSize bytes parsed per native call, chunks grow when a single line is longer
+     * @param listener called every <code>progressInterval</code> and at the end of every file, may be null
+     * @param progressInterval minimum time between two calls of the listener
+     * @param unit unit of progressInterval
+     */
+    public VWTrainer(@Nonnull final VWLearner learner,
+                     final int chunkSize,
+                     @Nullable final ProgressListener listener,
+                     final long progressInterval,
+                     @Nonnull final TimeUnit unit) {
+        this(learner, chunkSize, DEFAULT_WINDOW_SIZE, listener, progressInterval, unit);
+    }
+
+    VWTrainer(final VWLearner learner,
+              final int chunkSize,
+              final int windowSize,
+              @Nullable final ProgressListener listener,
+              final long progressInterval,
+              final TimeUnit unit) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.learner = learner;
+        this.chunkSize = chunkSize;
+        this.windowSize = windowSize;
+        this.listener = listener;
+        this.progressIntervalNanos = unit.toNanos(progressInterval);
+    }
+
+    /**
+     * Learn every example of a plain or gzipped (<code>.gz</code>) vw data file.
+     * @param file data file
+     * @return examples and bytes learned
+     * @throws IOException if the file can not be read
+     */
+    public TrainingProgress train(@Nonnull final Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".gz")) {
+            try (final InputStream in = new GZIPInputStream(Files.newInputStream(file), 1 << 16)) {
+                return train(in);
+            }
+        }
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return train(channel);
+        }
+    }
+
+    /**
+     * Learn every example of a stream in vw text format.  The stream is not closed.
+     * @param in uncompressed examples
+     * @return examples and bytes learned
+     * @throws IOException if the stream can not be read
+     */
+    public TrainingProgress train(@Nonnull final InputStream in) throws IOException {
+        final Progress progress = new Progress();
+        final ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+        boolean endOfStream = false;
+        while (!endOfStream) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    endOfStream = true;
+                    break;
+                }
+            }
+            buffer.flip();
+            final int end = endOfStream ? buffer.limit() : lastNewline(buffer) + 1;
+            if (end == 0 && !endOfStream) {
+                // A single line longer than the buffer.
+                buffer = ByteBuffer.allocateDirect(grow(buffer.capacity())).put(buffer);
+                continue;
+            }
+            final ByteBuffer lines = buffer.duplicate();
+            lines.limit(end);
+            progress.learned(learner.learnNoResult(lines), end);
+            buffer.position(end);
+            buffer.compact();
+        }
+        return progress.done();
+    }
+
+    private TrainingProgress train(final FileChannel channel) throws IOException {
+        final Progress progress = new Progress();
+        final long size = channel.size();
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        long position = 0;
+        int length = chunkSize;
+        while (position < size) {
+            final boolean last = size - position <= length;
+            final long chunkEnd = last ? size : position + length;
+            if (window == null || chunkEnd > windowStart + window.capacity()) {
+                // The chunk does not fit in the current window, the next one starts at the chunk.
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                        Math.min(size - windowStart, Math.max(windowSize, length)));
+            }
+            final ByteBuffer chunk = window.duplicate();
+            chunk.position((int) (position - windowStart));
+            chunk.limit((int) (chunkEnd - windowStart));
+            final ByteBuffer lines = chunk.slice();
+            final int end = last ? lines.limit() : lastNewline(lines) + 1;
+            if (end == 0) {
+                // A single line longer than the chunk.
+                length = grow(length);
+                continue;
+            }
+            lines.limit(end);
+            progress.learned(learner.learnNoResult(lines), end);
+            position += end;
+        }
+        return progress.done();
+    }
+
+    private static int lastNewline(final ByteBuffer buffer) {
+        for (int i = buffer.limit() - 1; i >= buffer.position(); i--) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int grow(final int size) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Line longer than " + Integer.MAX_VALUE + " bytes");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, 2L * size);
+    }
+
+    private final class Progress {
+        private final long start = System.nanoTime();
+        private long lastReport = start;
+        private long examples;
+        private long bytes;
+
+        private void learned(final int chunkExamples, final int chunkBytes) {
+            examples += chunkExamples;
+            bytes += chunkBytes;
+            final long now = System.nanoTime();
+            if (listener != null && now - lastReport >= progressIntervalNanos) {
+                lastReport = now;
+                listener.onProgress(new TrainingProgress(examples, bytes, now - start));
+            }
+        }
+
+        private TrainingProgress done() {
+            final TrainingProgress progress = new TrainingProgress(examples, bytes, System.nanoTime() - start);
+            if (listener != null) {
+                listener.onProgress(progress);
+            }
+            return progress;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Training of learners from data files and streams of examples. <p>
+ */
+package com.indeed.vw.wrapper.training;
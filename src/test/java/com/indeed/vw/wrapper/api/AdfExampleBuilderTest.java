@@ -0,0 +1,64 @@
+package com.indeed.vw.wrapper.api;
+
+import com.indeed.vw.wrapper.api.example.AdfExampleBuilder;
+import com.indeed.vw.wrapper.api.example.ExampleBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ *
+ */
+public class AdfExampleBuilderTest {
+    @Test
+    public void testBuildCbExample() {
+        final AdfExampleBuilder.ActionFragments fragments = new AdfExampleBuilder.ActionFragments();
+        final ExampleBuilder action = ExampleBuilder.create();
+        action.createNamespace("job").addCategoricalFeature("title", "engineer");
+        fragments.put(1, action);
+        fragments.put(2, "|job title=manager");
+
+        final ExampleBuilder shared = ExampleBuilder.create();
+        shared.createNamespace("user").addCategoricalFeature("id", 42);
+        final String[] example = AdfExampleBuilder.create(fragments)
+                .shared(shared)
+                .addCbAction(1, 0, 1.5, 0.5)
+                .addAction(2)
+                .build();
+        assertArrayEquals(new String[]{
+                "shared |user id=42",
+                "0:1.5:0.5 |job title=engineer",
+                " |job title=manager"
+        }, example);
+    }
+
+    @Test
+    public void testReuseBetweenRequests() {
+        final AdfExampleBuilder builder = AdfExampleBuilder.create();
+        final AdfExampleBuilder.ActionFragments fragments = new AdfExampleBuilder.ActionFragments();
+        fragments.put(7, "|a x");
+        final AdfExampleBuilder reusing = AdfExampleBuilder.create(fragments).shared("  |u y");
+        final String[] first = reusing.addAction(7).build();
+        final String[] second = reusing.clearActions().addCostSensitiveAction(7, 3, 0.25).build();
+        assertArrayEquals(new String[]{"shared |u y", " |a x"}, first);
+        assertArrayEquals(new String[]{"shared |u y", "3:0.25 |a x"}, second);
+        assertSame(first[0], second[0]);
+        assertArrayEquals(new String[0], builder.build());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testUnknownAction() {
+        AdfExampleBuilder.create().addAction(1);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testLabeledActionFeatures() {
+        new AdfExampleBuilder.ActionFragments().put(1, ExampleBuilder.create().label(1));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testActionWithoutFeatures() {
+        new AdfExampleBuilder.ActionFragments().put(1, ExampleBuilder.create());
+    }
+}
@@ -0,0 +1,121 @@
+package com.indeed.vw.wrapper.api;
+
+import com.google.common.base.Charsets;
+import com.indeed.vw.wrapper.api.csv.CsvConverter;
+import com.indeed.vw.wrapper.api.csv.CsvSchema;
+import com.indeed.vw.wrapper.api.csv.ExampleSinks;
+import com.indeed.vw.wrapper.api.example.VWCacheWriter;
+import com.indeed.vw.wrapper.api.example.VWHasher;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ *
+ */
+public class CsvConverterTest {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+    private static final VWHasher HASHER = VWHasher.create(VowpalWabbit.Hash.strings);
+
+    private static final CsvSchema SCHEMA = CsvSchema.builder()
+            .skipHeader()
+            .label(0)
+            .importance(1)
+            .tag(2)
+            .categorical(3, "user")
+            .categorical(4, "user", "gender")
+            .numerical(5, "user", "age")
+            .text(6, "title")
+            .namespaceWeight("title", 0.1)
+            .build();
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    @Test
+    public void testConvertRow() {
+        assertEquals("1 2 'a|user 42 gender=F age:31 |title:0.1 java developer",
+                SCHEMA.convert("1,2,a,42,F,31,java developer"));
+        assertEquals("-1 |user 7 age:1e-3",
+                SCHEMA.convert("-1, ,,7,,1e-3"));
+        assertEquals(" 'a_b|user x_y |title:0.1 say \"hi\", to me",
+                SCHEMA.convert(",,a b,\"x:y\",,,\"say \"\"hi\"\", to|me\""));
+        assertEquals(" ", SCHEMA.convert(",,,,,,"));
+    }
+
+    @Test
+    public void testTsv() {
+        final CsvSchema schema = CsvSchema.builder().separator('\t').label(1).categorical(0, "").build();
+        assertEquals("0 | a,b", schema.convert("a,b\t0\tignored"));
+    }
+
+    @Test
+    public void testParallelConversionKeepsOrder() throws IOException, InterruptedException {
+        final StringBuilder csv = new StringBuilder("label,importance,tag,id,gender,age,title\r\n");
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            csv.append(i % 2).append(",,,").append(i).append(",M,").append(i % 97).append(",title ").append(i).append("\r\n");
+            expected.append(i % 2).append(" |user ").append(i).append(" gender=M age:").append(i % 97)
+                    .append(" |title:0.1 title ").append(i).append('\n');
+            if (i % 1000 == 0) {
+                csv.append('\n');
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Chunks smaller than the header and many lines.
+        final CsvConverter converter = new CsvConverter(SCHEMA, EXECUTOR, 16, 3);
+        final long examples = converter.convert(new ByteArrayInputStream(csv.toString().getBytes(Charsets.UTF_8)),
+                ExampleSinks.toStream(out));
+        assertEquals(10000, examples);
+        assertEquals(expected.toString(), new String(out.toByteArray(), Charsets.UTF_8));
+    }
+
+    private static final CsvSchema CACHE_SCHEMA = CsvSchema.builder()
+            .label(0)
+            .categorical(3, "user")
+            .categorical(4, "user", "gender")
+            .numerical(5, "user", "age")
+            .text(6, "title")
+            .build();
+    private static final String CACHE_CSV = "1,,,a,F,3,hello world\n0,,,b,M,4,bye\n-1,,,c,,,";
+
+    private static byte[] writtenCache() throws IOException {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = new VWCacheWriter(written, 18, HASHER, "8.4.0")) {
+            writer.write("1 |user a gender=F age:3 |title hello world");
+            writer.write("0 |user b gender=M age:4 |title bye");
+            writer.write("-1 |user c");
+        }
+        return written.toByteArray();
+    }
+
+    @Test
+    public void testConvertToCacheWriter() throws IOException, InterruptedException {
+        final ByteArrayOutputStream converted = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = new VWCacheWriter(converted, 18, HASHER, "8.4.0")) {
+            new CsvConverter(CACHE_SCHEMA, EXECUTOR).convert(
+                    new ByteArrayInputStream(CACHE_CSV.getBytes(Charsets.UTF_8)), ExampleSinks.toCacheWriter(writer));
+        }
+        assertArrayEquals(writtenCache(), converted.toByteArray());
+    }
+
+    @Test
+    public void testConvertToCache() throws IOException, InterruptedException {
+        final ByteArrayOutputStream converted = new ByteArrayOutputStream();
+        // One example per chunk, encoded by different tasks.
+        final CsvConverter converter = new CsvConverter(CACHE_SCHEMA, EXECUTOR, 8, 2);
+        converter.convert(new ByteArrayInputStream(CACHE_CSV.getBytes(Charsets.UTF_8)),
+                ExampleSinks.toCache(converted, 18, HASHER, "8.4.0"));
+        assertArrayEquals(writtenCache(), converted.toByteArray());
+    }
+}
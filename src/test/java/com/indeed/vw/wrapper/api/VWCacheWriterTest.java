@@ -0,0 +1,122 @@
+package com.indeed.vw.wrapper.api;
+
+import com.indeed.vw.wrapper.api.example.ExampleBuilder;
+import com.indeed.vw.wrapper.api.example.VWCacheWriter;
+import com.indeed.vw.wrapper.api.example.VWHasher;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ *
+ */
+public class VWCacheWriterTest {
+    private static final VWHasher HASHER = VWHasher.create(VowpalWabbit.Hash.strings);
+    // The default version is read from the native library, these tests do not load it.
+    private static final String VERSION = "8.4.0";
+
+    private static VWCacheWriter writer(final ByteArrayOutputStream out, final int bits) throws IOException {
+        return new VWCacheWriter(out, bits, HASHER, VERSION);
+    }
+
+    private static byte[] header(final int bits) {
+        final ByteBuffer header = ByteBuffer.allocate(19).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(6).put(VERSION.getBytes()).put((byte) 0).put((byte) 'c').putInt(bits);
+        return header.array();
+    }
+
+    @Test
+    public void testHashedExample() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = writer(out, 18)) {
+            final VWCacheWriter.HashedExample example = new VWCacheWriter.HashedExample().label(1);
+            example.namespace('a').feature(3, 1).feature(1, -1).feature(200, 0.5f);
+            writer.write(example);
+        }
+        final ByteBuffer expected = ByteBuffer.allocate(19 + 12 + 8 + 1 + 1 + 8 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        expected.put(header(18));
+        expected.putFloat(1).putFloat(1).putFloat(0);
+        expected.putLong(0);
+        expected.put((byte) 1);
+        expected.put((byte) 'a').putLong(8);
+        // Zigzag encoded deltas 3, -2 and 199 shifted by 2 with the value flags.
+        expected.put((byte) 0x18).put((byte) 0x0d).put((byte) 0xba).put((byte) 0x0c).putFloat(0.5f);
+        assertArrayEquals(expected.array(), out.toByteArray());
+    }
+
+    @Test
+    public void testTextExampleLikeHashedExample() throws IOException {
+        final ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = writer(text, 18)) {
+            writer.write("-1 2 'tag|user:2 x y:0.5 z:0 |job title");
+            writer.write(ExampleBuilder.create().omitLabel().createNamespace("").addCategoricalFeature("w").toString());
+        }
+        final ByteArrayOutputStream hashed = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = writer(hashed, 18)) {
+            final VWCacheWriter.HashedExample first = new VWCacheWriter.HashedExample().label(-1).importance(2).tag("tag");
+            first.namespace('u')
+                    .feature(HASHER.hashFeature("user", "x"), 2)
+                    .feature(HASHER.hashFeature("user", "y"), 1);
+            first.namespace('j').feature(HASHER.hashFeature("job", "title"), 1);
+            writer.write(first);
+            final VWCacheWriter.HashedExample second = new VWCacheWriter.HashedExample();
+            second.namespace(' ').feature(HASHER.hashFeature("", "w"), 1);
+            writer.write(second);
+        }
+        assertArrayEquals(hashed.toByteArray(), text.toByteArray());
+    }
+
+    @Test
+    public void testEmptyNamespacesAreSkipped() throws IOException {
+        final ByteArrayOutputStream withEmpty = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = writer(withEmpty, 18)) {
+            final VWCacheWriter.HashedExample example = new VWCacheWriter.HashedExample().label(1);
+            example.namespace('e');
+            example.namespace('a').feature(3, 1);
+            example.namespace('f');
+            writer.write(example);
+            writer.write("0 |empty |a x |b");
+        }
+        final ByteArrayOutputStream withoutEmpty = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = writer(withoutEmpty, 18)) {
+            final VWCacheWriter.HashedExample example = new VWCacheWriter.HashedExample().label(1);
+            example.namespace('a').feature(3, 1);
+            writer.write(example);
+            writer.write("0 |a x");
+        }
+        assertArrayEquals(withoutEmpty.toByteArray(), withEmpty.toByteArray());
+    }
+
+    @Test
+    public void testConcatenateShards() throws IOException {
+        final String[] examples = {"1 |a x", "0 |a y", "1 |b z"};
+        final ByteArrayOutputStream single = new ByteArrayOutputStream();
+        try (final VWCacheWriter writer = writer(single, 20)) {
+            for (final String example : examples) {
+                writer.write(example);
+            }
+        }
+        final File first = File.createTempFile("VWCacheWriterTest", ".shard");
+        final File second = File.createTempFile("VWCacheWriterTest", ".shard");
+        first.deleteOnExit();
+        second.deleteOnExit();
+        try (final VWCacheWriter writer = VWCacheWriter.shard(new FileOutputStream(first), 20, HASHER)) {
+            writer.write(examples[0]);
+            writer.write(examples[1]);
+        }
+        try (final VWCacheWriter writer = VWCacheWriter.shard(new FileOutputStream(second), 20, HASHER)) {
+            writer.write(examples[2]);
+        }
+        final ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        VWCacheWriter.concatenate(concatenated, 20, VERSION, Arrays.asList(first.toPath(), second.toPath()));
+        assertArrayEquals(single.toByteArray(), concatenated.toByteArray());
+    }
+}
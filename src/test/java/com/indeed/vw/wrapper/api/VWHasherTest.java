@@ -0,0 +1,51 @@
+package com.indeed.vw.wrapper.api;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.indeed.vw.wrapper.api.example.VWHasher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ *
+ */
+public class VWHasherTest {
+    @Test
+    public void testMurmurHash() {
+        for (final String value : new String[]{"", "a", "ab", "abc", "abcd", "gender=Female", "Korea’s"}) {
+            final byte[] bytes = value.getBytes(Charsets.UTF_8);
+            for (final int seed : new int[]{0, 1, -17, 0x7fffffff}) {
+                assertEquals(Hashing.murmur3_32(seed).hashBytes(bytes).asInt(),
+                        VWHasher.murmurHash3(bytes, 0, bytes.length, seed));
+            }
+        }
+    }
+
+    @Test
+    public void testHashStrings() {
+        assertEquals(123, VWHasher.hashString("123", 0));
+        assertEquals(128, VWHasher.hashString(" 123\t", 5));
+        assertEquals(VWHasher.hashAll("12a", 3), VWHasher.hashString("12a", 3));
+        assertEquals(VWHasher.hashAll("word", 3), VWHasher.hashString(" word ", 3));
+        assertEquals(Hashing.murmur3_32(0).hashString("123", Charsets.UTF_8).asInt() & 0xffffffffL,
+                VWHasher.hashAll("123", 0));
+    }
+
+    @Test
+    public void testHashFeature() {
+        final VWHasher hasher = VWHasher.create(VowpalWabbit.Hash.strings);
+        final VWHasher cachingHasher = hasher.withFeatureCache(10);
+        assertEquals(0, hasher.hashNamespace(""));
+        final long namespaceHash = hasher.hashNamespace("user");
+        assertEquals(VWHasher.hashString("user", 0), namespaceHash);
+        assertEquals(VWHasher.hashString("id=42", (int) namespaceHash), hasher.hashFeature("user", "id=42"));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(hasher.hashFeature("user", "id=42"), cachingHasher.hashFeature("user", "id=42"));
+        }
+        assertEquals(42 + namespaceHash, hasher.hashFeature("user", "42"));
+        assertEquals(VWHasher.hashAll("42", (int) namespaceHash),
+                VWHasher.create(VowpalWabbit.Hash.all).hashFeature(namespaceHash, "42"));
+        assertEquals(5, VWHasher.mask(0x105, 8));
+    }
+}
@@ -5,7 +5,11 @@ import com.indeed.vw.wrapper.api.parameters.Loss;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -22,4 +26,19 @@ public class VowpalWabbitBuilderTest {
         final String expected = "--adaptive --invariant --link logistic --loss_function logistic --l2 1.0E-4 --quiet";
         assertEquals(expected, command);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReplayPassesCommand() {
+        final Path directory = Paths.get("/tmp");
+        final String command = VowpalWabbit.advancedBuilder()
+                .cache().passes(3)
+                .replayPasses(1 << 20, directory).getCommand();
+        assertTrue(command, command.matches(
+                "--passes 3 --cache_file /tmp/vw-replay-[0-9a-f-]+\\.cache --kill_cache --quiet"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReplayPassesNeedsSeveralPasses() {
+        VowpalWabbit.advancedBuilder().passes(1).replayPasses(1 << 20, Paths.get("/tmp")).build();
+    }
+}
@@ -1,6 +1,10 @@
 package com.indeed.vw.wrapper.learner;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.indeed.vw.wrapper.api.VowpalWabbit;
+import com.indeed.vw.wrapper.api.example.AdfExampleBuilder;
+import com.indeed.vw.wrapper.api.example.VWCacheWriter;
 import com.indeed.vw.wrapper.api.parameters.VWUtility;
 
 import org.junit.Assert;
@@ -8,6 +12,16 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -46,4 +60,442 @@ public class VWLearnersTest {
             Assert.assertEquals(2, learner.predict("| d e f"));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLearnCharSequence() throws IOException {
+        try (final VWFloatLearner stringLearner = VowpalWabbit.builder().buildFloatLearner();
+             final VWFloatLearner charsLearner = VowpalWabbit.builder().buildFloatLearner()) {
+            final StringBuilder example = new StringBuilder();
+            for (int i = 0; i < 10; i++) {
+                example.setLength(0);
+                example.append(i % 2).append(" |yo yo").append(i);
+                final char[] chars = ("  " + example).toCharArray();
+                Assert.assertEquals(stringLearner.learn(example.toString()), charsLearner.learn(example), 0);
+                Assert.assertEquals(stringLearner.predict(example.toString()), charsLearner.predict(chars, 2, example.length()), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentLearn() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (final VWFloatLearner learner = VowpalWabbit.builder().buildFloatLearner()) {
+            final List<Future<Float>> predictions = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int id = i;
+                predictions.add(executor.submit(new Callable<Float>() {
+                    @Override
+                    public Float call() {
+                        learner.learn(new String[]{(id % 2) + " |yo yo" + id});
+                        return learner.learn((id % 2) + " |yo yo" + id);
+                    }
+                }));
+            }
+            for (final Future<Float> prediction : predictions) {
+                Assert.assertFalse(Float.isNaN(prediction.get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSharedContext() throws IOException {
+        try (final VWActionScoresLearner learner = VowpalWabbit.advancedBuilder().cbAdf().build()) {
+            final String[] actions = {"0:1:0.5 |a x", "|a y"};
+            learner.learn(new String[]{"shared |u id=1", actions[0], actions[1]});
+            try (final SharedContext context = learner.registerSharedContext("shared |u id=1")) {
+                final ActionScores expected = learner.predict(new String[]{"shared |u id=1", "|a x", "|a y"});
+                Assert.assertEquals(expected, learner.predict(context, new String[]{"|a x", "|a y"}));
+                learner.configureSharedContextCache(1, 0, TimeUnit.SECONDS);
+                learner.registerSharedContext("shared |u id=2");
+                // The first context was evicted and is parsed again.
+                Assert.assertEquals(expected, learner.predict(context, new String[]{"|a x", "|a y"}));
+            }
+        }
+    }
+
+    @Test
+    public void testCachedActions() throws IOException {
+        try (final VWActionScoresLearner learner = VowpalWabbit.advancedBuilder().cbAdf().build()) {
+            learner.learn(new String[]{"shared |u id=1", "0:1:0.5 |a x", "|a y"});
+            final AdfExampleBuilder.ActionFragments actions = new AdfExampleBuilder.ActionFragments()
+                    .put(1, "|a x")
+                    .put(2, "|a y");
+            final ActionScores expected = learner.predict(new String[]{"shared |u id=1", " |a x", " |a y"});
+            try (final SharedContext context = learner.registerSharedContext("shared |u id=1")) {
+                Assert.assertEquals(expected, learner.predict(context, new long[]{1, 2}, actions));
+                actions.invalidateAll();
+                // Both actions are cached now, the source is not asked again.
+                Assert.assertEquals(expected, learner.predict(context, new long[]{1, 2}, actions));
+                learner.invalidateAction(2);
+                actions.put(2, "|a z");
+                Assert.assertEquals(learner.predict(new String[]{"shared |u id=1", " |a x", " |a z"}),
+                        learner.predict(context, new long[]{1, 2}, actions));
+            }
+        }
+    }
+
+    @Test
+    public void testHugeMultilineExample() throws IOException {
+        try (final VWActionScoresLearner learner = VowpalWabbit.advancedBuilder().cbAdf().build()) {
+            final String[] lines = new String[100001];
+            lines[0] = "shared |u id=1";
+            for (int i = 1; i < lines.length; i++) {
+                lines[i] = (i == 1 ? "0:1:0.5 " : "") + "|a x" + (i % 100);
+            }
+            learner.learn(lines);
+            lines[1] = "|a x1";
+            Assert.assertEquals(100000, learner.predict(lines).getActionScores().length);
+        }
+    }
+
+    @Test
+    public void testLearnNoResult() throws IOException {
+        try (final VWScalarLearner withResult = VowpalWabbit.builder().build();
+             final VWScalarLearner withoutResult = VowpalWabbit.builder().build()) {
+            final List<String> batch = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final String example = (i % 3) + " |x f" + (i % 5);
+                withResult.learn(example);
+                if (i < 10) {
+                    withoutResult.learnNoResult(example);
+                } else {
+                    batch.add(example);
+                }
+            }
+            withoutResult.learnNoResult(batch);
+            Assert.assertEquals(withResult.predict("|x f2"), withoutResult.predict("|x f2"), 0);
+        }
+        try (final VWActionScoresLearner withResult = VowpalWabbit.advancedBuilder().cbAdf().build();
+             final VWActionScoresLearner withoutResult = VowpalWabbit.advancedBuilder().cbAdf().build()) {
+            final String[][] examples = {
+                    {"shared |u id=1", "0:1:0.5 |a x", "|a y"},
+                    {"shared |u id=2", "|a x", "0:0:0.5 |a y"},
+            };
+            for (final String[] example : examples) {
+                withResult.learn(example);
+            }
+            withoutResult.learnNoResult(examples);
+            final String[] test = {"shared |u id=1", "|a x", "|a y"};
+            Assert.assertEquals(withResult.predict(test), withoutResult.predict(test));
+        }
+    }
+
+    @Test
+    public void testTrainOnFile() throws Exception {
+        final File dataFile = File.createTempFile("VWLearnersTest", ".vw");
+        dataFile.deleteOnExit();
+        try (final VWScalarLearner expected = VowpalWabbit.builder().build();
+             final VWScalarLearner learner = VowpalWabbit.builder().build();
+             final Writer writer = new OutputStreamWriter(new FileOutputStream(dataFile), Charsets.UTF_8)) {
+            for (int i = 0; i < 1000; i++) {
+                final String example = (i % 3) + " |x f" + (i % 5);
+                expected.learn(example);
+                writer.write(example + "\n");
+            }
+            writer.close();
+            Assert.assertEquals(1000, learner.trainOnFile(dataFile.toPath(), new FileTrainingOptions()));
+            Assert.assertEquals(expected.predict("|x f2"), learner.predict("|x f2"), 1e-6);
+            // The learner keeps learning through jni afterwards.
+            learner.learn("1 |x f2");
+        }
+    }
+
+    @Test
+    public void testTrainOnFileRejectsPasses() throws Exception {
+        final File dataFile = File.createTempFile("VWLearnersTest", ".vw");
+        dataFile.deleteOnExit();
+        final File expectedCache = File.createTempFile("VWLearnersTest", ".cache");
+        expectedCache.deleteOnExit();
+        final File cache = File.createTempFile("VWLearnersTest", ".cache");
+        cache.deleteOnExit();
+        try (final VWFloatLearner expected = VowpalWabbit.advancedBuilder()
+                .passes(3).cacheFile(expectedCache.toPath()).killCache().buildFloatLearner();
+             final VWFloatLearner learner = VowpalWabbit.advancedBuilder()
+                .passes(3).cacheFile(cache.toPath()).killCache().buildFloatLearner()) {
+            Files.write(dataFile.toPath(), Collections.singletonList("1 |x f1"), Charsets.UTF_8);
+            try {
+                learner.trainOnFile(dataFile.toPath(), new FileTrainingOptions());
+                Assert.fail();
+            } catch (final IllegalStateException e) {
+                // The remaining passes would have run at the end of the file.
+            }
+            // The rejected call left the learner like one which only learned line by line.
+            for (int i = 0; i < 1000; i++) {
+                final String example = (i % 3) + " |x f" + (i % 5);
+                Assert.assertEquals(expected.learn(example), learner.learn(example), 1e-6);
+            }
+            Assert.assertEquals(expected.predict("|x f2"), learner.predict("|x f2"), 1e-6);
+        }
+    }
+
+    @Test
+    public void testIngestChannelRejectsPasses() throws Exception {
+        final File cache = File.createTempFile("VWLearnersTest", ".cache");
+        cache.deleteOnExit();
+        try (final VWFloatLearner learner = VowpalWabbit.advancedBuilder()
+                .passes(3).cacheFile(cache.toPath()).killCache().buildFloatLearner()) {
+            try {
+                learner.openIngestChannel(64);
+                Assert.fail();
+            } catch (final IllegalStateException e) {
+                // The cache would be finished whenever the ring is drained.
+            }
+            learner.learn("1 |x f1");
+        }
+    }
+
+    /**
+     * Learns the same examples with 3 passes and returns the predictions of the final model.
+     */
+    private static List<Float> trainWithPasses(final VowpalWabbit.Builder builder, final File directory)
+            throws IOException {
+        final File model = new File(directory, "model-" + System.nanoTime());
+        try (final VWFloatLearner learner = builder.passes(3).finalRegressor(model.toPath()).buildFloatLearner()) {
+            for (int i = 0; i < 1000; i++) {
+                learner.learn((i % 3) + " |x f" + (i % 5) + " g" + (i % 7));
+            }
+        }
+        return predictWith(model);
+    }
+
+    private static List<Float> predictWith(final File model) throws IOException {
+        final List<Float> predictions = new ArrayList<>();
+        try (final VWFloatLearner learner = VowpalWabbit.advancedBuilder()
+                .initialRegressor(model.toPath()).testonly().buildFloatLearner()) {
+            for (int i = 0; i < 35; i++) {
+                predictions.add(learner.predict("|x f" + (i % 5) + " g" + (i % 7)));
+            }
+        }
+        Assert.assertTrue(model.delete());
+        return predictions;
+    }
+
+    private static void assertSamePredictions(final List<Float> expected, final List<Float> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i), actual.get(i), 1e-6);
+        }
+    }
+
+    @Test
+    public void testReplayPasses() throws Exception {
+        final File directory = File.createTempFile("VWLearnersTest", "");
+        Assert.assertTrue(directory.delete() && directory.mkdir());
+        directory.deleteOnExit();
+        final File cache = new File(directory, "examples.cache");
+        final List<Float> expected = trainWithPasses(
+                VowpalWabbit.advancedBuilder().cacheFile(cache.toPath()).killCache(), directory);
+        Assert.assertTrue(cache.delete());
+
+        // In memory, partly spilled and fully spilled.
+        for (final long memory : new long[]{1 << 20, 4096, 0}) {
+            assertSamePredictions(expected, trainWithPasses(
+                    VowpalWabbit.advancedBuilder().replayPasses(memory, directory.toPath()), directory));
+        }
+
+        // Nothing fits in memory, so every example spills to the file.
+        try (final VWFloatLearner learner = VowpalWabbit.advancedBuilder()
+                .passes(3).replayPasses(0, directory.toPath()).buildFloatLearner()) {
+            for (int i = 0; i < 1000; i++) {
+                learner.learn((i % 3) + " |x f" + (i % 5));
+            }
+            final ReplayStats stats = learner.getReplayStats();
+            Assert.assertEquals(0, stats.getMemoryBytes());
+            Assert.assertTrue(stats.getSpilledBytes() > 0);
+        }
+        // The throwaway cache file is gone and the spill file is unlinked.
+        Assert.assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testCacheWriterRoundTrip() throws Exception {
+        final File directory = File.createTempFile("VWLearnersTest", "");
+        Assert.assertTrue(directory.delete() && directory.mkdir());
+        directory.deleteOnExit();
+        final File textCache = new File(directory, "text.cache");
+        final List<Float> expected = trainWithPasses(VowpalWabbit.advancedBuilder()
+                .parameter("--holdout_off").cacheFile(textCache.toPath()).killCache(), directory);
+
+        final File writtenCache = new File(directory, "written.cache");
+        try (final VWCacheWriter writer = new VWCacheWriter(new FileOutputStream(writtenCache), 18)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.write((i % 3) + " |x f" + (i % 5) + " g" + (i % 7));
+            }
+        }
+        Assert.assertArrayEquals(Files.readAllBytes(textCache.toPath()), Files.readAllBytes(writtenCache.toPath()));
+
+        // vw reads the written cache, which has to carry its version, and runs every pass from it on close.
+        final File model = new File(directory, "model");
+        VowpalWabbit.advancedBuilder()
+                .parameter("--holdout_off").passes(3).cacheFile(writtenCache.toPath()).finalRegressor(model.toPath())
+                .buildFloatLearner()
+                .close();
+        assertSamePredictions(expected, predictWith(model));
+        Assert.assertTrue(textCache.delete() && writtenCache.delete());
+    }
+
+    @Test
+    public void testReplayRejectsDriver() throws Exception {
+        final File dataFile = File.createTempFile("VWLearnersTest", ".vw");
+        dataFile.deleteOnExit();
+        Files.write(dataFile.toPath(), Collections.singletonList("1 |x f1"), Charsets.UTF_8);
+        try (final VWFloatLearner learner = VowpalWabbit.advancedBuilder()
+                .passes(3).replayPasses(1 << 20, dataFile.getParentFile().toPath()).buildFloatLearner()) {
+            try {
+                learner.trainOnFile(dataFile.toPath(), new FileTrainingOptions());
+                Assert.fail();
+            } catch (final IllegalStateException e) {
+                // The end of the file would reset the source through the replay buffer.
+            }
+            learner.learn("1 |x f1");
+            Assert.assertTrue(learner.getReplayStats().getMemoryBytes() > 0);
+        }
+    }
+
+    @Test
+    public void testModelSnapshot() throws Exception {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            for (int i = 0; i < 1000; i++) {
+                learner.learn((i % 3) + " |x f" + (i % 5));
+            }
+            final float expected = learner.predict("|x f2");
+            try (final ModelSnapshot snapshot = learner.saveModelSnapshot()) {
+                Assert.assertTrue(snapshot.getSizeInBytes() > 0);
+                final float unseen = learner.predict("|x f7");
+                for (int i = 0; i < 1000; i++) {
+                    learner.learn("10 |x f2");
+                    // A feature whose weight was zero when the snapshot was saved.
+                    learner.learn("10 |x f7");
+                }
+                Assert.assertTrue(Math.abs(expected - learner.predict("|x f2")) > 1);
+                Assert.assertTrue(Math.abs(unseen - learner.predict("|x f7")) > 1);
+                learner.restoreModelSnapshot(snapshot);
+                Assert.assertEquals(expected, learner.predict("|x f2"), 1e-6);
+                Assert.assertEquals(unseen, learner.predict("|x f7"), 1e-6);
+                // The online state is restored too, so learning the same example moves the prediction the same way.
+                final float afterLearning = learner.learn("10 |x f2");
+                learner.restoreModelSnapshot(snapshot);
+                Assert.assertEquals(afterLearning, learner.learn("10 |x f2"), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testIngestChannel() throws Exception {
+        try (final VWScalarLearner expected = VowpalWabbit.builder().build();
+             final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            final StringBuilder data = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                final String example = (i % 3) + " |x f" + (i % 5);
+                expected.learn(example);
+                data.append(example).append('\n');
+            }
+            final byte[] bytes = data.toString().getBytes(Charsets.UTF_8);
+            try (final IngestChannel channel = learner.openIngestChannel(64)) {
+                // Writes which split lines and are larger than the ring.
+                for (int offset = 0; offset < bytes.length; offset += 100) {
+                    channel.write(bytes, offset, Math.min(100, bytes.length - offset));
+                }
+                Assert.assertTrue(channel.flush(10, TimeUnit.SECONDS));
+                channel.close();
+                Assert.assertEquals(1000, channel.getExamples());
+            }
+            Assert.assertEquals(expected.predict("|x f2"), learner.predict("|x f2"), 1e-6);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testIngestChannelDoesNotBlockOtherLearners() throws Exception {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build();
+             final IngestChannel channel = learner.openIngestChannel(64)) {
+            channel.write("1 |x f1\n".getBytes(Charsets.UTF_8), 0, 8);
+            Assert.assertTrue(channel.flush(10, TimeUnit.SECONDS));
+            // The driver of the open channel is running, closing or training another learner does not wait for it.
+            final File dataFile = File.createTempFile("VWLearnersTest", ".vw");
+            dataFile.deleteOnExit();
+            Files.write(dataFile.toPath(), Collections.singletonList("1 |x f1"), Charsets.UTF_8);
+            try (final VWScalarLearner other = VowpalWabbit.builder().build()) {
+                Assert.assertEquals(1, other.trainOnFile(dataFile.toPath(), new FileTrainingOptions()));
+            }
+        }
+    }
+
+    @Test
+    public void testPredictCrossProduct() throws IOException {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            assertCrossProductLikePredict(learner);
+        }
+    }
+
+    @Test
+    public void testPredictCrossProductWithCrossedNamespaces() throws IOException {
+        try (final VWScalarLearner learner = VowpalWabbit.advancedBuilder().quadratic("user", "job").build()) {
+            assertCrossProductLikePredict(learner);
+        }
+    }
+
+    @Test
+    public void testPredictCrossProductWithNonLinearReductions() throws IOException {
+        try (final VWScalarLearner learner = VowpalWabbit.advancedBuilder().lrq("user", "job", 3).build()) {
+            assertCrossProductLikePredict(learner);
+        }
+        try (final VWScalarLearner learner = VowpalWabbit.advancedBuilder().nn(3).build()) {
+            assertCrossProductLikePredict(learner);
+        }
+        try (final VWScalarLearner learner = VowpalWabbit.advancedBuilder().stagePoly().build()) {
+            assertCrossProductLikePredict(learner);
+        }
+    }
+
+    @Test
+    public void testPredictCrossProductSkipsEmptyLines() throws IOException {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            for (int i = 0; i < 20; i++) {
+                learner.learn((i % 3) + " |user id=" + (i % 2) + " |job title=" + (i % 5));
+            }
+            final float[] expected = learner.predictCrossProduct("|user id=1",
+                    new String[]{"|job title=1", "|job title=2"});
+            final ByteBuffer lines = ByteBuffer.allocateDirect(100);
+            lines.put("\n|job title=1\r\n\r\n\n|job title=2\n\n".getBytes(Charsets.UTF_8)).flip();
+            Assert.assertArrayEquals(expected, learner.predictCrossProduct("|user id=1", lines), 0);
+        }
+    }
+
+    private static void assertCrossProductLikePredict(final VWScalarLearner learner) {
+        for (int i = 0; i < 20; i++) {
+            learner.learn((i % 3) + " |user id=" + (i % 2) + " |job title=" + (i % 5));
+        }
+        final String[] items = {"|job title=1", "|job title=2 x:0.5", "|job title=7"};
+        final float[] scores = learner.predictCrossProduct("|user id=1", items);
+        final ByteBuffer lines = ByteBuffer.allocateDirect(100);
+        lines.put(Joiner.on('\n').join(items).getBytes(Charsets.UTF_8)).flip();
+        Assert.assertArrayEquals(scores, learner.predictCrossProduct("|user id=1", lines), 0);
+        for (int i = 0; i < items.length; i++) {
+            Assert.assertEquals(learner.predict("|user id=1 " + items[i]), scores[i], 1e-4);
+        }
+    }
+
+    @Test
+    public void testPredictTopK() throws IOException {
+        try (final VWScalarsLearner learner = VWLearners.<VWScalarsLearner>create("--quiet --oaa 20 --probabilities")) {
+            for (int i = 0; i < 100; i++) {
+                learner.learn((i % 20 + 1) + " |x f" + (i % 20));
+            }
+            final float[] probabilities = learner.predict("|x f3");
+            final int[] ids = new int[5];
+            final float[] scores = new float[5];
+            Assert.assertEquals(5, learner.predictTopK("|x f3", 5, ids, scores));
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(probabilities[ids[i]], scores[i], 0);
+                if (i > 0) {
+                    Assert.assertTrue(scores[i - 1] >= scores[i]);
+                }
+            }
+            for (final float probability : probabilities) {
+                Assert.assertTrue(probability <= scores[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.indeed.vw.wrapper.ranking;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.indeed.vw.wrapper.api.VowpalWabbit;
+import com.indeed.vw.wrapper.api.example.AdfExampleBuilder;
+import com.indeed.vw.wrapper.learner.ActionSource;
+import com.indeed.vw.wrapper.learner.VWActionScoresLearner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ */
+public class RankingExecutorTest {
+    private static final int CANDIDATES = 25;
+
+    private static List<VWActionScoresLearner> trainReplicas(final int count) {
+        final List<VWActionScoresLearner> replicas = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final VWActionScoresLearner replica = VowpalWabbit.advancedBuilder().cbAdf().build();
+            for (int j = 0; j < 50; j++) {
+                replica.learn(new String[]{"shared |u id=" + (j % 3), "0:" + (j % 2) + ":0.5 |a x" + (j % 7), "|a y"});
+            }
+            replicas.add(replica);
+        }
+        return replicas;
+    }
+
+    private static long[] candidateIds() {
+        final long[] candidateIds = new long[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidateIds[i] = 100 + i;
+        }
+        return candidateIds;
+    }
+
+    private static void close(final ExecutorService executor, final List<VWActionScoresLearner> replicas)
+            throws IOException, InterruptedException {
+        // Chunks which missed the deadline still hold a replica until they are done.
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (final VWActionScoresLearner replica : replicas) {
+            replica.close();
+        }
+    }
+
+    /**
+     * Actions <code>|a x(id % 7)</code>, the first one takes <code>delayMillis</code> to be provided.
+     */
+    private static ActionSource slowFirstCandidate(final long delayMillis) {
+        return new ActionSource() {
+            @Override
+            public String getActionExample(final long actionId) {
+                if (actionId == 100) {
+                    // The chunk is called back from native code, it can not be interrupted by the deadline.
+                    Uninterruptibles.sleepUninterruptibly(delayMillis, TimeUnit.MILLISECONDS);
+                }
+                return "|a x" + ((actionId - 100) % 7);
+            }
+        };
+    }
+
+    @Test
+    public void testSlowChunkMissesDeadline() throws Exception {
+        final List<VWActionScoresLearner> replicas = trainReplicas(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Best of the candidates outside of the first chunk of 4, which is too slow.
+            final String[] multiline = new String[CANDIDATES - 4 + 1];
+            multiline[0] = "shared |u id=1";
+            for (int i = 4; i < CANDIDATES; i++) {
+                multiline[i - 4 + 1] = " |a x" + (i % 7);
+            }
+            final float[] expected = new float[multiline.length - 1];
+            final int[] positions = new int[multiline.length - 1];
+            replicas.get(0).predictTopK(multiline, multiline.length - 1, positions, expected);
+
+            final RankingResult result = new RankingExecutor(replicas, executor, 4)
+                    .rank("shared |u id=1", candidateIds(), slowFirstCandidate(2000), 5, 500, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(result.isComplete());
+            Assert.assertEquals(CANDIDATES - 4, result.getScoredCandidates());
+            Assert.assertArrayEquals(Arrays.copyOf(expected, 5), result.getScores(), 1e-6f);
+            for (final long actionId : result.getActionIds()) {
+                Assert.assertTrue(actionId >= 104);
+            }
+        } finally {
+            close(executor, replicas);
+        }
+    }
+
+    @Test
+    public void testEveryChunkMissesDeadline() throws Exception {
+        // The only chunk is too slow.
+        final List<VWActionScoresLearner> replicas = trainReplicas(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final RankingResult result = new RankingExecutor(replicas, executor, CANDIDATES)
+                    .rank("shared |u id=1", candidateIds(), slowFirstCandidate(1000), 5, 200, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(result.isComplete());
+            Assert.assertEquals(0, result.getScoredCandidates());
+            Assert.assertEquals(0, result.getActionIds().length);
+            Assert.assertEquals(0, result.getScores().length);
+        } finally {
+            close(executor, replicas);
+        }
+    }
+
+    @Test
+    public void testRankLikeSinglePrediction() throws Exception {
+        final List<VWActionScoresLearner> replicas = trainReplicas(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final int candidates = 25;
+            final long[] candidateIds = new long[candidates];
+            final AdfExampleBuilder.ActionFragments actions = new AdfExampleBuilder.ActionFragments();
+            final String[] multiline = new String[candidates + 1];
+            multiline[0] = "shared |u id=1";
+            for (int i = 0; i < candidates; i++) {
+                candidateIds[i] = 100 + i;
+                actions.put(candidateIds[i], "|a x" + (i % 7));
+                multiline[i + 1] = " |a x" + (i % 7);
+            }
+            final float[] expected = new float[candidates];
+            final int[] ids = new int[candidates];
+            replicas.get(0).predictTopK(multiline, candidates, ids, expected);
+
+            final RankingExecutor rankingExecutor = new RankingExecutor(replicas, executor, 4);
+            final RankingResult result = rankingExecutor.rank("shared |u id=1", candidateIds, actions, 5, 10, TimeUnit.SECONDS);
+            Assert.assertTrue(result.isComplete());
+            Assert.assertEquals(candidates, result.getScoredCandidates());
+            Assert.assertArrayEquals(Arrays.copyOf(expected, 5), result.getScores(), 1e-6f);
+            for (int i = 0; i < 5; i++) {
+                final float score = result.getScores()[i];
+                final int position = (int) (result.getActionIds()[i] - 100);
+                Assert.assertEquals(replicas.get(0).predict(new String[]{"shared |u id=1", multiline[position + 1]})
+                        .getActionScores()[0].getScore(), score, 1e-6f);
+            }
+        } finally {
+            close(executor, replicas);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.indeed.vw.wrapper.reactive;
+
+import com.indeed.vw.wrapper.learner.VWTypedLearner;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ *
+ */
+public class LearnerProcessorTest {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    /**
+     * Learner predicting the number of the example, e.g. 42 for "42 |a b".
+     */
+    @SuppressWarnings("unchecked")
+    private static VWTypedLearner<Integer> learner(final List<String> learned, final int failAt) {
+        return (VWTypedLearner<Integer>) Proxy.newProxyInstance(LearnerProcessorTest.class.getClassLoader(),
+                new Class<?>[]{VWTypedLearner.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final List<String> examples = method.getName().equals("learnNoResult")
+                                ? (List<String>) args[0]
+                                : Collections.singletonList((String) args[0]);
+                        for (final String example : examples) {
+                            if (learned.size() == failAt) {
+                                throw new IllegalStateException("Learner failure");
+                            }
+                            learned.add(example);
+                        }
+                        return Integer.parseInt(examples.get(0).split(" ")[0]);
+                    }
+                });
+    }
+
+    /**
+     * Publishes "0 |a b" to "count - 1 |a b" from another thread and records the maximum number of examples
+     * requested and not yet published.
+     */
+    private static final class ExamplePublisher implements Publisher<String> {
+        private final int count;
+        private final AtomicLong outstanding = new AtomicLong();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicLong maxOutstanding = new AtomicLong();
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile boolean cancelled;
+
+        private ExamplePublisher(final int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(final Subscriber<? super String> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(final long n) {
+                    final long unpublished = requested.addAndGet(n) - published.get();
+                    if (unpublished > maxOutstanding.get()) {
+                        maxOutstanding.set(unpublished);
+                    }
+                    if (outstanding.addAndGet(n) == n) {
+                        EXECUTOR.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                publish(subscriber);
+                            }
+                        });
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+
+        private void publish(final Subscriber<? super String> subscriber) {
+            long missing = outstanding.get();
+            while (missing > 0 && !cancelled) {
+                for (long i = 0; i < missing && !cancelled; i++) {
+                    final int example = next.getAndIncrement();
+                    if (example == count) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    published.incrementAndGet();
+                    subscriber.onNext(example + " |a b");
+                }
+                missing = outstanding.addAndGet(-missing);
+            }
+        }
+    }
+
+    private static final class PredictionSubscriber implements Subscriber<Integer> {
+        private final List<Integer> predictions = Collections.synchronizedList(new ArrayList<Integer>());
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Throwable error;
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            subscription = s;
+            s.request(7);
+        }
+
+        @Override
+        public void onNext(final Integer prediction) {
+            predictions.add(prediction);
+            if (predictions.size() % 7 == 0) {
+                subscription.request(7);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            error = t;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+    }
+
+    @Test
+    public void testSubscriberLearnsEverything() throws Exception {
+        final List<String> learned = Collections.synchronizedList(new ArrayList<String>());
+        final ExamplePublisher publisher = new ExamplePublisher(10000);
+        final LearnerSubscriber subscriber = new LearnerSubscriber(learner(learned, -1), EXECUTOR, 64);
+        publisher.subscribe(subscriber);
+        assertEquals(10000L, (long) subscriber.getCompletion().get(10, TimeUnit.SECONDS));
+        assertEquals(10000, learned.size());
+        for (int i = 0; i < learned.size(); i++) {
+            assertEquals(i + " |a b", learned.get(i));
+        }
+        assertTrue(publisher.maxOutstanding.get() <= 64);
+    }
+
+    @Test
+    public void testSubscriberFailsWithLearner() throws Exception {
+        final LearnerSubscriber subscriber = new LearnerSubscriber(
+                learner(Collections.synchronizedList(new ArrayList<String>()), 100), EXECUTOR, 64);
+        final ExamplePublisher publisher = new ExamplePublisher(10000);
+        publisher.subscribe(subscriber);
+        try {
+            subscriber.getCompletion().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (final ExecutionException e) {
+            assertEquals("Learner failure", e.getCause().getMessage());
+        }
+        assertTrue(publisher.cancelled);
+    }
+
+    @Test
+    public void testProcessorKeepsOrder() throws Exception {
+        final List<String> learned = Collections.synchronizedList(new ArrayList<String>());
+        final ExamplePublisher publisher = new ExamplePublisher(10000);
+        final LearnerProcessor<Integer> processor = new LearnerProcessor<>(learner(learned, -1), EXECUTOR, 32);
+        final PredictionSubscriber subscriber = new PredictionSubscriber();
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+        assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+        assertEquals(null, subscriber.error);
+        assertEquals(10000, subscriber.predictions.size());
+        for (int i = 0; i < subscriber.predictions.size(); i++) {
+            assertEquals(i, (int) subscriber.predictions.get(i));
+        }
+        assertTrue(publisher.maxOutstanding.get() <= 32);
+    }
+
+    @Test
+    public void testProcessorDeliversPredictionsBeforeError() throws Exception {
+        final ExamplePublisher publisher = new ExamplePublisher(10000);
+        final LearnerProcessor<Integer> processor = new LearnerProcessor<>(
+                learner(Collections.synchronizedList(new ArrayList<String>()), 100), EXECUTOR, 32);
+        final PredictionSubscriber subscriber = new PredictionSubscriber();
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+        assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+        assertEquals("Learner failure", subscriber.error.getMessage());
+        assertEquals(100, subscriber.predictions.size());
+        assertTrue(publisher.cancelled);
+    }
+}
@@ -0,0 +1,207 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.base.Supplier;
+import com.indeed.vw.wrapper.learner.VWLearner;
+import com.indeed.vw.wrapper.progvalidation.RMSEValidation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ */
+public class EarlyStoppingDriverTest {
+    private static final Supplier<RMSEValidation> RMSE = new Supplier<RMSEValidation>() {
+        @Override
+        public RMSEValidation get() {
+            return new RMSEValidation();
+        }
+    };
+
+    private static VWLearner learner() {
+        return (VWLearner) Proxy.newProxyInstance(EarlyStoppingDriverTest.class.getClassLoader(),
+                new Class<?>[]{VWLearner.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Snapshot of the model after a pass, it remembers whether it was closed.
+     */
+    private static final class PassSnapshot implements Closeable {
+        private final int pass;
+        private boolean closed;
+
+        private PassSnapshot(final int pass) {
+            this.pass = pass;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Records the snapshots saved after every pass and the ones restored.
+     */
+    private static final class SnapshotRecorder implements ModelSnapshots {
+        private final PassErrors errors;
+        private final List<PassSnapshot> saved = new ArrayList<>();
+        private final List<PassSnapshot> restored = new ArrayList<>();
+
+        private SnapshotRecorder(final PassErrors errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public Closeable save() {
+            final PassSnapshot snapshot = new PassSnapshot(errors.pass);
+            saved.add(snapshot);
+            return snapshot;
+        }
+
+        @Override
+        public void restore(final Closeable snapshot) {
+            final PassSnapshot restoredSnapshot = (PassSnapshot) snapshot;
+            Assert.assertFalse(restoredSnapshot.closed);
+            restored.add(restoredSnapshot);
+        }
+    }
+
+    /**
+     * Predicts the label plus the error of the current pass.
+     */
+    private static final class PassErrors implements TrainingPass, HoldoutPredictor {
+        private final double[] errors;
+        private int pass;
+
+        private PassErrors(final double... errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public long train(final VWLearner learner, final int pass) {
+            Assert.assertEquals(this.pass + 1, pass);
+            this.pass = pass;
+            return 100;
+        }
+
+        @Override
+        public double predict(final String example) {
+            return EarlyStoppingDriver.parseLabel(example) + errors[pass - 1];
+        }
+    }
+
+    @Test
+    public void testStopsAfterPatience() throws Exception {
+        final PassErrors errors = new PassErrors(0.5, 0.3, 0.2, 0.25, 0.21, 0.1, 0.1);
+        final EarlyStoppingResult result = EarlyStoppingDriver.builder(learner(), errors)
+                .holdout(Arrays.asList("1 |x a", "0 |x b"))
+                .validation(RMSE)
+                .patience(2)
+                .keepLastPass()
+                .build()
+                .train(errors);
+        final List<PassResult> passes = result.getPasses();
+        Assert.assertEquals(5, passes.size());
+        Assert.assertEquals(3, result.getBestPass().getPass());
+        Assert.assertEquals(0.2, result.getBestPass().getScore(), 1e-9);
+        Assert.assertEquals("RMSE", result.getBestPass().getMetric());
+        Assert.assertTrue(result.isStoppedEarly());
+        Assert.assertFalse(result.isRestored());
+        Assert.assertTrue(passes.get(1).isImproved());
+        Assert.assertFalse(passes.get(3).isImproved());
+        Assert.assertEquals(100, passes.get(4).getExamples());
+        Assert.assertEquals(0, passes.get(4).getSnapshotTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testMinImprovementAndMaxPasses() throws Exception {
+        final PassErrors errors = new PassErrors(0.5, 0.3, 0.29, 0.28, 0.1);
+        final EarlyStoppingResult result = EarlyStoppingDriver.builder(learner(), errors)
+                .holdout(Arrays.asList("1 |x a", "-1 2.0 'tag |x b"))
+                .validation(RMSE)
+                .minImprovement(0.05)
+                .maxPasses(4)
+                .keepLastPass()
+                .build()
+                .train(errors);
+        Assert.assertEquals(4, result.getPasses().size());
+        Assert.assertEquals(2, result.getBestPass().getPass());
+        Assert.assertFalse(result.isStoppedEarly());
+    }
+
+    @Test
+    public void testRestoresSnapshotOfBestPass() throws Exception {
+        final PassErrors errors = new PassErrors(0.5, 0.3, 0.2, 0.25, 0.21, 0.1);
+        final SnapshotRecorder recorder = new SnapshotRecorder(errors);
+        final EarlyStoppingResult result = EarlyStoppingDriver.builder(learner(), errors)
+                .holdout(Arrays.asList("1 |x a", "0 |x b"))
+                .validation(RMSE)
+                .patience(2)
+                .snapshots(recorder)
+                .build()
+                .train(errors);
+        Assert.assertEquals(3, result.getBestPass().getPass());
+        Assert.assertTrue(result.isRestored());
+        // A snapshot is saved after every improvement, the previous best one is closed right away.
+        Assert.assertEquals(3, recorder.saved.size());
+        for (int i = 0; i < recorder.saved.size(); i++) {
+            Assert.assertEquals(i + 1, recorder.saved.get(i).pass);
+            Assert.assertTrue(recorder.saved.get(i).closed);
+        }
+        Assert.assertEquals(1, recorder.restored.size());
+        Assert.assertSame(recorder.saved.get(2), recorder.restored.get(0));
+    }
+
+    @Test
+    public void testNoRestoreWhenLastPassIsBest() throws Exception {
+        final PassErrors errors = new PassErrors(0.5, 0.4, 0.3);
+        final SnapshotRecorder recorder = new SnapshotRecorder(errors);
+        final EarlyStoppingResult result = EarlyStoppingDriver.builder(learner(), errors)
+                .holdout(Arrays.asList("1 |x a", "0 |x b"))
+                .validation(RMSE)
+                .maxPasses(3)
+                .snapshots(recorder)
+                .build()
+                .train(errors);
+        Assert.assertEquals(3, result.getBestPass().getPass());
+        Assert.assertFalse(result.isRestored());
+        // No snapshot after the last pass, nothing would restore it.
+        Assert.assertEquals(2, recorder.saved.size());
+        for (final PassSnapshot snapshot : recorder.saved) {
+            Assert.assertTrue(snapshot.closed);
+        }
+        Assert.assertTrue(recorder.restored.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEmptyHoldout() throws Exception {
+        final PassErrors errors = new PassErrors(0.5);
+        EarlyStoppingDriver.builder(learner(), errors)
+                .holdout(Arrays.<String>asList())
+                .validation(RMSE)
+                .keepLastPass()
+                .build()
+                .train(errors);
+    }
+
+    @Test
+    public void testParseLabel() {
+        Assert.assertEquals(1, EarlyStoppingDriver.parseLabel("1 |x a"), 0);
+        Assert.assertEquals(-1, EarlyStoppingDriver.parseLabel("-1 2.0 'tag |x a"), 0);
+        Assert.assertEquals(0.5, EarlyStoppingDriver.parseLabel("0.5|x a"), 0);
+    }
+}
@@ -0,0 +1,123 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.base.Charsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ */
+public class ExampleStoreTest {
+
+    private static File tempFile() throws IOException {
+        final File file = File.createTempFile("ExampleStoreTest", ".vw");
+        file.deleteOnExit();
+        new File(file.getPath() + ".idx").deleteOnExit();
+        return file;
+    }
+
+    /**
+     * @return the examples of every batch, split on the line breaks ending single line examples
+     */
+    private static List<String> read(final Iterator<ByteBuffer> epoch, final int batchSize) {
+        final List<String> examples = new ArrayList<>();
+        while (epoch.hasNext()) {
+            final ByteBuffer batch = epoch.next();
+            Assert.assertTrue(batch.remaining() <= batchSize);
+            final byte[] bytes = new byte[batch.remaining()];
+            batch.get(bytes);
+            final String lines = new String(bytes, Charsets.UTF_8);
+            Assert.assertTrue(lines.endsWith("\n"));
+            examples.addAll(Arrays.asList(lines.substring(0, lines.length() - 1).split("\n")));
+        }
+        return examples;
+    }
+
+    @Test
+    public void testEpochs() throws IOException {
+        final List<String> examples = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            examples.add((i % 3) + " |x f" + i + " g" + (i % 11));
+        }
+        // Small segments and batches so that the data file is mapped in many segments.
+        try (final ExampleStore store = ExampleStore.create(tempFile().toPath(), 4096, 1000)) {
+            for (final String example : examples) {
+                store.append(example);
+            }
+            Assert.assertEquals(5000, store.size());
+            Assert.assertEquals(examples, read(store.sequentialEpoch(), 1000));
+
+            final List<String> shuffled = read(store.shuffledEpoch(new Random(1)), 1000);
+            Assert.assertFalse(examples.equals(shuffled));
+            Assert.assertEquals(shuffled, read(store.shuffledEpoch(new Random(1)), 1000));
+            Assert.assertFalse(shuffled.equals(read(store.shuffledEpoch(new Random(2)), 1000)));
+            Collections.sort(shuffled);
+            final List<String> sorted = new ArrayList<>(examples);
+            Collections.sort(sorted);
+            Assert.assertEquals(sorted, shuffled);
+
+            // Examples appended after an epoch are in the next one.
+            store.append("1 |x last");
+            examples.add("1 |x last");
+            Assert.assertEquals(examples, read(store.sequentialEpoch(), 1000));
+        }
+    }
+
+    @Test
+    public void testMultilineAndReopen() throws IOException {
+        final File file = tempFile();
+        try (final ExampleStore store = ExampleStore.create(file.toPath())) {
+            store.append(new String[]{"shared |s a", "0:1 |a x", "|a y"});
+            store.append("1 |x single");
+        }
+        try (final ExampleStore store = ExampleStore.open(file.toPath())) {
+            Assert.assertEquals(2, store.size());
+            store.append("0 |x appended");
+            final ByteBuffer batch = store.sequentialEpoch().next();
+            final byte[] bytes = new byte[batch.remaining()];
+            batch.get(bytes);
+            Assert.assertEquals("shared |s a\n0:1 |a x\n|a y\n\n1 |x single\n0 |x appended\n",
+                    new String(bytes, Charsets.UTF_8));
+            Assert.assertEquals(bytes.length, store.sizeInBytes());
+        }
+    }
+
+    @Test
+    public void testReopenDropsIndexEntriesPastData() throws IOException {
+        final File file = tempFile();
+        try (final ExampleStore store = ExampleStore.create(file.toPath())) {
+            store.append("1 |x a");
+            store.append("0 |x b");
+            store.append("1 |x c");
+        }
+        // The last example lost its data but kept its index entry.
+        try (final RandomAccessFile data = new RandomAccessFile(file, "rw")) {
+            data.setLength(data.length() - 3);
+        }
+        try (final ExampleStore store = ExampleStore.open(file.toPath())) {
+            Assert.assertEquals(2, store.size());
+            Assert.assertEquals(14, store.sizeInBytes());
+            store.append("0 |x d");
+            Assert.assertEquals(Arrays.asList("1 |x a", "0 |x b", "0 |x d"), read(store.sequentialEpoch(), 1 << 20));
+        }
+        Assert.assertEquals(3 * 8, new File(file.getPath() + ".idx").length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLineBreak() throws IOException {
+        try (final ExampleStore store = ExampleStore.create(tempFile().toPath())) {
+            store.append("1 |x a\n0 |x b");
+        }
+    }
+}
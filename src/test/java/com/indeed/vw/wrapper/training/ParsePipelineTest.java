@@ -0,0 +1,179 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.indeed.vw.wrapper.api.VowpalWabbit;
+import com.indeed.vw.wrapper.learner.ParsedExample;
+import com.indeed.vw.wrapper.learner.VWLearner;
+import com.indeed.vw.wrapper.learner.VWScalarLearner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ */
+public class ParsePipelineTest {
+
+    @Test
+    public void testOrderedPipelineLikeLearnLoop() throws Exception {
+        try (final VWScalarLearner expected = VowpalWabbit.builder().build();
+             final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            try (final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, ParsePipeline.<String>toStringParser(), 4, 16, true)) {
+                for (int i = 0; i < 1000; i++) {
+                    final String example = (i % 3) + " |x f" + (i % 5) + " g" + (i % 11);
+                    expected.learn(example);
+                    pipeline.submit(example);
+                }
+                Assert.assertEquals(1000, pipeline.finish().getExamples());
+            }
+            Assert.assertEquals(expected.predict("|x f1 g2"), learner.predict("|x f1 g2"), 0);
+        }
+    }
+
+    @Test
+    public void testUnorderedPipeline() throws Exception {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build();
+             final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, ParsePipeline.<String>toStringParser(), 4, 16, false)) {
+            for (int i = 0; i < 1000; i++) {
+                pipeline.submit((i % 3) + " |x f" + (i % 5));
+            }
+            Assert.assertEquals(1000, pipeline.finish().getExamples());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParserFailureStopsPipeline() throws Exception {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build();
+             final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, new RecordParser<String>() {
+                 @Override
+                 public ParsedExample parse(final VWLearner learner, final String record) {
+                     throw new IllegalArgumentException(record);
+                 }
+             }, 2, 4, true)) {
+            pipeline.submit("bad");
+            pipeline.finish();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParserErrorStopsPipeline() throws Exception {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build();
+             final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, new RecordParser<String>() {
+                 @Override
+                 public ParsedExample parse(final VWLearner learner, final String record) {
+                     throw new AssertionError(record);
+                 }
+             }, 2, 2, true)) {
+            try {
+                // More records than the capacity, the learner thread has to keep draining after the error.
+                for (int i = 0; i < 100; i++) {
+                    pipeline.submit("bad");
+                }
+                pipeline.finish();
+                Assert.fail();
+            } catch (final IllegalStateException e) {
+                Assert.assertTrue(e.getCause() instanceof AssertionError);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubmitAfterFinish() throws Exception {
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build();
+             final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, ParsePipeline.<String>toStringParser(), 2, 4, true)) {
+            pipeline.submit("1 |x a");
+            Assert.assertEquals(1, pipeline.finish().getExamples());
+            pipeline.submit("1 |x b");
+        }
+    }
+
+    @Test
+    public void testCloseFreesExampleBeingParsed() throws Exception {
+        final CountDownLatch parsing = new CountDownLatch(1);
+        final List<ParsedExample> returned = Collections.synchronizedList(new ArrayList<ParsedExample>());
+        try (final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, new RecordParser<String>() {
+                @Override
+                public ParsedExample parse(final VWLearner learner, final String record) {
+                    parsing.countDown();
+                    try {
+                        Thread.sleep(Long.MAX_VALUE);
+                    } catch (final InterruptedException e) {
+                        // Close interrupts the parsers before the learner thread, which is then interrupted while it
+                        // waits for this record.
+                        Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+                    }
+                    final ParsedExample example = learner.parseExample(record);
+                    returned.add(example);
+                    return example;
+                }
+            }, 1, 4, true);
+            pipeline.submit("1 |x a");
+            parsing.await();
+            pipeline.close();
+            Assert.assertEquals(1, returned.size());
+            try {
+                learner.learnParsed(returned.get(0));
+                Assert.fail();
+            } catch (final IllegalStateException e) {
+                // Already closed by the pipeline.
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseWakesBlockedProducers() throws Exception {
+        for (final boolean ordered : new boolean[]{true, false}) {
+            try (final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+                final ParsePipeline<String> pipeline = new ParsePipeline<>(learner, new RecordParser<String>() {
+                    @Override
+                    public ParsedExample parse(final VWLearner learner, final String record) {
+                        try {
+                            Thread.sleep(Long.MAX_VALUE);
+                        } catch (final InterruptedException e) {
+                            // Closed.
+                        }
+                        throw new IllegalStateException(record);
+                    }
+                }, 1, 1, ordered);
+                final List<Thread> producers = new ArrayList<>();
+                final List<AtomicReference<Throwable>> failures = new ArrayList<>();
+                for (int i = 0; i < 3; i++) {
+                    final AtomicReference<Throwable> failure = new AtomicReference<>();
+                    final Thread producer = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                while (true) {
+                                    pipeline.submit("1 |x a");
+                                }
+                            } catch (final Throwable e) {
+                                failure.set(e);
+                            }
+                        }
+                    });
+                    producer.start();
+                    producers.add(producer);
+                    failures.add(failure);
+                }
+                // Every producer ends up waiting for space in the full pipeline.
+                for (final Thread producer : producers) {
+                    while (producer.getState() != Thread.State.WAITING) {
+                        Thread.sleep(10);
+                    }
+                }
+                pipeline.close();
+                for (int i = 0; i < producers.size(); i++) {
+                    producers.get(i).join();
+                    Assert.assertTrue(failures.get(i).get() instanceof IllegalStateException);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.indeed.vw.wrapper.training;
+
+import com.google.common.base.Charsets;
+import com.indeed.vw.wrapper.api.VowpalWabbit;
+import com.indeed.vw.wrapper.learner.VWScalarLearner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ *
+ */
+public class VWTrainerTest {
+
+    private static List<String> examples() {
+        final List<String> examples = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            examples.add((i % 3) + " |x f" + (i % 5) + " g" + (i % 11));
+        }
+        return examples;
+    }
+
+    private static File write(final List<String> examples, final boolean gzip) throws IOException {
+        final File file = File.createTempFile("VWTrainerTest", gzip ? ".vw.gz" : ".vw");
+        file.deleteOnExit();
+        OutputStream out = Files.newOutputStream(file.toPath());
+        if (gzip) {
+            out = new GZIPOutputStream(out);
+        }
+        try (final Writer writer = new OutputStreamWriter(out, Charsets.UTF_8)) {
+            for (final String example : examples) {
+                writer.write(example);
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static void assertLikeLearnLoop(final boolean gzip, final int chunkSize) throws IOException {
+        assertLikeLearnLoop(gzip, chunkSize, VWTrainer.DEFAULT_WINDOW_SIZE);
+    }
+
+    private static void assertLikeLearnLoop(final boolean gzip, final int chunkSize, final int windowSize)
+            throws IOException {
+        final List<String> examples = examples();
+        final File file = write(examples, gzip);
+        try (final VWScalarLearner expected = VowpalWabbit.builder().build();
+             final VWScalarLearner learner = VowpalWabbit.builder().build()) {
+            for (final String example : examples) {
+                expected.learn(example);
+            }
+            final List<TrainingProgress> reports = new ArrayList<>();
+            final VWTrainer trainer = new VWTrainer(learner, chunkSize, windowSize, new ProgressListener() {
+                @Override
+                public void onProgress(final TrainingProgress progress) {
+                    reports.add(progress);
+                }
+            }, 0, TimeUnit.SECONDS);
+            final TrainingProgress progress = trainer.train(file.toPath());
+            Assert.assertEquals(examples.size(), progress.getExamples());
+            Assert.assertEquals(progress, reports.get(reports.size() - 1));
+            Assert.assertEquals(expected.predict("|x f1 g2"), learner.predict("|x f1 g2"), 0);
+        }
+    }
+
+    @Test
+    public void testTrainPlainFile() throws IOException {
+        assertLikeLearnLoop(false, VWTrainer.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Test
+    public void testTrainGzipFile() throws IOException {
+        assertLikeLearnLoop(true, VWTrainer.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Test
+    public void testLinesLongerThanChunks() throws IOException {
+        assertLikeLearnLoop(false, 7);
+        assertLikeLearnLoop(true, 7);
+    }
+
+    @Test
+    public void testChunksAcrossMappedWindows() throws IOException {
+        assertLikeLearnLoop(false, 100, 1000);
+        assertLikeLearnLoop(false, 7, 10);
+    }
+}
@@ -1,9 +1,12 @@
 #include "com_indeed_vw_wrapper_learner_VWActionProbsLearner.h"
 #include <vw.h>
 #include "jni_base_learner.h"
+#include "jni_top_k.h"
 
 jobject action_probs_prediction(example* vec, JNIEnv *env)
-{ jclass action_prob_class = env->FindClass("vowpalWabbit/responses/ActionProb");
+{ // One frame for the classes and arrays, the elements are deleted as soon as they are stored.
+  local_frame frame(env, 8);
+  jclass action_prob_class = env->FindClass("com/indeed/vw/wrapper/learner/ActionProb");
   jmethodID action_prob_constructor = env->GetMethodID(action_prob_class, "<init>", "(IF)V");
 
   // The action_probs prediction_type_t is just a placeholder identifying when the aciton_scores
@@ -13,20 +16,23 @@ jobject action_probs_prediction(example* vec, JNIEnv *env)
   size_t num_values = a_s.size();
   jobjectArray j_action_probs = env->NewObjectArray(num_values, action_prob_class, 0);
 
-  jclass action_probs_class = env->FindClass("vowpalWabbit/responses/ActionProbs");
+  jclass action_probs_class = env->FindClass("com/indeed/vw/wrapper/learner/ActionProbs");
   for (uint32_t i=0; i<num_values; ++i)
   { ACTION_SCORE::action_score a = a_s[i];
     jobject j_action_prob = env->NewObject(action_prob_class, action_prob_constructor, a.action, a.score);
     env->SetObjectArrayElement(j_action_probs, i, j_action_prob);
+    env->DeleteLocalRef(j_action_prob);
   }
-  jmethodID action_probs_constructor = env->GetMethodID(action_probs_class, "<init>", "([LvowpalWabbit/responses/ActionProb;)V");
-  return env->NewObject(action_probs_class, action_probs_constructor, j_action_probs);
+  jmethodID action_probs_constructor = env->GetMethodID(action_probs_class, "<init>", "([Lcom/indeed/vw/wrapper/learner/ActionProb;)V");
+  return frame.pop(env->NewObject(action_probs_class, action_probs_constructor, j_action_probs));
 }
 
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predict(JNIEnv *env, jobject obj, jstring example_string, jboolean learn, jlong vwPtr)
-{ return base_predict<jobject>(env, example_string, learn, vwPtr, action_probs_prediction);
+JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predictParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jboolean learn, jlong vwPtr)
+{ return base_predict<jobject>(env, parsedPtr, learn, vwPtr, action_probs_prediction);
 }
 
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predictMultiline(JNIEnv *env, jobject obj, jobjectArray example_strings, jboolean learn, jlong vwPtr)
-{ return base_predict<jobject>(env, example_strings, learn, vwPtr, action_probs_prediction);
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predictTopKParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jint k, jintArray ids, jfloatArray scores, jlong vwPtr)
+{ return base_predict<jint>(env, parsedPtr, false, vwPtr, [=](example* ex, JNIEnv *env)
+  { return action_scores_top_k(env, ex, k, false, ids, scores);
+  });
 }
@@ -10,19 +10,19 @@ extern "C"
 #endif
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWActionProbsLearner
- * Method:    predict
- * Signature: (Ljava/lang/String;ZJ)LvowpalWabbit/responses/ActionProbs;
+ * Method:    predictParsed
+ * Signature: (JZJ)Lcom/indeed/vw/wrapper/learner/ActionProbs;
  */
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predict
-(JNIEnv *, jobject, jstring, jboolean, jlong);
+JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predictParsed
+(JNIEnv *, jobject, jlong, jboolean, jlong);
 
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWActionProbsLearner
- * Method:    predictMultiline
- * Signature: ([Ljava/lang/String;ZJ)LvowpalWabbit/responses/ActionProbs;
+ * Method:    predictTopKParsed
+ * Signature: (JI[I[FJ)I
  */
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predictMultiline
-(JNIEnv *, jobject, jobjectArray, jboolean, jlong);
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWActionProbsLearner_predictTopKParsed
+(JNIEnv *, jobject, jlong, jint, jintArray, jfloatArray, jlong);
 
 #ifdef __cplusplus
 }
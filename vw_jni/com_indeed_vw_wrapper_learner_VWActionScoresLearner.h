@@ -10,19 +10,19 @@ extern "C"
 #endif
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWActionScoresLearner
- * Method:    predict
- * Signature: (Ljava/lang/String;ZJ)LvowpalWabbit/responses/ActionScores;
+ * Method:    predictParsed
+ * Signature: (JZJ)Lcom/indeed/vw/wrapper/learner/ActionScores;
  */
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionScoresLearner_predict
-(JNIEnv *, jobject, jstring, jboolean, jlong);
+JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionScoresLearner_predictParsed
+(JNIEnv *, jobject, jlong, jboolean, jlong);
 
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWActionScoresLearner
- * Method:    predictMultiline
- * Signature: ([Ljava/lang/String;ZJ)LvowpalWabbit/responses/ActionScores;
+ * Method:    predictTopKParsed
+ * Signature: (JI[I[FJ)I
  */
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWActionScoresLearner_predictMultiline
-(JNIEnv *, jobject, jobjectArray, jboolean, jlong);
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWActionScoresLearner_predictTopKParsed
+(JNIEnv *, jobject, jlong, jint, jintArray, jfloatArray, jlong);
 
 #ifdef __cplusplus
 }
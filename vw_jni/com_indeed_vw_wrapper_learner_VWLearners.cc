@@ -1,12 +1,23 @@
 #include <vw.h>
+#include <comp_io.h>
+#include <global_data.h>
+#include <parse_example.h>
 #include <stdio.h>
 #include <unistd.h>
 #include "jni_base_learner.h"
+#include "jni_hash_cache.h"
+#include "jni_ingest_ring.h"
+#include "jni_model_snapshot.h"
+#include "jni_replay_buffer.h"
 #include "com_indeed_vw_wrapper_learner_VWLearners.h"
 
 #define RETURN_TYPE "com/indeed/vw/wrapper/learner/VWLearners$VWReturnType"
 #define RETURN_TYPE_INSTANCE "L" RETURN_TYPE ";"
 
+JNIEXPORT jstring JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getVersion(JNIEnv *env, jclass cls)
+{ return env->NewStringUTF(version.to_string().c_str());
+}
+
 JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_initialize(JNIEnv *env, jclass cls, jobjectArray jargs)
 { jlong vwPtr = 0;
   try
@@ -17,7 +28,7 @@ JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_initialize
       argv[i] = strdup(env->GetStringUTFChars(jarg, nullptr));
     }
     vw* vwInstance = VW::initialize(argc, argv);
-    vwPtr = (jlong)vwInstance;
+    vwPtr = (jlong)new jni_learner(vwInstance);
     return vwPtr;
   }
   catch(...)
@@ -25,10 +36,17 @@ JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_initialize
   }
 }
 
+JNIEXPORT jboolean JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_hasSeveralPasses(JNIEnv *env, jclass obj, jlong vwPtr)
+{ return get_learner(vwPtr)->instance->numpasses > 1;
+}
+
 JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_performRemainingPasses(JNIEnv *env, jclass obj, jlong vwPtr)
 { try
-  { vw* vwInstance = (vw*)vwPtr;
-    if (vwInstance->numpasses > 1)
+  { jni_learner* learner = get_learner(vwPtr);
+    vw* vwInstance = learner->instance;
+    if (learner->replay && vwInstance->numpasses > 1)
+      replay_remaining_passes(learner);
+    else if (vwInstance->numpasses > 1)
       { adjust_used_index(*vwInstance);
         vwInstance->do_reset_source = true;
         VW::start_parser(*vwInstance);
@@ -42,10 +60,182 @@ JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_performRema
 }
 
 
+namespace
+{ // The end of the input of a driver goes through vw's end of pass: with several passes or a cache it would finish the
+  // cache and run every remaining pass right away, so those learners are only trained through jni.
+  void check_one_pass_driver(jni_learner* learner)
+  { vw& all = *learner->instance;
+    // The end of the input would reset the source while the replay buffer is the output of the cache.
+    if (learner->replay)
+      throw illegal_state_error("vw's driver can not train a learner whose passes are replayed");
+    if (all.numpasses > 1 || all.p->write_cache)
+      throw illegal_state_error("vw's driver can not train a learner with several passes or a cache");
+  }
+
+  // Marks the driver as running, a stop requested in the meantime is applied once the parser is started.
+  void start_driver(jni_learner* learner)
+  { vw& all = *learner->instance;
+    std::lock_guard<std::mutex> driver_lock(learner->driver_mutex);
+    all.p->done = false;
+    all.early_terminate = false;
+    learner->driver_running = true;
+  }
+
+  void stop_driver_if_requested(jni_learner* learner)
+  { std::lock_guard<std::mutex> driver_lock(learner->driver_mutex);
+    if (learner->stop_training)
+      set_done(*learner->instance);
+  }
+
+  // Done is set by a stop or by the end of the input, the learner keeps learning through jni.
+  void end_driver(jni_learner* learner)
+  { vw& all = *learner->instance;
+    std::lock_guard<std::mutex> driver_lock(learner->driver_mutex);
+    learner->driver_running = false;
+    all.p->done = false;
+    all.early_terminate = false;
+  }
+
+  // Runs vw's parser thread and driver until the input ends or the training is stopped,
+  // returns the number of examples learned.  The input of the learner is restored afterwards,
+  // and so is the pass state which the end of the input moved forward.
+  uint64_t run_driver(jni_learner* learner, io_buf& input)
+  { vw& all = *learner->instance;
+    check_one_pass_driver(learner);
+    // vw's parser thread uses the same scratch buffers as the examples parsed through jni.
+    std::lock_guard<std::mutex> parser_lock(learner->parser_mutex);
+    uint64_t examples_before = all.sd->example_number;
+    io_buf* original_input = all.p->input;
+    size_t passes_complete = all.passes_complete;
+    size_t current_pass = all.current_pass;
+    float eta = all.eta;
+    all.p->input = &input;
+    start_driver(learner);
+    try
+    { all.p->reader = read_features_string;
+      adjust_used_index(all);
+      VW::start_parser(all);
+      stop_driver_if_requested(learner);
+      LEARNER::generic_driver(all);
+      VW::end_parser(all);
+    }
+    catch (...)
+    { all.p->input = original_input;
+      end_driver(learner);
+      throw;
+    }
+    all.p->input = original_input;
+    all.passes_complete = passes_complete;
+    all.current_pass = current_pass;
+    all.eta = eta;
+    end_driver(learner);
+    return all.sd->example_number - examples_before;
+  }
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_checkOnePassDriver(JNIEnv *env, jclass obj, jlong vwPtr)
+{ try
+  { check_one_pass_driver(get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_trainOnFile(JNIEnv *env, jclass obj, jlong vwPtr, jstring path)
+{ try
+  { const char* utf_path = env->GetStringUTFChars(path, nullptr);
+    std::string file(utf_path);
+    env->ReleaseStringUTFChars(path, utf_path);
+
+    // comp_io_buf reads plain and gzipped files alike.
+    comp_io_buf input;
+    if (input.open_file(file.c_str(), true, io_buf::READ) < 0)
+      throw std::runtime_error("Can not open " + file);
+    uint64_t examples;
+    try
+    { examples = run_driver(get_learner(vwPtr), input);
+    }
+    catch (...)
+    { input.close_files();
+      throw;
+    }
+    input.close_files();
+    return (jlong)examples;
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_trainOnIngestRing(JNIEnv *env, jclass obj, jlong vwPtr, jlong ringPtr)
+{ try
+  { ring_io_buf input(get_ingest_ring(ringPtr));
+    return (jlong)run_driver(get_learner(vwPtr), input);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_newIngestRing(JNIEnv *env, jclass obj, jlong capacity)
+{ try
+  { return (jlong)new ingest_ring((size_t)capacity);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_writeIngestRing(JNIEnv *env, jclass obj, jlong ringPtr, jobject buffer, jint offset, jint length, jlong timeoutMillis)
+{ const char* data = (const char*)env->GetDirectBufferAddress(buffer) + offset;
+  return (jint)get_ingest_ring(ringPtr)->write(data, (size_t)length, std::chrono::milliseconds(timeoutMillis));
+}
+
+JNIEXPORT jboolean JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_drainIngestRing(JNIEnv *env, jclass obj, jlong ringPtr, jlong timeoutMillis)
+{ return get_ingest_ring(ringPtr)->wait_drained(std::chrono::milliseconds(timeoutMillis));
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_closeIngestRing(JNIEnv *env, jclass obj, jlong ringPtr)
+{ get_ingest_ring(ringPtr)->close();
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_deleteIngestRing(JNIEnv *env, jclass obj, jlong ringPtr)
+{ delete get_ingest_ring(ringPtr);
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_setTrainingStopped(JNIEnv *env, jclass obj, jlong vwPtr, jboolean stopped)
+{ jni_learner* learner = get_learner(vwPtr);
+  std::lock_guard<std::mutex> driver_lock(learner->driver_mutex);
+  learner->stop_training = stopped;
+  // Stops both the parser thread and the driver, the examples learned so far are kept.
+  // An idle instance is left alone, a driver starting later applies the stop itself.
+  if (stopped && learner->driver_running)
+    set_done(*learner->instance);
+}
+
+JNIEXPORT jdoubleArray JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getTrainingProgress(JNIEnv *env, jclass obj, jlong vwPtr)
+{ // Read while the driver updates them, so the values are approximate.
+  shared_data* sd = get_learner(vwPtr)->instance->sd;
+  jdouble progress[3] = { (jdouble)sd->example_number, sd->sum_loss, sd->weighted_labeled_examples };
+  jdoubleArray r = env->NewDoubleArray(3);
+  env->SetDoubleArrayRegion(r, 0, 3, progress);
+  return r;
+}
+
 JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_closeInstance(JNIEnv *env, jclass obj, jlong vwPtr)
 { try
-  { vw* vwInstance = (vw*)vwPtr;
-    VW::finish(*vwInstance);
+  { jni_learner* learner = get_learner(vwPtr);
+    delete_example_pool(learner);
+    learner->shared_contexts.clear();
+    learner->actions.clear();
+    delete_replay(learner);
+    VW::finish(*learner->instance);
+    delete_feature_hash_cache(learner);
+    delete learner;
   }
   catch(...)
   { rethrow_cpp_exception_as_java_exception(env);
@@ -59,7 +249,7 @@ JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_saveModel(J
     std::string filenameCpp(utf_string);
     env->ReleaseStringUTFChars(filename, utf_string);
     env->DeleteLocalRef(filename);
-    VW::save_predictor(*(vw*)vwPtr, filenameCpp);
+    VW::save_predictor(*get_learner(vwPtr)->instance, filenameCpp);
   }
   catch(...)
   { rethrow_cpp_exception_as_java_exception(env);
@@ -69,7 +259,7 @@ JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_saveModel(J
 JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getReturnType(JNIEnv *env, jclass obj, jlong vwPtr)
 { jclass clVWReturnType = env->FindClass(RETURN_TYPE);
   jfieldID field;
-  vw* vwInstance = (vw*)vwPtr;
+  vw* vwInstance = get_learner(vwPtr)->instance;
   switch (vwInstance->l->pred_type)
   { case prediction_type::prediction_type_t::action_probs:
       field = env->GetStaticFieldID(clVWReturnType , "ActionProbs", RETURN_TYPE_INSTANCE);
@@ -98,3 +288,231 @@ JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getRetur
 
   return env->GetStaticObjectField(clVWReturnType, field);
 }
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_enableFeatureHashCache(JNIEnv *env, jclass obj, jlong vwPtr, jint capacity)
+{ try
+  { jni_learner* learner = get_learner(vwPtr);
+    // Examples may be parsed concurrently, they hold the parser mutex while they use the cache.
+    std::lock_guard<std::mutex> parser_lock(learner->parser_mutex);
+    enable_feature_hash_cache(learner, (size_t)capacity);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_enableReplay(JNIEnv *env, jclass obj, jlong vwPtr, jlong maxMemory, jstring spillDirectory)
+{ try
+  { const char* utf_directory = env->GetStringUTFChars(spillDirectory, nullptr);
+    std::string directory(utf_directory);
+    env->ReleaseStringUTFChars(spillDirectory, utf_directory);
+    enable_replay(get_learner(vwPtr), (size_t)maxMemory, directory);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getReplayStats(JNIEnv *env, jclass obj, jlong vwPtr)
+{ replay_io_buf* replay = get_learner(vwPtr)->replay;
+  jlong stats[2] = { 0, 0 };
+  if (replay)
+  { stats[0] = (jlong)replay->memory_bytes();
+    stats[1] = (jlong)replay->spilled_bytes();
+  }
+  jlongArray r = env->NewLongArray(2);
+  env->SetLongArrayRegion(r, 0, 2, stats);
+  return r;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_saveModelSnapshot(JNIEnv *env, jclass obj, jlong vwPtr)
+{ try
+  { return (jlong)save_model_snapshot(get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_restoreModelSnapshot(JNIEnv *env, jclass obj, jlong vwPtr, jlong snapshotPtr)
+{ try
+  { restore_model_snapshot(get_learner(vwPtr), (model_snapshot*)snapshotPtr);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getModelSnapshotSize(JNIEnv *env, jclass obj, jlong snapshotPtr)
+{ return (jlong)((model_snapshot*)snapshotPtr)->size();
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_deleteModelSnapshot(JNIEnv *env, jclass obj, jlong snapshotPtr)
+{ delete (model_snapshot*)snapshotPtr;
+}
+
+JNIEXPORT jlongArray JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getFeatureHashCacheStats(JNIEnv *env, jclass obj, jlong vwPtr)
+{ feature_hash_cache* cache = get_learner(vwPtr)->hash_cache;
+  jlong stats[2] = { 0, 0 };
+  if (cache)
+  { stats[0] = (jlong)cache->hits;
+    stats[1] = (jlong)cache->misses;
+  }
+  jlongArray r = env->NewLongArray(2);
+  env->SetLongArrayRegion(r, 0, 2, stats);
+  return r;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExample(JNIEnv *env, jclass obj, jlong vwPtr, jstring example_string)
+{ try
+  { return (jlong)parse_example(env, example_string, get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseMultilineExample(JNIEnv *env, jclass obj, jlong vwPtr, jobjectArray example_strings)
+{ try
+  { return (jlong)parse_multiline_example(env, example_strings, get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseMultilineExamples(JNIEnv *env, jclass obj, jlong vwPtr, jobjectArray examples)
+{ try
+  { return (jlong)parse_multiline_examples(env, examples, get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_learnParsed(JNIEnv *env, jclass obj, jlong vwPtr, jlong parsedPtr)
+{ // base_predict returns the block to the pool, so the count is read first.
+  jint count = (jint)get_parsed(parsedPtr)->count;
+  // Online learners usually drop the prediction, so no java object is built for it.
+  base_predict<jint>(env, parsedPtr, true, vwPtr, [](example* ex, JNIEnv *env) { return 0; });
+  return count;
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_releaseParsed(JNIEnv *env, jclass obj, jlong vwPtr, jlong parsedPtr)
+{ release_parsed_examples(get_learner(vwPtr), get_parsed(parsedPtr));
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseChars(JNIEnv *env, jclass obj, jlong vwPtr, jcharArray example_chars, jint offset, jint length)
+{ try
+  { return (jlong)parse_example(env, example_chars, offset, length, get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_registerSharedContext(JNIEnv *env, jclass obj, jlong vwPtr, jstring example_string)
+{ try
+  { jni_learner* learner = get_learner(vwPtr);
+    std::shared_ptr<cached_example> shared = parse_cached_example(env, example_string, learner);
+    uint64_t handle = learner->next_shared_context++;
+    learner->shared_contexts.put(handle, shared, 1);
+    return (jlong)handle;
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_removeSharedContext(JNIEnv *env, jclass obj, jlong vwPtr, jlong handle)
+{ get_learner(vwPtr)->shared_contexts.remove((uint64_t)handle);
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_configureSharedContextCache(JNIEnv *env, jclass obj, jlong vwPtr, jint maxSize, jlong ttlMillis)
+{ get_learner(vwPtr)->shared_contexts.configure((size_t)maxSize, std::chrono::milliseconds(ttlMillis));
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseWithSharedContext(JNIEnv *env, jclass obj, jlong vwPtr, jlong handle, jobjectArray example_strings)
+{ try
+  { jni_learner* learner = get_learner(vwPtr);
+    std::shared_ptr<cached_example> shared = learner->shared_contexts.get((uint64_t)handle);
+    // Evicted or expired, the caller registers the shared example again.
+    if (!shared)
+      return 0;
+    return (jlong)parse_multiline_example(env, *shared, example_strings, learner);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseWithCachedActions(JNIEnv *env, jclass obj, jlong vwPtr, jlong handle, jlongArray action_ids, jobject action_source)
+{ try
+  { jni_learner* learner = get_learner(vwPtr);
+    std::shared_ptr<cached_example> shared;
+    if (handle != 0)
+    { shared = learner->shared_contexts.get((uint64_t)handle);
+      // Evicted or expired, the caller registers the shared example again.
+      if (!shared)
+        return 0;
+    }
+    return (jlong)parse_multiline_example(env, shared.get(), action_ids, action_source, learner);
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_invalidateAction(JNIEnv *env, jclass obj, jlong vwPtr, jlong actionId)
+{ get_learner(vwPtr)->actions.remove((uint64_t)actionId);
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_invalidateAllActions(JNIEnv *env, jclass obj, jlong vwPtr)
+{ get_learner(vwPtr)->actions.clear();
+}
+
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_configureActionCache(JNIEnv *env, jclass obj, jlong vwPtr, jlong maxBytes)
+{ get_learner(vwPtr)->actions.configure((size_t)maxBytes, std::chrono::milliseconds(0));
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExamples(JNIEnv *env, jclass obj, jlong vwPtr, jstring first_string, jobjectArray example_strings)
+{ try
+  { return (jlong)parse_examples(env, first_string, example_strings, get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExamplesFromBuffer(JNIEnv *env, jclass obj, jlong vwPtr, jstring first_string, jobject buffer, jint offset, jint length)
+{ try
+  { const char* lines = (const char*)env->GetDirectBufferAddress(buffer) + offset;
+    return (jlong)parse_examples(env, first_string, lines, (size_t)length, get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
+
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExamplesFromBytes(JNIEnv *env, jclass obj, jlong vwPtr, jstring first_string, jbyteArray bytes, jint offset, jint length)
+{ try
+  { // Parsing may take long, so the bytes are copied instead of pinning the array with GetPrimitiveArrayCritical.
+    std::vector<char> lines(length);
+    env->GetByteArrayRegion(bytes, offset, length, (jbyte*)lines.data());
+    return (jlong)parse_examples(env, first_string, lines.data(), lines.size(), get_learner(vwPtr));
+  }
+  catch(...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  return 0;
+}
@@ -39,6 +39,14 @@ JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_closeInstan
 JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_performRemainingPasses
   (JNIEnv *, jclass, jlong);
 
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    hasSeveralPasses
+ * Signature: (J)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_hasSeveralPasses
+  (JNIEnv *, jclass, jlong);
+
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWLearners
  * Method:    saveModel
@@ -47,6 +55,294 @@ JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_performRema
 JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_saveModel
   (JNIEnv *, jclass, jlong, jstring);
 
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    enableFeatureHashCache
+ * Signature: (JI)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_enableFeatureHashCache
+  (JNIEnv *, jclass, jlong, jint);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    getFeatureHashCacheStats
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getFeatureHashCacheStats
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseExample
+ * Signature: (JLjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExample
+  (JNIEnv *, jclass, jlong, jstring);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseMultilineExample
+ * Signature: (J[Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseMultilineExample
+  (JNIEnv *, jclass, jlong, jobjectArray);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseChars
+ * Signature: (J[CII)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseChars
+  (JNIEnv *, jclass, jlong, jcharArray, jint, jint);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    registerSharedContext
+ * Signature: (JLjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_registerSharedContext
+  (JNIEnv *, jclass, jlong, jstring);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    removeSharedContext
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_removeSharedContext
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    configureSharedContextCache
+ * Signature: (JIJ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_configureSharedContextCache
+  (JNIEnv *, jclass, jlong, jint, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseWithSharedContext
+ * Signature: (JJ[Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseWithSharedContext
+  (JNIEnv *, jclass, jlong, jlong, jobjectArray);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseWithCachedActions
+ * Signature: (JJ[JLcom/indeed/vw/wrapper/learner/ActionSource;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseWithCachedActions
+  (JNIEnv *, jclass, jlong, jlong, jlongArray, jobject);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    invalidateAction
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_invalidateAction
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    invalidateAllActions
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_invalidateAllActions
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    configureActionCache
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_configureActionCache
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseExamples
+ * Signature: (JLjava/lang/String;[Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExamples
+  (JNIEnv *, jclass, jlong, jstring, jobjectArray);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseExamplesFromBuffer
+ * Signature: (JLjava/lang/String;Ljava/nio/ByteBuffer;II)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExamplesFromBuffer
+  (JNIEnv *, jclass, jlong, jstring, jobject, jint, jint);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseExamplesFromBytes
+ * Signature: (JLjava/lang/String;[BII)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseExamplesFromBytes
+  (JNIEnv *, jclass, jlong, jstring, jbyteArray, jint, jint);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    parseMultilineExamples
+ * Signature: (J[[Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_parseMultilineExamples
+  (JNIEnv *, jclass, jlong, jobjectArray);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    learnParsed
+ * Signature: (JJ)I
+ */
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_learnParsed
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    releaseParsed
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_releaseParsed
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    trainOnFile
+ * Signature: (JLjava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_trainOnFile
+  (JNIEnv *, jclass, jlong, jstring);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    setTrainingStopped
+ * Signature: (JZ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_setTrainingStopped
+  (JNIEnv *, jclass, jlong, jboolean);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    getTrainingProgress
+ * Signature: (J)[D
+ */
+JNIEXPORT jdoubleArray JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getTrainingProgress
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    trainOnIngestRing
+ * Signature: (JJ)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_trainOnIngestRing
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    newIngestRing
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_newIngestRing
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    writeIngestRing
+ * Signature: (JLjava/nio/ByteBuffer;IIJ)I
+ */
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_writeIngestRing
+  (JNIEnv *, jclass, jlong, jobject, jint, jint, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    drainIngestRing
+ * Signature: (JJ)Z
+ */
+JNIEXPORT jboolean JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_drainIngestRing
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    closeIngestRing
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_closeIngestRing
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    deleteIngestRing
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_deleteIngestRing
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    enableReplay
+ * Signature: (JJLjava/lang/String;)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_enableReplay
+  (JNIEnv *, jclass, jlong, jlong, jstring);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    getReplayStats
+ * Signature: (J)[J
+ */
+JNIEXPORT jlongArray JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getReplayStats
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    saveModelSnapshot
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_saveModelSnapshot
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    restoreModelSnapshot
+ * Signature: (JJ)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_restoreModelSnapshot
+  (JNIEnv *, jclass, jlong, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    getModelSnapshotSize
+ * Signature: (J)J
+ */
+JNIEXPORT jlong JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getModelSnapshotSize
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    deleteModelSnapshot
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_deleteModelSnapshot
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    checkOnePassDriver
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_checkOnePassDriver
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     com_indeed_vw_wrapper_learner_VWLearners
+ * Method:    getVersion
+ * Signature: ()Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_com_indeed_vw_wrapper_learner_VWLearners_getVersion
+  (JNIEnv *, jclass);
+
 #ifdef __cplusplus
 }
 #endif
@@ -10,19 +10,11 @@ extern "C"
 #endif
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWMulticlassLearner
- * Method:    predict
- * Signature: (Ljava/lang/String;ZJ)I
+ * Method:    predictParsed
+ * Signature: (JZJ)I
  */
-JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWMulticlassLearner_predict
-(JNIEnv *, jobject, jstring, jboolean, jlong);
-
-/*
- * Class:     com_indeed_vw_wrapper_learner_VWMulticlassLearner
- * Method:    predictMultiline
- * Signature: ([Ljava/lang/String;ZJ)I
- */
-JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWMulticlassLearner_predictMultiline
-(JNIEnv *, jobject, jobjectArray, jboolean, jlong);
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWMulticlassLearner_predictParsed
+(JNIEnv *, jobject, jlong, jboolean, jlong);
 
 #ifdef __cplusplus
 }
@@ -8,15 +8,11 @@ jobject multilabel_predictor(example* vec, JNIEnv *env)
   jintArray j_labels = env->NewIntArray(num_values);
   env->SetIntArrayRegion(j_labels, 0, num_values, (int*)labels.begin());
 
-  jclass clazz = env->FindClass("vowpalWabbit/responses/Multilabels");
+  jclass clazz = env->FindClass("com/indeed/vw/wrapper/learner/Multilabels");
   jmethodID constructor = env->GetMethodID(clazz, "<init>", "([I)V");
   return env->NewObject(clazz, constructor, j_labels);
 }
 
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWMultilabelsLearner_predict(JNIEnv *env, jobject obj, jstring example_string, jboolean learn, jlong vwPtr)
-{ return base_predict<jobject>(env, example_string, learn, vwPtr, multilabel_predictor);
-}
-
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWMultilabelsLearner_predictMultiline(JNIEnv *env, jobject obj, jobjectArray example_strings, jboolean learn, jlong vwPtr)
-{ return base_predict<jobject>(env, example_strings, learn, vwPtr, multilabel_predictor);
+JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWMultilabelsLearner_predictParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jboolean learn, jlong vwPtr)
+{ return base_predict<jobject>(env, parsedPtr, learn, vwPtr, multilabel_predictor);
 }
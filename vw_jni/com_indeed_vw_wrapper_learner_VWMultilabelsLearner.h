@@ -10,19 +10,11 @@ extern "C"
 #endif
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWMultilabelsLearner
- * Method:    predict
- * Signature: (Ljava/lang/String;ZJ)LvowpalWabbit/responses/Multilabels;
+ * Method:    predictParsed
+ * Signature: (JZJ)Lcom/indeed/vw/wrapper/learner/Multilabels;
  */
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWMultilabelsLearner_predict
-(JNIEnv *, jobject, jstring, jboolean, jlong);
-
-/*
- * Class:     com_indeed_vw_wrapper_learner_VWMultilabelsLearner
- * Method:    predictMultiline
- * Signature: ([Ljava/lang/String;ZJ)LvowpalWabbit/responses/Multilabels;
- */
-JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWMultilabelsLearner_predictMultiline
-(JNIEnv *, jobject, jobjectArray, jboolean, jlong);
+JNIEXPORT jobject JNICALL Java_com_indeed_vw_wrapper_learner_VWMultilabelsLearner_predictParsed
+(JNIEnv *, jobject, jlong, jboolean, jlong);
 
 #ifdef __cplusplus
 }
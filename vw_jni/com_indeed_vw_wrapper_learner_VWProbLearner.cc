@@ -1,13 +1,16 @@
 #include "com_indeed_vw_wrapper_learner_VWProbLearner.h"
 #include <vw.h>
 #include "jni_base_learner.h"
+#include "jni_ranking.h"
 
 jfloat prob_predictor(example* vec, JNIEnv *env) { return vec->pred.prob; }
 
-JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWProbLearner_predict(JNIEnv *env, jobject obj, jstring example_string, jboolean learn, jlong vwPtr)
-{ return base_predict<jfloat>(env, example_string, learn, vwPtr, prob_predictor);
+float prob_score(example* vec) { return vec->pred.prob; }
+
+JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWProbLearner_predictParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jboolean learn, jlong vwPtr)
+{ return base_predict<jfloat>(env, parsedPtr, learn, vwPtr, prob_predictor);
 }
 
-JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWProbLearner_predictMultiline(JNIEnv *env, jobject obj, jobjectArray example_strings, jboolean learn, jlong vwPtr)
-{ return base_predict<jfloat>(env, example_strings, learn, vwPtr, prob_predictor);
+JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWProbLearner_predictCrossProductParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jlong vwPtr)
+{ return rank_parsed(env, parsedPtr, vwPtr, prob_score);
 }
@@ -1,13 +1,16 @@
 #include "com_indeed_vw_wrapper_learner_VWScalarLearner.h"
 #include <vw.h>
 #include "jni_base_learner.h"
+#include "jni_ranking.h"
 
 jfloat scalar_predictor(example* vec, JNIEnv *env) { return vec->pred.scalar; }
 
-JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predict(JNIEnv *env, jobject obj, jstring example_string, jboolean learn, jlong vwPtr)
-{ return base_predict<jfloat>(env, example_string, learn, vwPtr, scalar_predictor);
+float scalar_score(example* vec) { return vec->pred.scalar; }
+
+JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predictParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jboolean learn, jlong vwPtr)
+{ return base_predict<jfloat>(env, parsedPtr, learn, vwPtr, scalar_predictor);
 }
 
-JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predictMultiline(JNIEnv *env, jobject obj, jobjectArray example_strings, jboolean learn, jlong vwPtr)
-{ return base_predict<jfloat>(env, example_strings, learn, vwPtr, scalar_predictor);
+JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predictCrossProductParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jlong vwPtr)
+{ return rank_parsed(env, parsedPtr, vwPtr, scalar_score);
 }
@@ -10,19 +10,19 @@ extern "C"
 #endif
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWScalarLearner
- * Method:    predict
- * Signature: (Ljava/lang/String;ZJ)F
+ * Method:    predictParsed
+ * Signature: (JZJ)F
  */
-JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predict
-(JNIEnv *, jobject, jstring, jboolean, jlong);
+JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predictParsed
+(JNIEnv *, jobject, jlong, jboolean, jlong);
 
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWScalarLearner
- * Method:    predictMultiline
- * Signature: ([Ljava/lang/String;ZJ)F
+ * Method:    predictCrossProductParsed
+ * Signature: (JJ)[F
  */
-JNIEXPORT jfloat JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predictMultiline
-(JNIEnv *, jobject, jobjectArray, jboolean, jlong);
+JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarLearner_predictCrossProductParsed
+(JNIEnv *, jobject, jlong, jlong);
 
 #ifdef __cplusplus
 }
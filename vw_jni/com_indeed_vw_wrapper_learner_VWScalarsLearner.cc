@@ -1,6 +1,7 @@
 #include "com_indeed_vw_wrapper_learner_VWScalarsLearner.h"
 #include <vw.h>
 #include "jni_base_learner.h"
+#include "jni_top_k.h"
 
 jfloatArray scalars_predictor(example* vec, JNIEnv *env)
 { v_array<float> scalars = vec->pred.scalars;
@@ -10,10 +11,22 @@ jfloatArray scalars_predictor(example* vec, JNIEnv *env)
   return r;
 }
 
-JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predict(JNIEnv *env, jobject obj, jstring example_string, jboolean learn, jlong vwPtr)
-{ return base_predict<jfloatArray>(env, example_string, learn, vwPtr, scalars_predictor);
+jint scalars_top_k(JNIEnv *env, example* ex, jint k, jintArray ids, jfloatArray scores)
+{ v_array<float>& scalars = ex->pred.scalars;
+  std::vector<scored_id>& candidates = top_k_candidates(scalars.size());
+  for (size_t i = 0; i < scalars.size(); i++)
+  { candidates[i].score = scalars[i];
+    candidates[i].id = (jint)i;
+  }
+  return copy_top_k(env, candidates, k, false, ids, scores);
 }
 
-JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predictMultiline(JNIEnv *env, jobject obj, jobjectArray example_strings, jboolean learn, jlong vwPtr)
-{ return base_predict<jfloatArray>(env, example_strings, learn, vwPtr, scalars_predictor);
+JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predictParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jboolean learn, jlong vwPtr)
+{ return base_predict<jfloatArray>(env, parsedPtr, learn, vwPtr, scalars_predictor);
+}
+
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predictTopKParsed(JNIEnv *env, jobject obj, jlong parsedPtr, jint k, jintArray ids, jfloatArray scores, jlong vwPtr)
+{ return base_predict<jint>(env, parsedPtr, false, vwPtr, [=](example* ex, JNIEnv *env)
+  { return scalars_top_k(env, ex, k, ids, scores);
+  });
 }
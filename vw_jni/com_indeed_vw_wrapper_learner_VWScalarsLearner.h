@@ -10,19 +10,19 @@ extern "C"
 #endif
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWScalarsLearner
- * Method:    predict
- * Signature: (Ljava/lang/String;ZJ)[F
+ * Method:    predictParsed
+ * Signature: (JZJ)[F
  */
-JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predict
-(JNIEnv *, jobject, jstring, jboolean, jlong);
+JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predictParsed
+(JNIEnv *, jobject, jlong, jboolean, jlong);
 
 /*
  * Class:     com_indeed_vw_wrapper_learner_VWScalarsLearner
- * Method:    predictMultiline
- * Signature: ([Ljava/lang/String;ZJ)[F
+ * Method:    predictTopKParsed
+ * Signature: (JI[I[FJ)I
  */
-JNIEXPORT jfloatArray JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predictMultiline
-(JNIEnv *, jobject, jobjectArray, jboolean, jlong);
+JNIEXPORT jint JNICALL Java_com_indeed_vw_wrapper_learner_VWScalarsLearner_predictTopKParsed
+(JNIEnv *, jobject, jlong, jint, jintArray, jfloatArray, jlong);
 
 #ifdef __cplusplus
 }
@@ -1,6 +1,43 @@
 #include <vw.h>
+#include <string.h>
+#include <algorithm>
+#include <vector>
 
 #include "jni_base_learner.h"
+#include "jni_hash_cache.h"
+
+#define ACTION_SOURCE "com/indeed/vw/wrapper/learner/ActionSource"
+
+namespace
+{ // Scratch space reused by every example parsed on the thread, it only grows.
+  thread_local std::vector<char> utf_buffer;
+
+  char* reserve_utf_buffer(size_t size)
+  { if (utf_buffer.size() < size)
+      utf_buffer.resize(size);
+    return utf_buffer.data();
+  }
+
+  // Same modified UTF-8 encoding GetStringUTFChars produces, so hashes do not depend on the entry point.
+  size_t encode_modified_utf8(const jchar* chars, size_t length, char* utf)
+  { char* out = utf;
+    for (size_t i = 0; i < length; i++)
+    { jchar c = chars[i];
+      if (c > 0 && c < 0x80)
+        *out++ = (char)c;
+      else if (c < 0x800)
+      { *out++ = (char)(0xc0 | (c >> 6));
+        *out++ = (char)(0x80 | (c & 0x3f));
+      }
+      else
+      { *out++ = (char)(0xe0 | (c >> 12));
+        *out++ = (char)(0x80 | ((c >> 6) & 0x3f));
+        *out++ = (char)(0x80 | (c & 0x3f));
+      }
+    }
+    return out - utf;
+  }
+}
 
 void throw_java_exception(JNIEnv *env, const char* name, const char* msg)
 { jclass jc = env->FindClass(name);
@@ -12,9 +49,15 @@ void rethrow_cpp_exception_as_java_exception(JNIEnv *env)
 { try
   { throw;
   }
+  catch(const java_exception_pending&)
+  { // Already thrown on the java side.
+  }
   catch(const std::bad_alloc& e)
   { throw_java_exception(env, "java/lang/OutOfMemoryError", e.what());
   }
+  catch(const illegal_state_error& e)
+  { throw_java_exception(env, "java/lang/IllegalStateException", e.what());
+  }
   catch(const boost::program_options::error& e)
   { throw_java_exception(env, "java/lang/IllegalArgumentException", e.what());
   }
@@ -28,16 +71,296 @@ void rethrow_cpp_exception_as_java_exception(JNIEnv *env)
   }
 }
 
-example* read_example(JNIEnv *env, jstring example_string, vw* vwInstance)
-{ const char* utf_string = env->GetStringUTFChars(example_string, NULL);
-  example* ex = read_example(utf_string, vwInstance);
+namespace
+{ // Bounds the memory pinned by the pool: idle blocks beyond the number of threads parsing at once are freed,
+  // and so are the examples of unusually long multiline examples.
+  const size_t max_idle_blocks = 64;
+  const size_t max_retained_examples = 256;
+
+  void delete_example(vw& all, example* ex)
+  { VW::dealloc_example(all.p->lp.delete_label, *ex);
+    free(ex);
+  }
+
+  void delete_parsed_examples(vw& all, parsed_examples* parsed)
+  { for (example* ex : parsed->examples)
+      delete_example(all, ex);
+    delete parsed;
+  }
+
+  parsed_examples* acquire_parsed_examples(jni_learner* learner)
+  { { std::lock_guard<std::mutex> pool_lock(learner->pool.mutex);
+      std::vector<parsed_examples*>& idle = learner->pool.idle;
+      if (!idle.empty())
+      { parsed_examples* parsed = idle.back();
+        idle.pop_back();
+        return parsed;
+      }
+    }
+    return new parsed_examples();
+  }
 
-  env->ReleaseStringUTFChars(example_string, utf_string);
-  env->DeleteLocalRef(example_string);
+  char* to_utf(JNIEnv *env, jstring example_string)
+  { // GetStringUTFChars would allocate and release a new buffer for every example.
+    jsize length = env->GetStringLength(example_string);
+    jsize utf_length = env->GetStringUTFLength(example_string);
+    char* utf_string = reserve_utf_buffer((size_t)utf_length + 1);
+    env->GetStringUTFRegion(example_string, 0, length, utf_string);
+    utf_string[utf_length] = '\0';
+    return utf_string;
+  }
+
+  void parse_line(jni_learner* learner, char* line, parsed_examples* parsed)
+  { vw& all = *learner->instance;
+    std::lock_guard<std::mutex> parser_lock(learner->parser_mutex);
+    feature_hash_cache_scope hash_cache_scope(learner);
+    VW::read_line(all, next_example(all, parsed), line);
+  }
+
+  // What vw would parse from an empty line: no features, no tag and the default label.
+  void end_block(jni_learner* learner, parsed_examples* parsed)
+  { vw& all = *learner->instance;
+    example* ex = next_example(all, parsed);
+    all.p->lp.default_label(&ex->l);
+  }
 
-  return ex;
+  void parse_lines(JNIEnv *env, jobjectArray example_strings, jni_learner* learner, parsed_examples* parsed)
+  { jsize example_count = env->GetArrayLength(example_strings);
+    parsed->examples.reserve(parsed->count + example_count + 1);
+    // The strings of a chunk are released all at once when its frame is popped.
+    for (jsize start = 0; start < example_count; start += local_frame::chunk_size)
+    { jsize end = std::min(example_count, start + local_frame::chunk_size);
+      local_frame frame(env, local_frame::chunk_size);
+      for (jsize i = start; i < end; i++)
+      { jstring example_string = (jstring) (env->GetObjectArrayElement(example_strings, i));
+        parse_line(learner, to_utf(env, example_string), parsed);
+      }
+    }
+  }
+}
+
+// The example is allocated outside of vw's example ring, so it is not returned to the ring by finish_example
+// and it does not compete with the parser thread of vw for ring slots.
+example* next_example(vw& all, parsed_examples* parsed)
+{ if (parsed->count == parsed->examples.size())
+    parsed->examples.push_back(VW::alloc_examples(all.p->lp.label_size, 1));
+  return parsed->examples[parsed->count++];
+}
+
+parsed_examples* parse_example(JNIEnv *env, jstring example_string, jni_learner* learner)
+{ char* utf_string = to_utf(env, example_string);
+  parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { parse_line(learner, utf_string, parsed);
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
+}
+
+parsed_examples* parse_example(JNIEnv *env, jcharArray example_chars, jint offset, jint length, jni_learner* learner)
+{ char* utf_string = reserve_utf_buffer(3 * (size_t)length + 1);
+  // Encoded straight from the java array, the range is checked by the caller.  Nothing may call back into the
+  // JVM while the array is held.
+  jchar* chars = (jchar*)env->GetPrimitiveArrayCritical(example_chars, nullptr);
+  if (!chars)
+    throw java_exception_pending();
+  utf_string[encode_modified_utf8(chars + offset, length, utf_string)] = '\0';
+  env->ReleasePrimitiveArrayCritical(example_chars, chars, JNI_ABORT);
+
+  parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { parse_line(learner, utf_string, parsed);
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
+}
+
+parsed_examples* parse_multiline_example(JNIEnv *env, jobjectArray example_strings, jni_learner* learner)
+{ parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { parse_lines(env, example_strings, learner, parsed);
+    // The newline example which ends the multiline example is built directly instead of parsing an empty line.
+    end_block(learner, parsed);
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
 }
 
-example* read_example(const char* example_string, vw* vwInstance)
-{ return VW::read_example(*vwInstance, example_string);
+parsed_examples* parse_multiline_examples(JNIEnv *env, jobjectArray examples, jni_learner* learner)
+{ parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { jsize example_count = env->GetArrayLength(examples);
+    for (jsize i = 0; i < example_count; i++)
+    { jobjectArray example_strings = (jobjectArray) (env->GetObjectArrayElement(examples, i));
+      parse_lines(env, example_strings, learner, parsed);
+      env->DeleteLocalRef(example_strings);
+      end_block(learner, parsed);
+    }
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
+}
+
+parsed_examples* parse_multiline_example(JNIEnv *env, const cached_example& shared, jobjectArray example_strings, jni_learner* learner)
+{ vw& all = *learner->instance;
+  parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { // Copying the features is much cheaper than parsing and hashing the shared line again.
+    VW::copy_example_data(all.audit, next_example(all, parsed), shared.ex, all.p->lp.label_size, all.p->lp.copy_label);
+    parse_lines(env, example_strings, learner, parsed);
+    end_block(learner, parsed);
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
+}
+
+parsed_examples* parse_examples(JNIEnv *env, jstring first_string, jobjectArray example_strings, jni_learner* learner)
+{ parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { parse_line(learner, to_utf(env, first_string), parsed);
+    parse_lines(env, example_strings, learner, parsed);
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
+}
+
+parsed_examples* parse_examples(JNIEnv *env, jstring first_string, const char* lines, size_t length, jni_learner* learner)
+{ parsed_examples* parsed = acquire_parsed_examples(learner);
+  // Lines following a shared example are items, one score each, so lines without an item are not examples.
+  bool items = first_string != nullptr;
+  try
+  { if (first_string)
+      parse_line(learner, to_utf(env, first_string), parsed);
+    const char* end = lines + length;
+    for (const char* next = lines; lines < end; lines = next)
+    { const char* newline = (const char*)memchr(lines, '\n', end - lines);
+      const char* line_end = newline ? newline : end;
+      next = line_end + 1;
+      if (items)
+      { if (line_end > lines && line_end[-1] == '\r')
+          line_end--;
+        if (line_end == lines)
+          continue;
+      }
+      // read_line needs a terminated string, the lines of the buffer are not.
+      size_t line_length = line_end - lines;
+      char* line = reserve_utf_buffer(line_length + 1);
+      memcpy(line, lines, line_length);
+      line[line_length] = '\0';
+      parse_line(learner, line, parsed);
+    }
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
+}
+
+std::shared_ptr<cached_example> parse_cached_example(JNIEnv *env, jstring example_string, jni_learner* learner)
+{ vw& all = *learner->instance;
+  char* utf_string = to_utf(env, example_string);
+  std::shared_ptr<cached_example> cached(
+    new cached_example(learner->instance, VW::alloc_examples(all.p->lp.label_size, 1)));
+  std::lock_guard<std::mutex> parser_lock(learner->parser_mutex);
+  feature_hash_cache_scope hash_cache_scope(learner);
+  VW::read_line(all, cached->ex, utf_string);
+  return cached;
+}
+
+void release_parsed_examples(jni_learner* learner, parsed_examples* parsed)
+{ vw& all = *learner->instance;
+  for (size_t i = 0; i < parsed->count; i++)
+    VW::empty_example(all, *parsed->examples[i]);
+  parsed->count = 0;
+  while (parsed->examples.size() > max_retained_examples)
+  { delete_example(all, parsed->examples.back());
+    parsed->examples.pop_back();
+  }
+
+  { std::lock_guard<std::mutex> pool_lock(learner->pool.mutex);
+    if (learner->pool.idle.size() < max_idle_blocks)
+    { learner->pool.idle.push_back(parsed);
+      return;
+    }
+  }
+  delete_parsed_examples(all, parsed);
+}
+
+void delete_example_pool(jni_learner* learner)
+{ std::lock_guard<std::mutex> pool_lock(learner->pool.mutex);
+  for (parsed_examples* parsed : learner->pool.idle)
+    delete_parsed_examples(*learner->instance, parsed);
+  learner->pool.idle.clear();
+}
+
+size_t example_bytes(example& ex)
+{ size_t feature_count = 0;
+  for (namespace_index ns : ex.indices)
+    feature_count += ex.feature_space[ns].size();
+  return sizeof(example) + feature_count * (sizeof(feature_value) + sizeof(feature_index));
+}
+
+namespace
+{ std::shared_ptr<cached_example> parse_action(JNIEnv *env, jobject action_source, jlong action_id, jni_learner* learner)
+  { jclass source_class = env->FindClass(ACTION_SOURCE);
+    jmethodID get_action_example = env->GetMethodID(source_class, "getActionExample", "(J)Ljava/lang/String;");
+    env->DeleteLocalRef(source_class);
+    jstring example_string = (jstring) env->CallObjectMethod(action_source, get_action_example, action_id);
+    if (env->ExceptionCheck())
+      throw java_exception_pending();
+    if (example_string == nullptr)
+    { throw_java_exception(env, "java/lang/IllegalArgumentException", "No example for action id");
+      throw java_exception_pending();
+    }
+    std::shared_ptr<cached_example> action = parse_cached_example(env, example_string, learner);
+    env->DeleteLocalRef(example_string);
+    return action;
+  }
+}
+
+parsed_examples* parse_multiline_example(JNIEnv *env, const cached_example* shared, jlongArray action_ids, jobject action_source, jni_learner* learner)
+{ vw& all = *learner->instance;
+  jsize action_count = env->GetArrayLength(action_ids);
+  std::vector<jlong> ids(action_count);
+  env->GetLongArrayRegion(action_ids, 0, action_count, ids.data());
+
+  parsed_examples* parsed = acquire_parsed_examples(learner);
+  try
+  { if (shared)
+      VW::copy_example_data(all.audit, next_example(all, parsed), shared->ex, all.p->lp.label_size, all.p->lp.copy_label);
+    for (jlong id : ids)
+    { // The entry stays alive while it is copied even if another thread evicts it.
+      std::shared_ptr<cached_example> action = learner->actions.get((uint64_t)id);
+      if (!action)
+      { action = parse_action(env, action_source, id, learner);
+        learner->actions.put((uint64_t)id, action, example_bytes(*action->ex));
+      }
+      VW::copy_example_data(all.audit, next_example(all, parsed), action->ex, all.p->lp.label_size, all.p->lp.copy_label);
+    }
+    end_block(learner, parsed);
+  }
+  catch (...)
+  { release_parsed_examples(learner, parsed);
+    throw;
+  }
+  return parsed;
 }
@@ -2,12 +2,134 @@
 #define VW_BASE_LEARNER_H
 
 #include <jni.h>
+#include <atomic>
+#include <mutex>
+#include <stdexcept>
+#include <string>
+#include <vector>
+
+#include "jni_example_cache.h"
+
+struct feature_hash_cache;
+class replay_io_buf;
+
+// A block of examples (one example or a multiline example) parsed outside of the learner lock.
+// It is owned by the thread which parsed it until it is passed to base_predict, which learns it
+// and returns it to the example pool of the learner.
+struct parsed_examples
+{ parsed_examples() : count(0) {}
+
+  // The block is examples[0, count), the remaining examples were allocated by larger blocks and are kept for reuse.
+  std::vector<example*> examples;
+  size_t count;
+};
+
+inline parsed_examples* get_parsed(jlong parsedPtr)
+{ return (parsed_examples*)parsedPtr;
+}
+
+// Blocks whose examples were emptied by empty_example, ready to be filled by the parser again.
+struct example_pool
+{ std::mutex mutex;
+  std::vector<parsed_examples*> idle;
+};
+
+// Native state which the wrapper keeps next to a vw instance.
+// The native pointer held by java learners points to this struct, not to vw itself.
+struct jni_learner
+{ explicit jni_learner(vw* vwInstance)
+    : instance(vwInstance), hash_cache(nullptr),
+      shared_contexts(1024, std::chrono::minutes(10)), next_shared_context(1),
+      actions(64 << 20, std::chrono::milliseconds(0)), stop_training(false), driver_running(false),
+      replay(nullptr), cache_output(nullptr)
+  {}
+
+  vw* instance;
+  feature_hash_cache* hash_cache;
+  // vw's text parser keeps its scratch buffers in vw::p, so examples of one learner are parsed one at a time.
+  // Parsing does not touch the weights though, so it never waits for learning which is serialized on the java side.
+  std::mutex parser_mutex;
+  example_pool pool;
+  // Shared examples of multiline examples registered by java, keyed by handles which are never reused.
+  example_cache shared_contexts;
+  std::atomic<uint64_t> next_shared_context;
+  // Action examples of multiline examples keyed by ids chosen by java, bounded by their size in bytes.
+  example_cache actions;
+  // Set by java to stop a training on a file, even one whose driver did not start yet.
+  // It is cleared by java before the next training starts.
+  std::atomic<bool> stop_training;
+  // Guards the done state of vw while a driver may be running, so that a stop never reaches an idle instance.
+  std::mutex driver_mutex;
+  bool driver_running;
+  // Examples learned so far in vw's cache format, replayed by the remaining passes instead of a cache file.
+  // cache_output is the output of vw which the replay buffer replaced, it is given back before vw finishes.
+  replay_io_buf* replay;
+  io_buf* cache_output;
+};
+
+inline jni_learner* get_learner(jlong learnerPtr)
+{ return (jni_learner*)learnerPtr;
+}
+
+// Rethrown as an IllegalStateException, for calls which the configuration of the learner does not allow.
+struct illegal_state_error : std::logic_error
+{ explicit illegal_state_error(const std::string& msg) : std::logic_error(msg) {}
+};
+
+// Thrown through native frames when a java exception is already pending, e.g. after a call back into java failed.
+struct java_exception_pending {};
+
+// Local references of a native call are only freed when it returns, so code which creates one reference per line
+// or per action works inside frames of a bounded capacity.  The frame is popped when the scope ends.
+class local_frame
+{ public:
+    // Lines or actions handled per frame.
+    static const jint chunk_size = 256;
+
+    local_frame(JNIEnv *env, jint capacity) : env(env), popped(false)
+    { if (env->PushLocalFrame(capacity) != 0)
+        throw java_exception_pending();
+    }
+
+    ~local_frame()
+    { if (!popped)
+        env->PopLocalFrame(nullptr);
+    }
+
+    // Pops the frame and returns a reference to result which is valid in the enclosing frame.
+    jobject pop(jobject result)
+    { popped = true;
+      return env->PopLocalFrame(result);
+    }
+
+  private:
+    local_frame(const local_frame&);
+    local_frame& operator=(const local_frame&);
+
+    JNIEnv *env;
+    bool popped;
+};
 
 void throw_java_exception(JNIEnv *env, const char* name, const char* msg);
 void rethrow_cpp_exception_as_java_exception(JNIEnv *env);
 
-example* read_example(JNIEnv *env, jstring example_string, vw* vwInstance);
-example* read_example(const char* example_string, vw* vwInstance);
+parsed_examples* parse_example(JNIEnv *env, jstring example_string, jni_learner* learner);
+parsed_examples* parse_example(JNIEnv *env, jcharArray example_chars, jint offset, jint length, jni_learner* learner);
+parsed_examples* parse_multiline_example(JNIEnv *env, jobjectArray example_strings, jni_learner* learner);
+parsed_examples* parse_multiline_example(JNIEnv *env, const cached_example& shared, jobjectArray example_strings, jni_learner* learner);
+parsed_examples* parse_multiline_example(JNIEnv *env, const cached_example* shared, jlongArray action_ids, jobject action_source, jni_learner* learner);
+// Consecutive multiline examples in one block, each one ends with its newline example.
+parsed_examples* parse_multiline_examples(JNIEnv *env, jobjectArray examples, jni_learner* learner);
+std::shared_ptr<cached_example> parse_cached_example(JNIEnv *env, jstring example_string, jni_learner* learner);
+// Independent examples, not a multiline example: there is no newline example at the end.
+parsed_examples* parse_examples(JNIEnv *env, jstring first_string, jobjectArray example_strings, jni_learner* learner);
+// The first string may be null when all the examples are in the lines.  Otherwise the lines are the items following
+// a shared example: empty lines are skipped and a '\r' ending a line is dropped, so every item gets a score.
+parsed_examples* parse_examples(JNIEnv *env, jstring first_string, const char* lines, size_t length, jni_learner* learner);
+example* next_example(vw& all, parsed_examples* parsed);
+size_t example_bytes(example& ex);
+void release_parsed_examples(jni_learner* learner, parsed_examples* parsed);
+void delete_example_pool(jni_learner* learner);
 
 // It would appear that after reading posts like
 // http://stackoverflow.com/questions/6458612/c0x-proper-way-to-receive-a-lambda-as-parameter-by-reference
@@ -18,66 +140,42 @@ example* read_example(const char* example_string, vw* vwInstance);
 template<typename T, typename F>
 T base_predict(
   JNIEnv *env,
-  example* ex,
-  bool learn,
-  vw* vwInstance,
-  const F& predictor,
-  const bool predict)
-{ T result = 0;
+  jlong parsedPtr,
+  jboolean learn,
+  jlong vwPtr,
+  const F& predictor)
+{ jni_learner* learner = get_learner(vwPtr);
+  vw* vwInstance = learner->instance;
+  parsed_examples* parsed = get_parsed(parsedPtr);
+  std::vector<example*>& examples = parsed->examples;
+  size_t count = parsed->count;
+  T result = 0;
   try
-  { if (learn)
-      vwInstance->l->learn(*ex);
-    else
-      vwInstance->l->predict(*ex);
+  { for (size_t i = 0; i < count; i++)
+    { example* ex = examples[i];
+      VW::setup_example(*vwInstance, ex);
+      vwInstance->p->end_parsed_examples++;
 
-    if (predict)
-      result = predictor(ex, env);
+      if (learn)
+        vwInstance->l->learn(*ex);
+      else
+        vwInstance->l->predict(*ex);
 
-    vwInstance->l->finish_example(*vwInstance, *ex);
+      if (count == 1)
+        result = predictor(ex, env);
+
+      vwInstance->l->finish_example(*vwInstance, *ex);
+    }
+
+    // When doing multiline prediction the final result is stored in the FIRST example parsed.
+    if (count > 1)
+      result = predictor(examples[0], env);
   }
   catch (...)
   { rethrow_cpp_exception_as_java_exception(env);
   }
+  release_parsed_examples(learner, parsed);
   return result;
 }
 
-template<typename T, typename F>
-T base_predict(
-  JNIEnv *env,
-  jstring example_string,
-  jboolean learn,
-  jlong vwPtr,
-  const F& predictor)
-{ vw* vwInstance = (vw*)vwPtr;
-  example* ex = read_example(env, example_string, vwInstance);
-  return base_predict<T>(env, ex, learn, vwInstance, predictor, true);
-}
-
-template<typename T, typename F>
-T base_predict(
-  JNIEnv *env,
-  jobjectArray example_strings,
-  jboolean learn,
-  jlong vwPtr,
-  const F& predictor)
-{ vw* vwInstance = (vw*)vwPtr;
-  int example_count = env->GetArrayLength(example_strings);
-
-  // When doing multiline prediction the final result is stored in the FIRST example parsed.
-  example* first_example = NULL;
-  for (int i=0; i<example_count; i++)
-  { jstring example_string = (jstring) (env->GetObjectArrayElement(example_strings, i));
-    example* ex = read_example(env, example_string, vwInstance);
-    base_predict<T>(env, ex, learn, vwInstance, predictor, false);
-    if (i == 0)
-      first_example = ex;
-  }
-  env->DeleteLocalRef(example_strings);
-
-  example* ex = read_example("\0", vwInstance);
-  base_predict<T>(env, ex, learn, vwInstance, predictor, false);
-
-  return predictor(first_example, env);
-}
-
 #endif // VW_BASE_LEARNER_H
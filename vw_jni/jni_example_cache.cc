@@ -0,0 +1,86 @@
+#include "jni_example_cache.h"
+
+cached_example::~cached_example()
+{ VW::dealloc_example(instance->p->lp.delete_label, *ex);
+  free(ex);
+}
+
+example_cache::example_cache(size_t max_weight, std::chrono::milliseconds ttl)
+  : max_weight(max_weight), ttl(ttl), total_weight(0)
+{
+}
+
+void example_cache::configure(size_t max_weight, std::chrono::milliseconds ttl)
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  this->max_weight = max_weight;
+  this->ttl = ttl;
+  evict();
+}
+
+void example_cache::put(uint64_t key, const value_type& value, size_t weight)
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  std::unordered_map<uint64_t, node>::iterator it = nodes.find(key);
+  if (it != nodes.end())
+    erase(it);
+
+  recency.push_front(key);
+  node& n = nodes[key];
+  n.value = value;
+  n.weight = weight;
+  n.expires = ttl.count() > 0 ? clock::now() + ttl : clock::time_point::max();
+  n.position = recency.begin();
+  total_weight += weight;
+  evict();
+}
+
+example_cache::value_type example_cache::get(uint64_t key)
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  std::unordered_map<uint64_t, node>::iterator it = nodes.find(key);
+  if (it == nodes.end())
+    return value_type();
+
+  if (it->second.expires <= clock::now())
+  { erase(it);
+    return value_type();
+  }
+  recency.splice(recency.begin(), recency, it->second.position);
+  return it->second.value;
+}
+
+bool example_cache::remove(uint64_t key)
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  std::unordered_map<uint64_t, node>::iterator it = nodes.find(key);
+  if (it == nodes.end())
+    return false;
+  erase(it);
+  return true;
+}
+
+void example_cache::clear()
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  nodes.clear();
+  recency.clear();
+  total_weight = 0;
+}
+
+size_t example_cache::size()
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  return nodes.size();
+}
+
+size_t example_cache::weight()
+{ std::lock_guard<std::mutex> cache_lock(mutex);
+  return total_weight;
+}
+
+void example_cache::erase(std::unordered_map<uint64_t, node>::iterator it)
+{ total_weight -= it->second.weight;
+  recency.erase(it->second.position);
+  nodes.erase(it);
+}
+
+void example_cache::evict()
+{ // Expired entries are dropped lazily by get, capacity is enforced eagerly.
+  while (total_weight > max_weight && !recency.empty())
+    erase(nodes.find(recency.back()));
+}
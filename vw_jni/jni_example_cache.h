@@ -0,0 +1,71 @@
+#ifndef VW_JNI_EXAMPLE_CACHE_H
+#define VW_JNI_EXAMPLE_CACHE_H
+
+#include <vw.h>
+#include <chrono>
+#include <list>
+#include <memory>
+#include <mutex>
+#include <unordered_map>
+#include <stdint.h>
+
+// An example parsed once and copied into many blocks, e.g. the shared line of action dependent features.
+// It is never set up nor learned, so it stays exactly as the parser left it.
+struct cached_example
+{ cached_example(vw* vwInstance, example* ex) : instance(vwInstance), ex(ex) {}
+  ~cached_example();
+
+  vw* instance;
+  example* ex;
+
+  private:
+    cached_example(const cached_example&);
+    cached_example& operator=(const cached_example&);
+};
+
+// LRU cache of parsed examples keyed by 64 bit ids.
+//
+// Every entry has a weight (1 to bound the number of entries, its size in bytes to bound the memory)
+// and least recently used entries are evicted once the total weight exceeds max_weight.
+// Entries also expire ttl after they were put, a zero ttl never expires.
+// Lookups return shared pointers, so an entry evicted while it is being copied stays valid until the copy ends.
+class example_cache
+{ public:
+    typedef std::shared_ptr<cached_example> value_type;
+
+    example_cache(size_t max_weight, std::chrono::milliseconds ttl);
+
+    void configure(size_t max_weight, std::chrono::milliseconds ttl);
+    void put(uint64_t key, const value_type& value, size_t weight);
+    value_type get(uint64_t key);
+    bool remove(uint64_t key);
+    void clear();
+    size_t size();
+    size_t weight();
+
+  private:
+    typedef std::chrono::steady_clock clock;
+
+    struct node
+    { value_type value;
+      size_t weight;
+      clock::time_point expires;
+      std::list<uint64_t>::iterator position;
+    };
+
+    example_cache(const example_cache&);
+    example_cache& operator=(const example_cache&);
+
+    void erase(std::unordered_map<uint64_t, node>::iterator it);
+    void evict();
+
+    std::mutex mutex;
+    std::unordered_map<uint64_t, node> nodes;
+    // Most recently used first.
+    std::list<uint64_t> recency;
+    size_t max_weight;
+    std::chrono::milliseconds ttl;
+    size_t total_weight;
+};
+
+#endif // VW_JNI_EXAMPLE_CACHE_H
@@ -0,0 +1,79 @@
+#include <string.h>
+
+#include "jni_hash_cache.h"
+
+namespace
+{ // vw calls the hasher through a plain function pointer, so the cache of the learner
+  // which is currently parsing is passed through a thread local.
+  thread_local feature_hash_cache* active_cache = nullptr;
+
+  inline size_t slot(const char* key, size_t length, uint64_t seed)
+  { uint64_t head = 0;
+    uint64_t tail = 0;
+    size_t prefix = length < sizeof(head) ? length : sizeof(head);
+    memcpy(&head, key, prefix);
+    memcpy(&tail, key + length - prefix, prefix);
+    uint64_t mixed = (head * 0x9E3779B97F4A7C15ULL) ^ (tail + length) ^ (seed * 0xC2B2AE3D27D4EB4FULL);
+    return (size_t)(mixed ^ (mixed >> 29));
+  }
+
+  uint64_t cached_hash(substring s, uint64_t seed)
+  { feature_hash_cache* cache = active_cache;
+    size_t length = s.end - s.begin;
+    if (length > feature_hash_cache::max_key_length)
+      return cache->original(s, seed);
+
+    feature_hash_cache::entry& e = cache->entries[slot(s.begin, length, seed) & cache->mask];
+    if (e.length == length && e.seed == seed && memcmp(e.key, s.begin, length) == 0)
+    { cache->hits++;
+      return e.hash;
+    }
+    cache->misses++;
+    e.hash = cache->original(s, seed);
+    e.seed = seed;
+    e.length = (uint32_t)length;
+    memcpy(e.key, s.begin, length);
+    return e.hash;
+  }
+}
+
+feature_hash_cache_scope::feature_hash_cache_scope(jni_learner* learner)
+  : instance(learner->instance), cache(learner->hash_cache)
+{ if (cache)
+  { cache->original = instance->p->hasher;
+    instance->p->hasher = cached_hash;
+    active_cache = cache;
+  }
+}
+
+feature_hash_cache_scope::~feature_hash_cache_scope()
+{ if (cache)
+  { instance->p->hasher = cache->original;
+    active_cache = nullptr;
+  }
+}
+
+void enable_feature_hash_cache(jni_learner* learner, size_t capacity)
+{ size_t size = 1;
+  while (size < capacity)
+    size <<= 1;
+
+  feature_hash_cache* cache = new feature_hash_cache();
+  feature_hash_cache::entry empty;
+  memset(&empty, 0, sizeof(empty));
+  // No key has this length, so empty slots never match.
+  empty.length = UINT32_MAX;
+  cache->entries.assign(size, empty);
+  cache->mask = size - 1;
+  cache->original = nullptr;
+  cache->hits = 0;
+  cache->misses = 0;
+
+  delete_feature_hash_cache(learner);
+  learner->hash_cache = cache;
+}
+
+void delete_feature_hash_cache(jni_learner* learner)
+{ delete learner->hash_cache;
+  learner->hash_cache = nullptr;
+}
@@ -0,0 +1,50 @@
+#ifndef VW_JNI_HASH_CACHE_H
+#define VW_JNI_HASH_CACHE_H
+
+#include <vw.h>
+#include <vector>
+#include <stdint.h>
+
+#include "jni_base_learner.h"
+
+// Memoizes hashes of feature and namespace strings parsed through read_example.
+//
+// The cache is direct mapped: every string has exactly one slot and a miss simply overwrites it,
+// so eviction is free and the most frequent strings of a zipfian vocabulary stay in the cache.
+// Strings longer than max_key_length (e.g. words of a free text) are never cached.
+struct feature_hash_cache
+{ static const size_t max_key_length = 44;
+
+  struct entry
+  { uint64_t seed;
+    uint64_t hash;
+    uint32_t length;
+    char key[max_key_length];
+  };
+
+  std::vector<entry> entries;
+  size_t mask;
+  hash_func_t original;
+  uint64_t hits;
+  uint64_t misses;
+};
+
+// The cache is only used by the parser while read_example holds this scope,
+// vw keeps its original hasher the rest of the time.
+class feature_hash_cache_scope
+{ public:
+    explicit feature_hash_cache_scope(jni_learner* learner);
+    ~feature_hash_cache_scope();
+
+  private:
+    feature_hash_cache_scope(const feature_hash_cache_scope&);
+    feature_hash_cache_scope& operator=(const feature_hash_cache_scope&);
+
+    vw* instance;
+    feature_hash_cache* cache;
+};
+
+void enable_feature_hash_cache(jni_learner* learner, size_t capacity);
+void delete_feature_hash_cache(jni_learner* learner);
+
+#endif // VW_JNI_HASH_CACHE_H
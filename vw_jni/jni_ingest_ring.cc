@@ -0,0 +1,101 @@
+#include <string.h>
+#include <algorithm>
+
+#include "jni_ingest_ring.h"
+
+ingest_ring::ingest_ring(size_t capacity)
+  : head(0), tail(0), closed(false), reader_waiting(false), writer_waiting(false)
+{ size_t size = 1;
+  while (size < capacity)
+    size <<= 1;
+  buffer.resize(size);
+  mask = size - 1;
+}
+
+void ingest_ring::wake(std::atomic<bool>& waiting, std::condition_variable& condition)
+{ // The sleeping side sets its flag before it checks the positions again, so either it sees the new position
+  // or this sees the flag.  Taking the mutex makes sure it is already waiting on the condition.
+  std::atomic_thread_fence(std::memory_order_seq_cst);
+  if (waiting)
+  { std::lock_guard<std::mutex> ring_lock(mutex);
+    condition.notify_all();
+  }
+}
+
+size_t ingest_ring::write(const char* data, size_t length, std::chrono::milliseconds timeout)
+{ uint64_t t = tail.load(std::memory_order_relaxed);
+  size_t space = buffer.size() - (size_t)(t - head.load(std::memory_order_acquire));
+  if (space == 0)
+  { std::unique_lock<std::mutex> ring_lock(mutex);
+    writer_waiting = true;
+    writable.wait_for(ring_lock, timeout, [&] { return buffer.size() - (size_t)(t - head.load()) > 0; });
+    writer_waiting = false;
+    space = buffer.size() - (size_t)(t - head.load(std::memory_order_acquire));
+    if (space == 0)
+      return 0;
+  }
+
+  size_t count = std::min(length, space);
+  size_t start = (size_t)t & mask;
+  size_t first = std::min(count, buffer.size() - start);
+  memcpy(buffer.data() + start, data, first);
+  memcpy(buffer.data(), data + first, count - first);
+  tail.store(t + count, std::memory_order_release);
+  wake(reader_waiting, readable);
+  return count;
+}
+
+size_t ingest_ring::read(char* out, size_t length)
+{ uint64_t h = head.load(std::memory_order_relaxed);
+  size_t available = (size_t)(tail.load(std::memory_order_acquire) - h);
+  if (available == 0)
+  { std::unique_lock<std::mutex> ring_lock(mutex);
+    reader_waiting = true;
+    readable.wait(ring_lock, [&] { return tail.load() != h || closed.load(); });
+    reader_waiting = false;
+    available = (size_t)(tail.load(std::memory_order_acquire) - h);
+    if (available == 0)
+      return 0;
+  }
+
+  size_t count = std::min(length, available);
+  size_t start = (size_t)h & mask;
+  size_t first = std::min(count, buffer.size() - start);
+  memcpy(out, buffer.data() + start, first);
+  memcpy(out + first, buffer.data(), count - first);
+  head.store(h + count, std::memory_order_release);
+  wake(writer_waiting, writable);
+  return count;
+}
+
+bool ingest_ring::wait_drained(std::chrono::milliseconds timeout)
+{ uint64_t t = tail.load();
+  std::unique_lock<std::mutex> ring_lock(mutex);
+  writer_waiting = true;
+  bool drained = writable.wait_for(ring_lock, timeout, [&] { return head.load() == t; });
+  writer_waiting = false;
+  return drained;
+}
+
+void ingest_ring::close()
+{ std::lock_guard<std::mutex> ring_lock(mutex);
+  closed = true;
+  readable.notify_all();
+}
+
+ring_io_buf::ring_io_buf(ingest_ring* ring) : ring(ring)
+{ // io_buf only reads while it has a file, the descriptor itself is never used.
+  files.push_back(-1);
+}
+
+ssize_t ring_io_buf::read_file(int f, void* buf, size_t nbytes)
+{ return (ssize_t)ring->read((char*)buf, nbytes);
+}
+
+bool ring_io_buf::close_file()
+{ if (files.size() > 0)
+  { files.pop();
+    return true;
+  }
+  return false;
+}
@@ -0,0 +1,66 @@
+#ifndef VW_JNI_INGEST_RING_H
+#define VW_JNI_INGEST_RING_H
+
+#include <jni.h>
+#include <vw.h>
+#include <atomic>
+#include <chrono>
+#include <condition_variable>
+#include <mutex>
+#include <vector>
+#include <stdint.h>
+
+// Single producer, single consumer byte ring between java writers (serialized on the java side) and vw's parser thread.
+//
+// Bytes are published with atomic positions, so neither side takes a lock while there is data or space.
+// The mutex is only taken to sleep when the ring is empty or full, and to wake a side which announced it sleeps.
+class ingest_ring
+{ public:
+    explicit ingest_ring(size_t capacity);
+
+    // Copies up to length bytes, waiting at most timeout for space.  Returns the number of bytes copied.
+    size_t write(const char* data, size_t length, std::chrono::milliseconds timeout);
+    // Copies up to length bytes, waiting until there is data.  Returns 0 once the ring is closed and drained.
+    size_t read(char* out, size_t length);
+    // Waits at most timeout until every byte written so far was read.
+    bool wait_drained(std::chrono::milliseconds timeout);
+    // End of stream: the reader returns 0 once it read the remaining bytes.
+    void close();
+    size_t capacity() const { return buffer.size(); }
+
+  private:
+    ingest_ring(const ingest_ring&);
+    ingest_ring& operator=(const ingest_ring&);
+
+    void wake(std::atomic<bool>& waiting, std::condition_variable& condition);
+
+    std::vector<char> buffer;
+    size_t mask;
+    // Total bytes read and written since the ring was created, the ring holds [head, tail).
+    std::atomic<uint64_t> head;
+    std::atomic<uint64_t> tail;
+    std::atomic<bool> closed;
+    std::atomic<bool> reader_waiting;
+    std::atomic<bool> writer_waiting;
+    std::mutex mutex;
+    std::condition_variable readable;
+    std::condition_variable writable;
+};
+
+inline ingest_ring* get_ingest_ring(jlong ringPtr)
+{ return (ingest_ring*)ringPtr;
+}
+
+// Input of vw's parser reading from a ring instead of file descriptors.
+class ring_io_buf : public io_buf
+{ public:
+    explicit ring_io_buf(ingest_ring* ring);
+
+    virtual ssize_t read_file(int f, void* buf, size_t nbytes);
+    virtual bool close_file();
+
+  private:
+    ingest_ring* ring;
+};
+
+#endif // VW_JNI_INGEST_RING_H
@@ -0,0 +1,83 @@
+#include <string.h>
+#include <algorithm>
+
+#include <global_data.h>
+
+#include "jni_base_learner.h"
+#include "jni_model_snapshot.h"
+
+namespace
+{ // Every slot of the weights, e.g. the adaptive and normalized ones, not only the weight itself.
+  template<class T> void clear_weights(T& weights)
+  { for (uint64_t offset = 0; offset < ((uint64_t)1 << weights.stride_shift()); offset++)
+      weights.set_zero(offset);
+  }
+}
+
+model_snapshot::model_snapshot() : read_position(0)
+{ // io_buf only reads and writes while it has a file, the descriptor itself is never used.
+  files.push_back(-1);
+}
+
+ssize_t model_snapshot::write_file(int f, const void* buf, size_t nbytes)
+{ const char* data = (const char*)buf;
+  bytes.insert(bytes.end(), data, data + nbytes);
+  return (ssize_t)nbytes;
+}
+
+ssize_t model_snapshot::read_file(int f, void* buf, size_t nbytes)
+{ size_t count = std::min(nbytes, bytes.size() - read_position);
+  memcpy(buf, bytes.data() + read_position, count);
+  read_position += count;
+  return (ssize_t)count;
+}
+
+void model_snapshot::reset_file(int f)
+{ read_position = 0;
+  space.end() = space.begin();
+  head = space.begin();
+}
+
+bool model_snapshot::close_file()
+{ return false;
+}
+
+model_snapshot* save_model_snapshot(jni_learner* learner)
+{ vw& all = *learner->instance;
+  model_snapshot* snapshot = new model_snapshot();
+  bool save_resume = all.save_resume;
+  all.save_resume = true;
+  try
+  { all.l->save_load(*snapshot, false, false);
+    snapshot->flush();
+  }
+  catch (...)
+  { all.save_resume = save_resume;
+    delete snapshot;
+    throw;
+  }
+  all.save_resume = save_resume;
+  return snapshot;
+}
+
+void restore_model_snapshot(jni_learner* learner, model_snapshot* snapshot)
+{ vw& all = *learner->instance;
+  snapshot->reset_file(-1);
+  // Reductions read what the version of the model file says they wrote, the snapshot was written by this version.
+  version_struct model_file_ver = all.model_file_ver;
+  all.model_file_ver = version;
+  try
+  { // save_resume only writes the weights which are not zero and reading only sets the weights it finds, so a weight
+    // which became non-zero after the snapshot would be kept.
+    if (all.weights.sparse)
+      clear_weights(all.weights.sparse_weights);
+    else
+      clear_weights(all.weights.dense_weights);
+    all.l->save_load(*snapshot, true, false);
+  }
+  catch (...)
+  { all.model_file_ver = model_file_ver;
+    throw;
+  }
+  all.model_file_ver = model_file_ver;
+}
@@ -0,0 +1,37 @@
+#ifndef VW_JNI_MODEL_SNAPSHOT_H
+#define VW_JNI_MODEL_SNAPSHOT_H
+
+#include <vw.h>
+#include <vector>
+
+struct jni_learner;
+
+// State of the reductions of a learner kept in memory, i.e. a model file without its header.
+//
+// The online state (t, the adaptive and normalized accumulators of the weights...) is always saved, like with
+// --save_resume, so that a learner restored from a snapshot keeps learning exactly like it did after the snapshot.
+// A snapshot can only be restored into a learner created with the same arguments.
+class model_snapshot : public io_buf
+{ public:
+    model_snapshot();
+
+    virtual ssize_t write_file(int f, const void* buf, size_t nbytes);
+    virtual ssize_t read_file(int f, void* buf, size_t nbytes);
+    virtual void reset_file(int f);
+    virtual bool close_file();
+
+    size_t size() const { return bytes.size(); }
+
+  private:
+    model_snapshot(const model_snapshot&);
+    model_snapshot& operator=(const model_snapshot&);
+
+    std::vector<char> bytes;
+    size_t read_position;
+};
+
+model_snapshot* save_model_snapshot(jni_learner* learner);
+// Replaces the weights and the online state of the learner by those of the snapshot.
+void restore_model_snapshot(jni_learner* learner, model_snapshot* snapshot);
+
+#endif // VW_JNI_MODEL_SNAPSHOT_H
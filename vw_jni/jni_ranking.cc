@@ -0,0 +1,116 @@
+#include <label_dictionary.h>
+#include <simple_label.h>
+
+#include "jni_ranking.h"
+
+namespace
+{ // Reductions whose prediction is not a dot product of the features, or sums several of them in ways which do not
+  // pass the initial value of the label through, so the shared contribution can not be added to the items.
+  const char* const nonlinear_reductions[] =
+  { "lrq", "lrqfa", "nn", "stage_poly", "ksvm", "boosting", "bootstrap", "new_mf", "autolink", "marginal",
+    "active", "log_multi", "recall_tree", "explore_eval", "confidence"
+  };
+
+  bool has_nonlinear_reduction(vw& all)
+  { for (const char* reduction : nonlinear_reductions)
+      if (all.vm.count(reduction))
+        return true;
+    return false;
+  }
+
+  bool has_namespace(example& ex, unsigned char ns)
+  { for (namespace_index index : ex.indices)
+      if (index == ns)
+        return true;
+    return false;
+  }
+
+  // Interactions within the shared namespaces (or within the item namespaces) keep the model linear in them,
+  // only interactions mixing both sides, or wildcards, need the slow path.
+  bool interactions_cross(vw& all, example& shared, std::vector<example*>& examples, size_t count)
+  { for (v_string& interaction : all.interactions)
+    { bool uses_shared = false;
+      bool uses_item = false;
+      for (unsigned char* ns = interaction.begin(); ns != interaction.end(); ns++)
+      { if (*ns == ':')
+          return true;
+        uses_shared = uses_shared || has_namespace(shared, *ns);
+        for (size_t i = 1; i < count && !uses_item; i++)
+          uses_item = has_namespace(*examples[i], *ns);
+      }
+      if (uses_shared && uses_item)
+        return true;
+    }
+    return false;
+  }
+
+  void setup_and_predict(vw& all, example* ex)
+  { VW::setup_example(all, ex);
+    all.l->predict(*ex);
+  }
+
+  example* copy_of(vw& all, example* source, parsed_examples* parsed)
+  { example* ex = next_example(all, parsed);
+    VW::copy_example_data(all.audit, ex, source, all.p->lp.label_size, all.p->lp.copy_label);
+    return ex;
+  }
+
+  // Raw dot product of the shared features, without the constant feature which every item has anyway.
+  float shared_contribution(vw& all, example* shared, parsed_examples* parsed)
+  { example* shared_only = copy_of(all, shared, parsed);
+    shared_only->l.simple.initial = 0.f;
+    setup_and_predict(all, shared_only);
+
+    example* constant_only = next_example(all, parsed);
+    all.p->lp.default_label(&constant_only->l);
+    setup_and_predict(all, constant_only);
+
+    return (shared_only->partial_prediction - constant_only->partial_prediction) / (float)all.sd->contraction;
+  }
+}
+
+void rank_parsed(jni_learner* learner, parsed_examples* parsed, score_function score, float* scores)
+{ vw& all = *learner->instance;
+  std::vector<example*>& examples = parsed->examples;
+  // The examples predicting the shared contribution are appended to the block, items stay in [1, count).
+  size_t count = parsed->count;
+  example* shared = examples[0];
+
+  // The shared contribution is passed through label_data::initial, so only simple labels qualify.
+  bool linear = count > 1
+                && all.p->lp.parse_label == simple_label.parse_label
+                && !has_nonlinear_reduction(all)
+                && !interactions_cross(all, *shared, examples, count);
+  float shared_score = 0.f;
+  if (linear)
+    shared_score = shared_contribution(all, shared, parsed);
+
+  for (size_t i = 1; i < count; i++)
+  { example* item = examples[i];
+    if (linear)
+      item->l.simple.initial = shared_score;
+    else
+      LabelDict::add_example_namespaces_from_example(*item, *shared);
+    setup_and_predict(all, item);
+    scores[i - 1] = score(item);
+    all.l->finish_example(all, *item);
+  }
+}
+
+jfloatArray rank_parsed(JNIEnv *env, jlong parsedPtr, jlong vwPtr, score_function score)
+{ jni_learner* learner = get_learner(vwPtr);
+  parsed_examples* parsed = get_parsed(parsedPtr);
+  size_t item_count = parsed->count - 1;
+  jfloatArray scores = nullptr;
+  try
+  { std::vector<float> item_scores(item_count);
+    rank_parsed(learner, parsed, score, item_scores.data());
+    scores = env->NewFloatArray(item_count);
+    env->SetFloatArrayRegion(scores, 0, item_count, item_scores.data());
+  }
+  catch (...)
+  { rethrow_cpp_exception_as_java_exception(env);
+  }
+  release_parsed_examples(learner, parsed);
+  return scores;
+}
@@ -0,0 +1,22 @@
+#ifndef VW_JNI_RANKING_H
+#define VW_JNI_RANKING_H
+
+#include <vw.h>
+
+#include "jni_base_learner.h"
+
+typedef float (*score_function)(example* ex);
+
+// Scores the items of a block parsed by parse_examples: examples[0] holds the shared namespaces,
+// the remaining examples hold the namespaces of the items.  The block is consumed.
+//
+// When the reduction stack is linear in the features (no --lrq, --nn, --stage_poly...) and no interaction crosses
+// shared and item namespaces, the shared namespaces are predicted once, and their contribution to the dot product
+// is passed to every item through the initial value of its label.  Otherwise every item is scored with the shared
+// features copied into it.
+void rank_parsed(jni_learner* learner, parsed_examples* parsed, score_function score, float* scores);
+
+// rank_parsed for the java learners, returns the scores of the items.
+jfloatArray rank_parsed(JNIEnv *env, jlong parsedPtr, jlong vwPtr, score_function score);
+
+#endif // VW_JNI_RANKING_H
@@ -0,0 +1,158 @@
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+#include <algorithm>
+#include <stdexcept>
+
+#include <cache.h>
+#include <global_data.h>
+
+#include "jni_base_learner.h"
+#include "jni_replay_buffer.h"
+
+replay_io_buf::replay_io_buf(size_t max_memory, const std::string& spill_directory)
+  : memory_size(0), max_memory(max_memory), spill_directory(spill_directory), spill_fd(-1), spilled(0), read_position(0)
+{ // io_buf only reads and writes while it has a file, the descriptor itself is never used.
+  files.push_back(-1);
+}
+
+replay_io_buf::~replay_io_buf()
+{ if (spill_fd >= 0)
+    ::close(spill_fd);
+}
+
+ssize_t replay_io_buf::write_file(int f, const void* buf, size_t nbytes)
+{ const char* data = (const char*)buf;
+  size_t remaining = nbytes;
+  // Once the buffer spilled, every later byte goes to the file so that the bytes are read back in order.
+  while (remaining > 0 && spill_fd < 0 && memory_size < max_memory)
+  { if (chunks.empty() || chunks.back().size() == chunk_size)
+    { chunks.push_back(std::vector<char>());
+      chunks.back().reserve(chunk_size);
+    }
+    std::vector<char>& chunk = chunks.back();
+    size_t count = std::min(remaining, std::min(chunk_size - chunk.size(), (size_t)(max_memory - memory_size)));
+    chunk.insert(chunk.end(), data, data + count);
+    memory_size += count;
+    data += count;
+    remaining -= count;
+  }
+  if (remaining == 0)
+    return (ssize_t)nbytes;
+
+  if (spill_fd < 0)
+  { std::string path = spill_directory + "/vw-replay-XXXXXX";
+    std::vector<char> name(path.begin(), path.end());
+    name.push_back('\0');
+    spill_fd = mkstemp(name.data());
+    if (spill_fd < 0)
+      throw std::runtime_error("Can not create a replay file in " + spill_directory);
+    // The file is deleted as soon as it is closed, even if the process dies.
+    unlink(name.data());
+  }
+  while (remaining > 0)
+  { ssize_t written = ::write(spill_fd, data, remaining);
+    if (written < 0)
+      throw std::runtime_error("Can not write the replay file");
+    spilled += written;
+    data += written;
+    remaining -= written;
+  }
+  return (ssize_t)nbytes;
+}
+
+ssize_t replay_io_buf::read_file(int f, void* buf, size_t nbytes)
+{ char* out = (char*)buf;
+  if (read_position < memory_size)
+  { size_t chunk = (size_t)(read_position / chunk_size);
+    size_t offset = (size_t)(read_position % chunk_size);
+    size_t count = std::min(nbytes, chunks[chunk].size() - offset);
+    memcpy(out, chunks[chunk].data() + offset, count);
+    read_position += count;
+    return (ssize_t)count;
+  }
+  if (spill_fd < 0)
+    return 0;
+  ssize_t count = pread(spill_fd, out, nbytes, (off_t)(read_position - memory_size));
+  if (count > 0)
+    read_position += count;
+  return count;
+}
+
+void replay_io_buf::reset_file(int f)
+{ read_position = 0;
+  space.end() = space.begin();
+  head = space.begin();
+}
+
+bool replay_io_buf::close_file()
+{ // vw closes its cache output at the end of the first pass, the retained examples must survive it.
+  return false;
+}
+
+void replay_io_buf::start_reading()
+{ flush();
+  reset_file(-1);
+}
+
+void enable_replay(jni_learner* learner, size_t max_memory, const std::string& spill_directory)
+{ vw& all = *learner->instance;
+  if (learner->replay)
+    throw std::runtime_error("Replay is already enabled");
+  if (!all.p->write_cache)
+    throw std::runtime_error("Replay needs a learner created with --passes and a new cache file");
+
+  replay_io_buf* replay = new replay_io_buf(max_memory, spill_directory);
+  // The header read back by cache_numbits when the parser resets its source, like the one of cache files.
+  std::string vw_version = version.to_string();
+  size_t v_length = vw_version.length() + 1;
+  replay->write_file(-1, &v_length, sizeof(v_length));
+  replay->write_file(-1, vw_version.c_str(), v_length);
+  replay->write_file(-1, "c", 1);
+  replay->write_file(-1, &all.num_bits, sizeof(all.num_bits));
+
+  // The cache file only holds its header so far, nothing is written to it anymore.
+  io_buf* cache = all.p->output;
+  cache->flush();
+  cache->close_file();
+  if (cache->currentname.size() > 0)
+    remove(cache->currentname.begin());
+  learner->cache_output = cache;
+  learner->replay = replay;
+  all.p->output = replay;
+}
+
+void replay_remaining_passes(jni_learner* learner)
+{ vw& all = *learner->instance;
+  replay_io_buf* replay = learner->replay;
+  all.p->output = learner->cache_output;
+  all.p->write_cache = false;
+  replay->start_reading();
+
+  io_buf* original_input = all.p->input;
+  all.p->input = replay;
+  try
+  { all.p->reader = read_cached_features;
+    all.p->resettable = true;
+    adjust_used_index(all);
+    // The parser starts by resetting its source, which reads the header of the buffer.
+    all.do_reset_source = true;
+    VW::start_parser(all);
+    LEARNER::generic_driver(all);
+    VW::end_parser(all);
+  }
+  catch (...)
+  { all.p->input = original_input;
+    throw;
+  }
+  all.p->input = original_input;
+}
+
+void delete_replay(jni_learner* learner)
+{ if (learner->replay)
+  { learner->instance->p->output = learner->cache_output;
+    delete learner->replay;
+    learner->replay = nullptr;
+  }
+}
@@ -0,0 +1,52 @@
+#ifndef VW_JNI_REPLAY_BUFFER_H
+#define VW_JNI_REPLAY_BUFFER_H
+
+#include <vw.h>
+#include <string>
+#include <vector>
+#include <stdint.h>
+
+struct jni_learner;
+
+// Cache of the examples learned through jni, kept in place of vw's cache file.
+//
+// vw writes every example it sets up to its cache output in its binary cache format, so replacing the output
+// with this buffer retains the examples without any parsing.  The remaining passes read the buffer back with
+// vw's cache reader.  The first max_memory bytes stay in memory, the rest spills to an unlinked temporary file.
+class replay_io_buf : public io_buf
+{ public:
+    replay_io_buf(size_t max_memory, const std::string& spill_directory);
+    virtual ~replay_io_buf();
+
+    virtual ssize_t write_file(int f, const void* buf, size_t nbytes);
+    virtual ssize_t read_file(int f, void* buf, size_t nbytes);
+    virtual void reset_file(int f);
+    virtual bool close_file();
+
+    // Writes the buffered bytes, the buffer is read from its beginning afterwards.
+    void start_reading();
+    uint64_t memory_bytes() const { return memory_size; }
+    uint64_t spilled_bytes() const { return spilled; }
+
+  private:
+    replay_io_buf(const replay_io_buf&);
+    replay_io_buf& operator=(const replay_io_buf&);
+
+    static const size_t chunk_size = 1 << 20;
+
+    std::vector<std::vector<char> > chunks;
+    uint64_t memory_size;
+    size_t max_memory;
+    std::string spill_directory;
+    int spill_fd;
+    uint64_t spilled;
+    uint64_t read_position;
+};
+
+// Replaces the cache output of the learner, which must have been created with --passes and a cache file.
+void enable_replay(jni_learner* learner, size_t max_memory, const std::string& spill_directory);
+// Runs the passes after the first one over the retained examples and restores the cache output.
+void replay_remaining_passes(jni_learner* learner);
+void delete_replay(jni_learner* learner);
+
+#endif // VW_JNI_REPLAY_BUFFER_H
@@ -0,0 +1,55 @@
+#ifndef VW_JNI_TOP_K_H
+#define VW_JNI_TOP_K_H
+
+#include <vw.h>
+#include <algorithm>
+#include <vector>
+
+#include "jni_base_learner.h"
+
+struct scored_id
+{ float score;
+  jint id;
+};
+
+// Selects the k best candidates with a partial sort and copies only them to java, best first.
+// Returns the number of entries written, which is smaller than k when there are fewer candidates.
+inline jint copy_top_k(JNIEnv *env, std::vector<scored_id>& candidates, jint k, bool lowest_first,
+                       jintArray ids, jfloatArray scores)
+{ size_t count = std::min((size_t)k, candidates.size());
+  if (lowest_first)
+    std::partial_sort(candidates.begin(), candidates.begin() + count, candidates.end(),
+                      [](const scored_id& a, const scored_id& b) { return a.score < b.score; });
+  else
+    std::partial_sort(candidates.begin(), candidates.begin() + count, candidates.end(),
+                      [](const scored_id& a, const scored_id& b) { return a.score > b.score; });
+
+  std::vector<jint> top_ids(count);
+  std::vector<jfloat> top_scores(count);
+  for (size_t i = 0; i < count; i++)
+  { top_ids[i] = candidates[i].id;
+    top_scores[i] = candidates[i].score;
+  }
+  env->SetIntArrayRegion(ids, 0, count, top_ids.data());
+  env->SetFloatArrayRegion(scores, 0, count, top_scores.data());
+  return (jint)count;
+}
+
+// The candidates of one prediction, reused by every prediction of the thread.
+inline std::vector<scored_id>& top_k_candidates(size_t size)
+{ static thread_local std::vector<scored_id> candidates;
+  candidates.resize(size);
+  return candidates;
+}
+
+inline jint action_scores_top_k(JNIEnv *env, example* ex, jint k, bool lowest_first, jintArray ids, jfloatArray scores)
+{ ACTION_SCORE::action_scores& a_s = ex->pred.a_s;
+  std::vector<scored_id>& candidates = top_k_candidates(a_s.size());
+  for (size_t i = 0; i < a_s.size(); i++)
+  { candidates[i].score = a_s[i].score;
+    candidates[i].id = (jint)a_s[i].action;
+  }
+  return copy_top_k(env, candidates, k, lowest_first, ids, scores);
+}
+
+#endif // VW_JNI_TOP_K_H